@@ -25,6 +25,8 @@ import me.athlaeos.valhallammo.parties.PartyManager;
 import me.athlaeos.valhallammo.persistence.Database;
 import me.athlaeos.valhallammo.persistence.ProfilePersistence;
 import me.athlaeos.valhallammo.persistence.implementations.SQL;
+import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
+import me.athlaeos.valhallammo.playerstats.EntityCache;
 import me.athlaeos.valhallammo.playerstats.LeaderboardManager;
 import me.athlaeos.valhallammo.playerstats.profiles.implementations.*;
 import me.athlaeos.valhallammo.potioneffects.PotionEffectRegistry;
@@ -50,7 +52,6 @@ import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
 import java.io.IOException;
-import java.sql.SQLException;
 import java.util.*;
 
 public class ValhallaMMO extends JavaPlugin {
@@ -204,7 +205,7 @@ public class ValhallaMMO extends JavaPlugin {
         for (PluginHook hook : activeHooks.values()) hook.whenPresent();
 
         if (ConfigManager.getConfig("config.yml").get().getBoolean("metrics", true)){
-            new Metrics(this, 14942).addCustomChart(new Metrics.SimplePie("using_database_for_player_data", () -> connection instanceof SQL db && db.getConnection() != null ? "Yes" : "No"));
+            new Metrics(this, 14942).addCustomChart(new Metrics.SimplePie("using_database_for_player_data", () -> connection instanceof SQL db && db.getPool() != null ? "Yes" : "No"));
         }
 
         registerListener(new Dummy());
@@ -239,6 +240,7 @@ public class ValhallaMMO extends JavaPlugin {
         if (!MinecraftVersion.currentVersionNewerThan(MinecraftVersion.MINECRAFT_1_20_5)) registerListener(new ReachAttackListener()); // 1.20.5 introduces entity interaction range attributes, rendering this listener obsolete
         registerListener(new RecipeDiscoveryListener());
         registerListener(new SmithingTableListener());
+        registerListener(new StatCacheListener());
         registerListener(new WorldSaveListener());
 //        registerListener(new ThrownWeaponListener()); // might end up not using
 
@@ -285,6 +287,8 @@ public class ValhallaMMO extends JavaPlugin {
         ItemUtils.startProjectileRunnableCache();
         GlobalEffect.initializeRunnable();
         PermanentPotionEffects.initializeRunnable();
+        AccumulativeStatManager.startCacheSweeper();
+        EntityCache.startCacheSweeper();
 
         if (AlphaToBetaConversionHandler.shouldConvert()) {
             logInfo("Alpha files found and conversion enabled! Enabling data transfer from Alpha to Beta");
@@ -295,14 +299,12 @@ public class ValhallaMMO extends JavaPlugin {
     @Override
     public void onDisable() {
         if (!enabled) return;
+        ProfileRegistry.stopSaveScheduler();
+        AccumulativeStatManager.stopCacheSweeper();
+        EntityCache.stopCacheSweeper();
         ProfileRegistry.getPersistence().saveAllProfiles();
-        if (ProfileRegistry.getPersistence() instanceof Database database) {
-            try {
-                database.getConnection().close();
-            } catch (SQLException ignored){
-                logSevere("Could not close connection");
-            }
-        }
+        ProfileRegistry.closeJournal();
+        if (ProfileRegistry.getPersistence() instanceof Database database) database.close();
         for (Player p : getServer().getOnlinePlayers()) {
             EntityAttributeStats.removeStats(p);
             CustomBreakSpeedListener.removeFatiguedPlayer(p);
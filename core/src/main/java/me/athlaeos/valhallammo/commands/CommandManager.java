@@ -36,6 +36,7 @@ public class CommandManager implements TabExecutor {
 		commands.put("globalbuff", new GlobalEffectCommand());
 		commands.put("resourcepack", new ResourcePackCommand());
 		commands.put("saveall", new SaveAllCommand());
+		commands.put("database", new DatabaseCommand());
 		commands.put("hardness", new BlockHardnessCommand());
 //		commands.put("reload", new ReloadCommand());
 		commands.put("import", new ImportCommand());
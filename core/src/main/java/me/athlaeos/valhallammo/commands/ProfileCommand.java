@@ -4,7 +4,9 @@ import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.localization.TranslationManager;
 import me.athlaeos.valhallammo.playerstats.format.StatFormat;
 import me.athlaeos.valhallammo.playerstats.profiles.Profile;
+import me.athlaeos.valhallammo.persistence.ProfilePersistence;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileCache;
+import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
 import me.athlaeos.valhallammo.utility.Utils;
 
 import org.bukkit.Bukkit;
@@ -13,6 +15,8 @@ import org.bukkit.command.Command;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.CompletableFuture;
+
 public class ProfileCommand implements CommandExecutor {
     private final Class<? extends Profile> profile;
 
@@ -29,6 +33,10 @@ public class ProfileCommand implements CommandExecutor {
                 return true;
             }
             target = Bukkit.getPlayer(args[0]);
+            if (target == null){
+                displayOfflineProfile(sender, args[0], profile);
+                return true;
+            }
         } else if (sender instanceof Player){
             target = (Player) sender;
         } else {
@@ -41,7 +49,24 @@ public class ProfileCommand implements CommandExecutor {
     }
 
     public static void displayProfile(CommandSender displayTo, Player of, Class<? extends Profile> type) {
-        Profile profile = ProfileCache.getOrCache(of, type);
+        displayProfile(displayTo, ProfileCache.getOrCache(of, type));
+    }
+
+    /**
+     * Looks up a player who isn't online by name, and displays their stored profile once it's fetched
+     */
+    public static void displayOfflineProfile(CommandSender displayTo, String name, Class<? extends Profile> type) {
+        ProfilePersistence persistence = ProfileRegistry.getPersistence();
+        persistence.fetchPlayerId(name)
+                .thenCompose(id -> id == null ? CompletableFuture.completedFuture(null) : persistence.fetchOfflineProfile(id, type))
+                .whenComplete((profile, e) -> Bukkit.getScheduler().runTask(ValhallaMMO.getInstance(), () -> {
+                    if (e != null) ValhallaMMO.logWarning("Could not fetch the profile of " + name + ": " + e.getMessage());
+                    if (profile == null) Utils.sendMessage(displayTo, Utils.chat(TranslationManager.getTranslation("error_command_player_offline")));
+                    else displayProfile(displayTo, profile);
+                }));
+    }
+
+    public static void displayProfile(CommandSender displayTo, Profile profile) {
         for (String i : profile.intStatNames()){
             StatFormat format = profile.getNumberStatProperties().get(i).getFormat();
             displayTo.sendMessage(Utils.chat(String.format("&f> %s: %s", format == null ? profile.getInt(i) : format.format(profile.getInt(i)), i)));
@@ -0,0 +1,88 @@
+package me.athlaeos.valhallammo.commands.valhallasubcommands;
+
+import me.athlaeos.valhallammo.commands.Command;
+import me.athlaeos.valhallammo.localization.TranslationManager;
+import me.athlaeos.valhallammo.persistence.ConnectionPool;
+import me.athlaeos.valhallammo.persistence.Database;
+import me.athlaeos.valhallammo.persistence.ProfileSaveScheduler;
+import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
+import me.athlaeos.valhallammo.utility.Utils;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+
+public class DatabaseCommand implements Command {
+    @Override
+    public boolean execute(CommandSender sender, String[] args) {
+        ProfileSaveScheduler scheduler = ProfileRegistry.getSaveScheduler();
+        boolean pooled = ProfileRegistry.getPersistence() instanceof Database database && database.getPool() != null;
+        if (!pooled && scheduler == null){
+            Utils.sendMessage(sender, TranslationManager.getTranslation("error_command_database_unavailable"));
+            return true;
+        }
+        if (pooled){
+            ConnectionPool.Statistics statistics = ((Database) ProfileRegistry.getPersistence()).getPool().getStatistics();
+            for (String line : TranslationManager.getListTranslation("status_command_database_pool")){
+                Utils.sendMessage(sender, line
+                        .replace("%active%", String.valueOf(statistics.active()))
+                        .replace("%idle%", String.valueOf(statistics.idle()))
+                        .replace("%max%", String.valueOf(statistics.maxSize()))
+                        .replace("%waiting%", String.valueOf(statistics.waiting()))
+                        .replace("%borrows%", String.valueOf(statistics.borrows()))
+                        .replace("%average_wait%", String.format("%.2f", statistics.averageWait()))
+                        .replace("%max_wait%", String.format("%.2f", statistics.maxWait()))
+                        .replace("%timeouts%", String.valueOf(statistics.timeouts()))
+                        .replace("%created%", String.valueOf(statistics.created()))
+                        .replace("%evicted%", String.valueOf(statistics.evicted())));
+            }
+        }
+        if (scheduler != null){
+            ProfileSaveScheduler.Statistics statistics = scheduler.getStatistics();
+            for (String line : TranslationManager.getListTranslation("status_command_database_saves")){
+                Utils.sendMessage(sender, line
+                        .replace("%queued%", String.valueOf(statistics.queued()))
+                        .replace("%capacity%", String.valueOf(statistics.capacity()))
+                        .replace("%round_progress%", String.valueOf(statistics.roundProgress()))
+                        .replace("%round_size%", String.valueOf(statistics.roundSize()))
+                        .replace("%rounds%", String.valueOf(statistics.rounds()))
+                        .replace("%saves%", String.valueOf(statistics.saves()))
+                        .replace("%failures%", String.valueOf(statistics.failures()))
+                        .replace("%p50%", String.format("%.2f", statistics.p50()))
+                        .replace("%p95%", String.format("%.2f", statistics.p95()))
+                        .replace("%p99%", String.format("%.2f", statistics.p99()))
+                        .replace("%max_latency%", String.format("%.2f", statistics.max())));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String getFailureMessage(String[] args) {
+        return "/val database";
+    }
+
+    @Override
+    public String getDescription() {
+        return TranslationManager.getTranslation("description_command_database");
+    }
+
+    @Override
+    public String getCommand() {
+        return "/val database";
+    }
+
+    @Override
+    public String[] getRequiredPermissions() {
+        return new String[]{"valhalla.database"};
+    }
+
+    @Override
+    public boolean hasPermission(CommandSender sender) {
+        return sender.hasPermission("valhalla.database");
+    }
+
+    @Override
+    public List<String> getSubcommandArgs(CommandSender sender, String[] args) {
+        return null;
+    }
+}
@@ -1,15 +1,20 @@
 package me.athlaeos.valhallammo.commands.valhallasubcommands;
 
+import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.commands.Command;
 import me.athlaeos.valhallammo.content.ContentPackageManager;
 import me.athlaeos.valhallammo.dom.Catch;
 import me.athlaeos.valhallammo.localization.TranslationManager;
+import me.athlaeos.valhallammo.persistence.ProfileTransfer;
 import me.athlaeos.valhallammo.utility.Utils;
+import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class ExportCommand implements Command {
     @Override
@@ -19,6 +24,10 @@ public class ExportCommand implements Command {
             return true;
         }
         String file = args[1];
+        if (args.length > 2 && args[2].equalsIgnoreCase("profiles")){
+            exportProfiles(sender, file);
+            return true;
+        }
 
         List<ContentPackageManager.ExportMode> exportModes = new ArrayList<>();
         if (args.length > 2){
@@ -36,6 +45,24 @@ public class ExportCommand implements Command {
         return true;
     }
 
+    private void exportProfiles(CommandSender sender, String file){
+        if (ProfileTransfer.isRunning()){
+            Utils.sendMessage(sender, TranslationManager.getTranslation("error_command_profile_transfer_running"));
+            return;
+        }
+        String path = "/export/" + file + "_profiles.json";
+        ProfileTransfer.exportProfiles(new File(ValhallaMMO.getInstance().getDataFolder(), path),
+                count -> Bukkit.getScheduler().runTask(ValhallaMMO.getInstance(), () ->
+                        Utils.sendMessage(sender, TranslationManager.getTranslation("status_command_profile_export_progress").replace("%count%", String.valueOf(count))))
+        ).whenComplete((count, error) -> Bukkit.getScheduler().runTask(ValhallaMMO.getInstance(), () -> {
+            if (error != null) {
+                ValhallaMMO.logSevere("Could not export profiles due to an exception: ");
+                error.printStackTrace();
+                Utils.sendMessage(sender, TranslationManager.getTranslation("error_command_profile_transfer").replace("%error%", String.valueOf(error.getMessage())));
+            } else Utils.sendMessage(sender, TranslationManager.getTranslation("status_command_profile_export_success").replace("%count%", String.valueOf(count)).replace("%path%", path));
+        }));
+    }
+
     @Override
     public String getFailureMessage(String[] args) {
         return "/val export";
@@ -64,7 +91,8 @@ public class ExportCommand implements Command {
     @Override
     public List<String> getSubcommandArgs(CommandSender sender, String[] args) {
         if (args.length == 2) return List.of("name");
-        if (args.length >= 3) return Arrays.stream(ContentPackageManager.ExportMode.values()).map(ContentPackageManager.ExportMode::toString).map(String::toLowerCase).toList();
+        if (args.length == 3) return Stream.concat(Stream.of("profiles"), Arrays.stream(ContentPackageManager.ExportMode.values()).map(ContentPackageManager.ExportMode::toString).map(String::toLowerCase)).toList();
+        if (args.length > 3) return Arrays.stream(ContentPackageManager.ExportMode.values()).map(ContentPackageManager.ExportMode::toString).map(String::toLowerCase).toList();
         return null;
     }
 }
@@ -1,16 +1,21 @@
 package me.athlaeos.valhallammo.commands.valhallasubcommands;
 
+import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.commands.Command;
 import me.athlaeos.valhallammo.content.ContentPackage;
 import me.athlaeos.valhallammo.content.ContentPackageManager;
 import me.athlaeos.valhallammo.dom.Catch;
 import me.athlaeos.valhallammo.localization.TranslationManager;
+import me.athlaeos.valhallammo.persistence.ProfileTransfer;
 import me.athlaeos.valhallammo.utility.Utils;
+import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class ImportCommand implements Command {
     @Override
@@ -20,6 +25,10 @@ public class ImportCommand implements Command {
             return true;
         }
         String file = args[1];
+        if (args.length > 2 && args[2].equalsIgnoreCase("profiles")){
+            importProfiles(sender, file);
+            return true;
+        }
         ContentPackage contentPackage = ContentPackageManager.fromFile(file);
         if (contentPackage == null){
             Utils.sendMessage(sender, TranslationManager.getTranslation("error_command_import_file_not_found"));
@@ -39,6 +48,30 @@ public class ImportCommand implements Command {
         return true;
     }
 
+    private void importProfiles(CommandSender sender, String file){
+        if (ProfileTransfer.isRunning()){
+            Utils.sendMessage(sender, TranslationManager.getTranslation("error_command_profile_transfer_running"));
+            return;
+        }
+        File source = new File(ValhallaMMO.getInstance().getDataFolder(), "/export/" + file + "_profiles.json");
+        if (!source.exists()){
+            Utils.sendMessage(sender, TranslationManager.getTranslation("error_command_import_file_not_found"));
+            return;
+        }
+        ProfileTransfer.importProfiles(source,
+                count -> Bukkit.getScheduler().runTask(ValhallaMMO.getInstance(), () ->
+                        Utils.sendMessage(sender, TranslationManager.getTranslation("status_command_profile_import_progress").replace("%count%", String.valueOf(count))))
+        ).whenComplete((result, error) -> Bukkit.getScheduler().runTask(ValhallaMMO.getInstance(), () -> {
+            if (error != null) {
+                ValhallaMMO.logSevere("Could not import profiles due to an exception: ");
+                error.printStackTrace();
+                Utils.sendMessage(sender, TranslationManager.getTranslation("error_command_profile_transfer").replace("%error%", String.valueOf(error.getMessage())));
+            } else Utils.sendMessage(sender, TranslationManager.getTranslation("status_command_profile_import_success")
+                    .replace("%count%", String.valueOf(result.imported()))
+                    .replace("%skipped%", String.valueOf(result.skipped())));
+        }));
+    }
+
     @Override
     public String getFailureMessage(String[] args) {
         return "/val import";
@@ -67,7 +100,8 @@ public class ImportCommand implements Command {
     @Override
     public List<String> getSubcommandArgs(CommandSender sender, String[] args) {
         if (args.length == 2) return List.of("name");
-        if (args.length >= 3) return Arrays.stream(ContentPackageManager.ExportMode.values()).map(ContentPackageManager.ExportMode::toString).map(String::toLowerCase).toList();
+        if (args.length == 3) return Stream.concat(Stream.of("profiles"), Arrays.stream(ContentPackageManager.ExportMode.values()).map(ContentPackageManager.ExportMode::toString).map(String::toLowerCase)).toList();
+        if (args.length > 3) return Arrays.stream(ContentPackageManager.ExportMode.values()).map(ContentPackageManager.ExportMode::toString).map(String::toLowerCase).toList();
         return null;
     }
 }
@@ -33,16 +33,16 @@ public class ProfileStatsCommand implements Command {
         }
 
         if (args.length < 2) return false;
-        if (target == null){
-            Utils.sendMessage(sender, Utils.chat(TranslationManager.getTranslation("error_command_player_offline")));
-            return true;
-        }
 
         Skill skill = SkillRegistry.getSkill(args[1]);
         if (skill == null) {
             Utils.sendMessage(sender, Utils.chat(TranslationManager.getTranslation("error_command_invalid_skill")));
             return true;
         }
+        if (target == null){
+            ProfileCommand.displayOfflineProfile(sender, args[2], skill.getProfileType());
+            return true;
+        }
 
         ProfileCommand.displayProfile(sender, target, skill.getProfileType());
 
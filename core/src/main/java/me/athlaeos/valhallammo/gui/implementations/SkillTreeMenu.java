@@ -243,7 +243,7 @@ public class SkillTreeMenu extends Menu {
             if (storedType != null){
                 Skill s = SkillRegistry.getSkill(storedType);
                 if (s != null) {
-                    PowerProfile acc = ProfileRegistry.getMergedProfile(target, PowerProfile.class);
+                    PowerProfile acc = ProfileRegistry.getMergedProfileView(target, PowerProfile.class);
                     meta.setDisplayName(Utils.chat(s.getDisplayName() + (acc.getNewGamePlus() > 0 ?
                             TranslationManager.getTranslation("prestige_level_format")
                                     .replace("%prestige_roman%", StringUtils.toRoman(acc.getNewGamePlus())
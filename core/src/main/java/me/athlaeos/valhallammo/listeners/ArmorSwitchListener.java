@@ -4,6 +4,7 @@ import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.item.EquipmentClass;
 import me.athlaeos.valhallammo.item.ItemBuilder;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.playerstats.EntityCache;
 import me.athlaeos.valhallammo.utility.ItemUtils;
 import org.bukkit.entity.Player;
@@ -95,7 +96,7 @@ public class ArmorSwitchListener implements Listener {
         public void run() {
             if (timer <= 0){
                 EntityCache.resetEquipment(who);
-                AccumulativeStatManager.updateStats(who);
+                AccumulativeStatManager.updateStats(who, StatDependency.ARMOR);
                 taskLimiters.remove(who.getUniqueId());
                 cancel();
             } else {
@@ -51,6 +51,30 @@ import org.bukkit.util.Vector;
 import java.util.*;
 
 public class EntityAttackListener implements Listener {
+    // ids of the stats used while handling damage, resolved once rather than looking them up by name on every hit
+    private static final int SHIELD_DISARMING = AccumulativeStatManager.getStatId("SHIELD_DISARMING");
+    private static final int DODGE_CHANCE = AccumulativeStatManager.getStatId("DODGE_CHANCE");
+    private static final int MOUNTED_DAMAGE_DEALT = AccumulativeStatManager.getStatId("MOUNTED_DAMAGE_DEALT");
+    private static final int STUN_CHANCE = AccumulativeStatManager.getStatId("STUN_CHANCE");
+    private static final int KNOCKBACK_BONUS = AccumulativeStatManager.getStatId("KNOCKBACK_BONUS");
+    private static final int DISMOUNT_CHANCE = AccumulativeStatManager.getStatId("DISMOUNT_CHANCE");
+    private static final int DAMAGE_DEALT = AccumulativeStatManager.getStatId("DAMAGE_DEALT");
+    private static final int RANGED_DAMAGE_DEALT = AccumulativeStatManager.getStatId("RANGED_DAMAGE_DEALT");
+    private static final int VELOCITY_DAMAGE_BONUS = AccumulativeStatManager.getStatId("VELOCITY_DAMAGE_BONUS");
+    private static final int LIGHT_ARMOR_DAMAGE_BONUS = AccumulativeStatManager.getStatId("LIGHT_ARMOR_DAMAGE_BONUS");
+    private static final int HEAVY_ARMOR_DAMAGE_BONUS = AccumulativeStatManager.getStatId("HEAVY_ARMOR_DAMAGE_BONUS");
+    private static final int CRIT_CHANCE_RESISTANCE = AccumulativeStatManager.getStatId("CRIT_CHANCE_RESISTANCE");
+    private static final int CRIT_CHANCE = AccumulativeStatManager.getStatId("CRIT_CHANCE");
+    private static final int CRIT_DAMAGE_RESISTANCE = AccumulativeStatManager.getStatId("CRIT_DAMAGE_RESISTANCE");
+    private static final int CRIT_DAMAGE = AccumulativeStatManager.getStatId("CRIT_DAMAGE");
+    private static final int REFLECT_CHANCE = AccumulativeStatManager.getStatId("REFLECT_CHANCE");
+    private static final int REFLECT_FRACTION = AccumulativeStatManager.getStatId("REFLECT_FRACTION");
+    private static final int BLEED_CHANCE = AccumulativeStatManager.getStatId("BLEED_CHANCE");
+    private static final int LIFE_STEAL = AccumulativeStatManager.getStatId("LIFE_STEAL");
+    private static final int POWER_ATTACK_DAMAGE_MULTIPLIER = AccumulativeStatManager.getStatId("POWER_ATTACK_DAMAGE_MULTIPLIER");
+    private static final int POWER_ATTACK_RADIUS = AccumulativeStatManager.getStatId("POWER_ATTACK_RADIUS");
+    private static final int POWER_ATTACK_DAMAGE_FRACTION = AccumulativeStatManager.getStatId("POWER_ATTACK_DAMAGE_FRACTION");
+
     private static final double facingAngleCos = MathUtils.cos(ValhallaMMO.getPluginConfig().getDouble("facing_angle", 70));
 
     private final boolean requireFacingForDodge = ValhallaMMO.getPluginConfig().getBoolean("prevent_dodge_not_facing_attacker", true);
@@ -106,7 +130,7 @@ public class EntityAttackListener implements Listener {
 
         if (v instanceof Player p && p.getCooldown(Material.SHIELD) <= 0 && p.isBlocking() && e.getFinalDamage() == 0 &&
                 (!(e.getDamager() instanceof Player a) || a.getAttackCooldown() >= 0.9)){ // Shield disabling may only occur if the shield is being held up
-            int shieldDisabling = (int) Math.round(AccumulativeStatManager.getCachedAttackerRelationalStats("SHIELD_DISARMING", p, trueDamager, 10000, true));
+            int shieldDisabling = (int) Math.round(AccumulativeStatManager.getCachedAttackerRelationalStats(SHIELD_DISARMING, p, trueDamager, 10000, true));
             Bukkit.getScheduler().runTaskLater(ValhallaMMO.getInstance(), () ->
                 p.setCooldown(Material.SHIELD, p.getCooldown(Material.SHIELD) + shieldDisabling)
             , 1L);
@@ -119,7 +143,7 @@ public class EntityAttackListener implements Listener {
             // due to the amount of stats being fetched.
             // the dodge is also considered first, as dodging an attack voids all following effects
             if (facing || !requireFacingForDodge){
-                if (Utils.proc(AccumulativeStatManager.getCachedRelationalStats("DODGE_CHANCE", v, e.getDamager(), 10000, true), 0, false)){
+                if (Utils.proc(AccumulativeStatManager.getCachedRelationalStats(DODGE_CHANCE, v, e.getDamager(), 10000, true), 0, false)){
                     if (dodgeParticle != null) e.getEntity().getWorld().spawnParticle(dodgeParticle, e.getEntity().getLocation().add(0, 1, 0), 10, 0.2, 0.5, 0.2);
                     if (e.getEntity() instanceof Player p) Utils.sendActionBar(p, dodgeMessage);
                     e.setCancelled(true);
@@ -149,16 +173,16 @@ public class EntityAttackListener implements Listener {
 
                 // mounted damage mechanic
                 if (trueDamager.getVehicle() instanceof LivingEntity)
-                    damageMultiplier = getDamageMultiplier(damageMultiplier, 1 + AccumulativeStatManager.getCachedAttackerRelationalStats("MOUNTED_DAMAGE_DEALT", e.getEntity(), e.getDamager(), 10000, true));
+                    damageMultiplier = getDamageMultiplier(damageMultiplier, 1 + AccumulativeStatManager.getCachedAttackerRelationalStats(MOUNTED_DAMAGE_DEALT, e.getEntity(), e.getDamager(), 10000, true));
             }
 
             // custom stun mechanics
             // stuns fetch the victim's stun resistance and so sweeping hits should not be able to stun
-            double stunChance = AccumulativeStatManager.getCachedAttackerRelationalStats("STUN_CHANCE", v, e.getDamager(), 10000, true);
+            double stunChance = AccumulativeStatManager.getCachedAttackerRelationalStats(STUN_CHANCE, v, e.getDamager(), 10000, true);
             if (Utils.proc(stunChance, damagerLuck - victimLuck, false)) Stun.attemptStun(v, trueDamager instanceof LivingEntity l ? l : null);
 
             // custom knockback mechanics
-            double knockbackBonus = AccumulativeStatManager.getCachedAttackerRelationalStats("KNOCKBACK_BONUS", v, e.getDamager(), 10000, true);
+            double knockbackBonus = AccumulativeStatManager.getCachedAttackerRelationalStats(KNOCKBACK_BONUS, v, e.getDamager(), 10000, true);
             AttributeInstance knockbackInstance = v.getAttribute(Attribute.GENERIC_KNOCKBACK_RESISTANCE);
             double knockbackResistance = (knockbackInstance == null ? 0 : knockbackInstance.getValue()) - Math.min(0, knockbackBonus);
             if (knockbackBonus > 0) knockbackBonus *= (1 - knockbackResistance);
@@ -182,7 +206,7 @@ public class EntityAttackListener implements Listener {
 
             // custom dismount mechanics
             if (v.getVehicle() != null){
-                double dismountChance = AccumulativeStatManager.getCachedAttackerRelationalStats("DISMOUNT_CHANCE", v, e.getDamager(), 10000, true);
+                double dismountChance = AccumulativeStatManager.getCachedAttackerRelationalStats(DISMOUNT_CHANCE, v, e.getDamager(), 10000, true);
                 if (Utils.proc(dismountChance, damagerLuck - victimLuck, false)) v.getVehicle().eject();
             }
 
@@ -192,14 +216,14 @@ public class EntityAttackListener implements Listener {
                 // damage buffs
                 // as mentioned previously mechanics where the victim's stats have to be fetched on an attack, these mechanics do not activate on sweeping hits.
                 // unlike them, attacker mechanics don't need to worry about that since their stats are cached and fetched without going through all their stat sources.
-                damageMultiplier = getDamageMultiplier(damageMultiplier, 1 + AccumulativeStatManager.getCachedAttackerRelationalStats("DAMAGE_DEALT", v, e.getDamager(), 10000, true));
+                damageMultiplier = getDamageMultiplier(damageMultiplier, 1 + AccumulativeStatManager.getCachedAttackerRelationalStats(DAMAGE_DEALT, v, e.getDamager(), 10000, true));
                 if (e.getDamager() instanceof Projectile) {
                     // ranged damage buffs
-                    damageMultiplier = getDamageMultiplier(damageMultiplier, 1 + AccumulativeStatManager.getCachedAttackerRelationalStats("RANGED_DAMAGE_DEALT", v, e.getDamager(), 10000, true));
+                    damageMultiplier = getDamageMultiplier(damageMultiplier, 1 + AccumulativeStatManager.getCachedAttackerRelationalStats(RANGED_DAMAGE_DEALT, v, e.getDamager(), 10000, true));
                 } else {
                     // melee damage buffs
                     damageMultiplier = getDamageMultiplier(damageMultiplier, 1 + AccumulativeStatManager.getCachedAttackerRelationalStats(combatType == CombatType.MELEE_UNARMED ? "UNARMED_DAMAGE_DEALT" : "MELEE_DAMAGE_DEALT", v, e.getDamager(), 10000, true));
-                    double velocityBonus = AccumulativeStatManager.getRelationalStats("VELOCITY_DAMAGE_BONUS", v, e.getDamager(), true);
+                    double velocityBonus = AccumulativeStatManager.getRelationalStats(VELOCITY_DAMAGE_BONUS, v, e.getDamager(), true);
                     if (velocityBonus > 0 && e.getDamager() instanceof LivingEntity l){
                         Vector moveSpeedDirection = MovementListener.getLastMovementVectors().get(e.getDamager().getUniqueId());
                         if (moveSpeedDirection != null){
@@ -210,18 +234,18 @@ public class EntityAttackListener implements Listener {
                     }
                 }
                 EntityProperties victimProperties = EntityCache.getAndCacheProperties(v);
-                damageMultiplier = getDamageMultiplier(damageMultiplier, 1 + (victimProperties.getLightArmorCount() * AccumulativeStatManager.getCachedAttackerRelationalStats("LIGHT_ARMOR_DAMAGE_BONUS", v, e.getDamager(), 10000, true)));
-                damageMultiplier = getDamageMultiplier(damageMultiplier, 1 + (victimProperties.getHeavyArmorCount() * AccumulativeStatManager.getCachedAttackerRelationalStats("HEAVY_ARMOR_DAMAGE_BONUS", v, e.getDamager(), 10000, true)));
+                damageMultiplier = getDamageMultiplier(damageMultiplier, 1 + (victimProperties.getLightArmorCount() * AccumulativeStatManager.getCachedAttackerRelationalStats(LIGHT_ARMOR_DAMAGE_BONUS, v, e.getDamager(), 10000, true)));
+                damageMultiplier = getDamageMultiplier(damageMultiplier, 1 + (victimProperties.getHeavyArmorCount() * AccumulativeStatManager.getCachedAttackerRelationalStats(HEAVY_ARMOR_DAMAGE_BONUS, v, e.getDamager(), 10000, true)));
 
                 // custom crit mechanics
                 // the crit mechanic fetches the victim's crit chance and damage resistance stats and so sweeping hits should not be able to crit
                 if (attackCooldown >= 0.9 && (!(trueDamager instanceof Player p) || !WorldGuardHook.inDisabledRegion(v.getLocation(), p, WorldGuardHook.VMMO_COMBAT_CRIT))){
-                    double critChanceResistance = AccumulativeStatManager.getCachedRelationalStats("CRIT_CHANCE_RESISTANCE", v, e.getDamager(), 10000, true);
-                    double critChance = AccumulativeStatManager.getCachedAttackerRelationalStats("CRIT_CHANCE", v, e.getDamager(), 10000, true) * (1 - critChanceResistance);
+                    double critChanceResistance = AccumulativeStatManager.getCachedRelationalStats(CRIT_CHANCE_RESISTANCE, v, e.getDamager(), 10000, true);
+                    double critChance = AccumulativeStatManager.getCachedAttackerRelationalStats(CRIT_CHANCE, v, e.getDamager(), 10000, true) * (1 - critChanceResistance);
                     if (critNextAttack.contains(trueDamager.getUniqueId()) || Utils.proc(critChance, damagerLuck - victimLuck, false)) {
                         critNextAttack.remove(trueDamager.getUniqueId());
-                        double critDamageResistance = AccumulativeStatManager.getCachedRelationalStats("CRIT_DAMAGE_RESISTANCE", v, e.getDamager(), 10000, true);
-                        double critDamage = 1 + (AccumulativeStatManager.getCachedAttackerRelationalStats("CRIT_DAMAGE", v, e.getDamager(), 10000, true) * (1 - critDamageResistance));
+                        double critDamageResistance = AccumulativeStatManager.getCachedRelationalStats(CRIT_DAMAGE_RESISTANCE, v, e.getDamager(), 10000, true);
+                        double critDamage = 1 + (AccumulativeStatManager.getCachedAttackerRelationalStats(CRIT_DAMAGE, v, e.getDamager(), 10000, true) * (1 - critDamageResistance));
                         EntityCriticallyHitEvent event = new EntityCriticallyHitEvent(v, e.getDamager(), combatType, e.getDamage(), critDamage);
                         Bukkit.getPluginManager().callEvent(event);
                         if (!event.isCancelled()){
@@ -238,8 +262,8 @@ public class EntityAttackListener implements Listener {
                 // damage reflecting mechanic
                 if (reflectDamageType != null && e.getCause() != reflectDamageType && trueDamager instanceof LivingEntity a){
                     if (!(v instanceof Player p) || !WorldGuardHook.inDisabledRegion(p.getLocation(), p, WorldGuardHook.VMMO_COMBAT_REFLECT)){
-                        if (Utils.proc(AccumulativeStatManager.getCachedRelationalStats("REFLECT_CHANCE", v, e.getDamager(), 10000, true), victimLuck - damagerLuck, false)){
-                            double reflectFraction = AccumulativeStatManager.getCachedRelationalStats("REFLECT_FRACTION", v, e.getDamager(), 10000, true);
+                        if (Utils.proc(AccumulativeStatManager.getCachedRelationalStats(REFLECT_CHANCE, v, e.getDamager(), 10000, true), victimLuck - damagerLuck, false)){
+                            double reflectFraction = AccumulativeStatManager.getCachedRelationalStats(REFLECT_FRACTION, v, e.getDamager(), 10000, true);
                             double reflectDamage = e.getDamage() * reflectFraction;
                             a.playEffect(EntityEffect.THORNS_HURT);
                             EntityUtils.damage(a, v, reflectDamage, reflectDamageType.toString());
@@ -251,14 +275,14 @@ public class EntityAttackListener implements Listener {
                 Bukkit.getScheduler().runTaskLater(ValhallaMMO.getInstance(), () -> {
                     // custom bleed mechanics
                     if (attackCooldown >= 0.9F){
-                        double bleedChance = AccumulativeStatManager.getCachedAttackerRelationalStats("BLEED_CHANCE", v, e.getDamager(), 10000, true);
+                        double bleedChance = AccumulativeStatManager.getCachedAttackerRelationalStats(BLEED_CHANCE, v, e.getDamager(), 10000, true);
                         if (bleedNextAttack.contains(trueDamager.getUniqueId()) || Utils.proc(bleedChance, damagerLuck - victimLuck, false)){
                             bleedNextAttack.remove(trueDamager.getUniqueId());
                             Bleeder.inflictBleed(v, e.getDamager(), combatType);
                         }
                     }
 
-                    double lifeSteal = AccumulativeStatManager.getCachedAttackerRelationalStats("LIFE_STEAL", v, trueDamager, 10000, true);
+                    double lifeSteal = AccumulativeStatManager.getCachedAttackerRelationalStats(LIFE_STEAL, v, trueDamager, 10000, true);
                     double lifeStealValue = e.getDamage() * lifeSteal;
 
                     // custom power attack mechanics
@@ -266,13 +290,13 @@ public class EntityAttackListener implements Listener {
                     // sweep attacks should not trigger custom power attack damage multipliers
                     if (e.getDamager() instanceof LivingEntity a && a.getFallDistance() > 0 &&
                             a instanceof Player p && !WorldGuardHook.inDisabledRegion(a.getLocation(), p, WorldGuardHook.VMMO_COMBAT_POWERATTACK)){
-                        powerAttackMultiplier += AccumulativeStatManager.getCachedAttackerRelationalStats("POWER_ATTACK_DAMAGE_MULTIPLIER", v, a, 10000, true);
+                        powerAttackMultiplier += AccumulativeStatManager.getCachedAttackerRelationalStats(POWER_ATTACK_DAMAGE_MULTIPLIER, v, a, 10000, true);
 
                         double baseDamage = e.getDamage() / 1.5; // remove vanilla crit damage
                         e.setDamage(baseDamage * powerAttackMultiplier); // set custom power attack damage
 
-                        double radius = AccumulativeStatManager.getCachedAttackerRelationalStats("POWER_ATTACK_RADIUS", v, a, 10000, true);
-                        double fraction = AccumulativeStatManager.getCachedAttackerRelationalStats("POWER_ATTACK_DAMAGE_FRACTION", v, a, 10000, true);
+                        double radius = AccumulativeStatManager.getCachedAttackerRelationalStats(POWER_ATTACK_RADIUS, v, a, 10000, true);
+                        double fraction = AccumulativeStatManager.getCachedAttackerRelationalStats(POWER_ATTACK_DAMAGE_FRACTION, v, a, 10000, true);
                         double damage = e.getDamage() * fraction;
                         if (damage > 0 && radius > 0){
                             for (Entity entity : e.getEntity().getWorld().getNearbyEntities(e.getEntity().getLocation(), radius, radius, radius, (en) -> en instanceof LivingEntity)){
@@ -27,6 +27,15 @@ import org.bukkit.event.entity.EntityDamageEvent;
 import java.util.*;
 
 public class EntityDamagedListener implements Listener {
+    // stat ids resolved once, as every damage event reads several of them
+    private static final int PLAYER_DAMAGE_DEALT = AccumulativeStatManager.getStatId("PLAYER_DAMAGE_DEALT");
+    private static final int PVP_RESISTANCE = AccumulativeStatManager.getStatId("PVP_RESISTANCE");
+    private static final int IMMUNITY_FRAME_MULTIPLIER = AccumulativeStatManager.getStatId("IMMUNITY_FRAME_MULTIPLIER");
+    private static final int IMMUNITY_FRAME_BONUS = AccumulativeStatManager.getStatId("IMMUNITY_FRAME_BONUS");
+    private static final int DAMAGE_RESISTANCE = AccumulativeStatManager.getStatId("DAMAGE_RESISTANCE");
+    private static final int ARMOR_TOTAL = AccumulativeStatManager.getStatId("ARMOR_TOTAL");
+    private static final int TOUGHNESS = AccumulativeStatManager.getStatId("TOUGHNESS");
+
     private static final boolean customDamageEnabled = ValhallaMMO.getPluginConfig().getBoolean("custom_damage_system", true);
     private static final Collection<String> entityDamageCauses = new HashSet<>(Set.of("THORNS", "ENTITY_ATTACK", "ENTITY_SWEEP_ATTACK", "PROJECTILE", "ENTITY_EXPLOSION", "SONIC_BOOM"));
     private static final Collection<String> trueDamage = new HashSet<>(Set.of("VOID", "SONIC_BOOM", "STARVATION", "SUICIDE", "WORLD_BORDER", "KILL", "GENERIC_KILL"));
@@ -67,10 +76,10 @@ public class EntityDamagedListener implements Listener {
             Entity lastDamager = lastDamager(e);
             if (e.getEntity() instanceof Player dP && lastDamager instanceof Player aP){
                 // pvp damage bonus and resistance mechanic
-                double bonus = AccumulativeStatManager.getCachedAttackerRelationalStats("PLAYER_DAMAGE_DEALT", dP, aP, 10000, true);
+                double bonus = AccumulativeStatManager.getCachedAttackerRelationalStats(PLAYER_DAMAGE_DEALT, dP, aP, 10000, true);
                 e.setDamage(e.getDamage() * (1 + bonus));
 
-                double resistance = AccumulativeStatManager.getCachedRelationalStats("PVP_RESISTANCE", dP, aP, 10000, true);
+                double resistance = AccumulativeStatManager.getCachedRelationalStats(PVP_RESISTANCE, dP, aP, 10000, true);
                 e.setDamage(e.getDamage() * (1 - resistance));
             }
 
@@ -92,8 +101,8 @@ public class EntityDamagedListener implements Listener {
             final double damage = customDamage;
             if (applyImmunity){
 
-                double iFrameMultiplier = 1 + AccumulativeStatManager.getCachedRelationalStats("IMMUNITY_FRAME_MULTIPLIER", l, lastDamager, 10000, true);
-                int iFrameBonus = (int) AccumulativeStatManager.getCachedRelationalStats("IMMUNITY_FRAME_BONUS", l, lastDamager, 10000, true);
+                double iFrameMultiplier = 1 + AccumulativeStatManager.getCachedRelationalStats(IMMUNITY_FRAME_MULTIPLIER, l, lastDamager, 10000, true);
+                int iFrameBonus = (int) AccumulativeStatManager.getCachedRelationalStats(IMMUNITY_FRAME_BONUS, l, lastDamager, 10000, true);
                 int iFrames = (int) Math.max(0, iFrameMultiplier * (Math.max(0, 10 + iFrameBonus)));
                 double predictedHealth = healthTracker.getOrDefault(l.getUniqueId(), l.getHealth()) - damage;
                 healthTracker.put(l.getUniqueId(), predictedHealth); // if two damage instances occur in rapid succession (such as with bonus damage types)
@@ -162,7 +171,7 @@ public class EntityDamagedListener implements Listener {
 
         if (e.getEntity() instanceof LivingEntity l){
             if (!trueDamage.contains(damageCause)){
-                double generalResistance = AccumulativeStatManager.getCachedRelationalStats("DAMAGE_RESISTANCE", l, lastDamager, 10000, true);
+                double generalResistance = AccumulativeStatManager.getCachedRelationalStats(DAMAGE_RESISTANCE, l, lastDamager, 10000, true);
                 e.setDamage(Math.max(0, e.getDamage() * (1 - generalResistance)));
             }
         } else return e.getDamage();
@@ -171,8 +180,8 @@ public class EntityDamagedListener implements Listener {
         YamlConfiguration c = ValhallaMMO.getPluginConfig();
         if (physicalDamageTypes.containsKey(damageCause)){
             double armorEffectiveness = physicalDamageTypes.get(damageCause);
-            double totalArmor = AccumulativeStatManager.getCachedRelationalStats("ARMOR_TOTAL", e.getEntity(), lastDamager, 10000, true);
-            double toughness = Math.max(0, AccumulativeStatManager.getCachedRelationalStats("TOUGHNESS", e.getEntity(), lastDamager, 2000, true));
+            double totalArmor = AccumulativeStatManager.getCachedRelationalStats(ARMOR_TOTAL, e.getEntity(), lastDamager, 10000, true);
+            double toughness = Math.max(0, AccumulativeStatManager.getCachedRelationalStats(TOUGHNESS, e.getEntity(), lastDamager, 2000, true));
             if (totalArmor < 0){
                 double negativeArmorDamageDebuff = c.getDouble("negative_armor_damage_buff");
                 resistedDamage *= (1 + (-totalArmor * negativeArmorDamageDebuff));
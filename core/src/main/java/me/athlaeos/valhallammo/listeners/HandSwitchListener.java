@@ -2,6 +2,7 @@ package me.athlaeos.valhallammo.listeners;
 
 import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.utility.ItemUtils;
 import me.athlaeos.valhallammo.utility.Timer;
 import me.athlaeos.valhallammo.playerstats.EntityCache;
@@ -39,7 +40,7 @@ public class HandSwitchListener implements Listener {
 
     private static void reset(LivingEntity l){
         EntityCache.resetHands(l);
-        AccumulativeStatManager.updateStats(l);
+        AccumulativeStatManager.updateStats(l, StatDependency.HELD_ITEM);
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
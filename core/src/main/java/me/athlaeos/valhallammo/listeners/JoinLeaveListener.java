@@ -14,22 +14,36 @@ import org.bukkit.attribute.AttributeInstance;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.persistence.PersistentDataType;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JoinLeaveListener implements Listener {
     private final NamespacedKey HEALTH = new NamespacedKey(ValhallaMMO.getInstance(), "cached_health");
-    private static final Collection<UUID> loadedProfiles = new HashSet<>();
+    private static final Collection<UUID> loadedProfiles = ConcurrentHashMap.newKeySet(); // added to by async profile loading
 
     public static Collection<UUID> getLoadedProfiles() {
         return loadedProfiles;
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent e) {
+        // already off the main thread, so the player's profiles can be fetched here and be ready by the time they join
+        if (e.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED || ProfileRegistry.getPersistence() == null) return;
+        ProfileRegistry.getPersistence().prefetchProfiles(e.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent e) {
+        if (e.getResult() != PlayerLoginEvent.Result.ALLOWED) ProfileRegistry.getPersistence().evictPrefetchedProfiles(e.getPlayer().getUniqueId());
+    }
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent e) {
         ProfileRegistry.getPersistence().loadProfile(e.getPlayer());
@@ -57,6 +71,7 @@ public class JoinLeaveListener implements Listener {
         e.getPlayer().getPersistentDataContainer().set(HEALTH, PersistentDataType.DOUBLE, e.getPlayer().getHealth());
         EntityAttributeStats.removeStats(e.getPlayer());
 
+        ProfileRegistry.getPersistence().markOffline(e.getPlayer().getUniqueId());
         if (loadedProfiles.contains(e.getPlayer().getUniqueId())) {
             ProfileRegistry.getPersistence().saveProfile(e.getPlayer());
             loadedProfiles.remove(e.getPlayer().getUniqueId());
@@ -28,7 +28,7 @@ public class RecipeDiscoveryListener implements Listener {
         for (NamespacedKey key : CustomRecipeRegistry.getDisabledRecipes()){
             e.getPlayer().undiscoverRecipe(key);
         }
-        PowerProfile profile = ProfileRegistry.getMergedProfile(e.getPlayer(), PowerProfile.class);
+        PowerProfile profile = ProfileRegistry.getMergedProfileView(e.getPlayer(), PowerProfile.class);
         boolean allPermission = e.getPlayer().hasPermission("valhalla.allrecipes");
         for (DynamicGridRecipe recipe : CustomRecipeRegistry.getGridRecipes().values()){
             if (!recipe.isHiddenFromBook() && (recipe.isUnlockedForEveryone() || profile.getUnlockedRecipes().contains(recipe.getName()) || allPermission || e.getPlayer().hasPermission("valhalla.recipe." + recipe.getName()))) e.getPlayer().discoverRecipe(recipe.getKey()); // all recipes have a shaped variant because these display properly in the recipe book
@@ -0,0 +1,32 @@
+package me.athlaeos.valhallammo.listeners;
+
+import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
+import me.athlaeos.valhallammo.playerstats.EntityCache;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+
+/**
+ * Forgets the cached stats and properties of entities once they're gone, so they don't linger until the cache sweepers
+ * get to them. Dying entities are forgotten by {@link DeathListener}
+ */
+public class StatCacheListener implements Listener {
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent e){
+        for (Entity entity : e.getEntities()) {
+            AccumulativeStatManager.resetCache(entity);
+            EntityCache.removeProperties(entity);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent e){
+        AccumulativeStatManager.resetCache(e.getPlayer());
+        EntityCache.removeProperties(e.getPlayer());
+    }
+}
@@ -13,6 +13,7 @@ import me.athlaeos.valhallammo.hooks.WorldGuardHook;
 import me.athlaeos.valhallammo.localization.TranslationManager;
 import me.athlaeos.valhallammo.placeholder.PlaceholderRegistry;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.utility.ItemUtils;
 import me.athlaeos.valhallammo.utility.StringUtils;
 import me.athlaeos.valhallammo.utility.Timer;
@@ -345,6 +346,7 @@ public class PartyManager {
         party.getMembers().remove(p.getUniqueId());
         partiesByMember.remove(p.getUniqueId());
         partyChatPlayers.remove(p.getUniqueId());
+        AccumulativeStatManager.updateStats(p, StatDependency.PARTY);
         return null;
     }
 
@@ -375,6 +377,7 @@ public class PartyManager {
         if (party.getMembers().size() + 1 >= getTotalIntStat("party_capacity", party)) return ErrorStatus.MEMBER_CAP_REACHED;
         party.getMembers().put(p.getUniqueId(), lowestRank);
         partiesByMember.put(p.getUniqueId(), party);
+        AccumulativeStatManager.updateStats(p, StatDependency.PARTY);
         return null;
     }
 
@@ -0,0 +1,262 @@
+package me.athlaeos.valhallammo.persistence;
+
+import me.athlaeos.valhallammo.ValhallaMMO;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of JDBC connections. Connections are borrowed with {@link #borrow()} and handed back by simply closing
+ * them, after which they're kept open for the next borrower until they've been idle for too long.<br>
+ * Idle connections are validated before being handed out again, and a maintenance task evicts connections that have
+ * been idle for longer than {@link ConnectionSettings#idleTimeout()}.
+ */
+public class ConnectionPool {
+    private static final long VALIDATION_BYPASS_WINDOW = 1000L; // connections returned less than a second ago are assumed to still be valid
+
+    private final ConnectionSettings settings;
+    private final ConnectionFactory factory;
+    private final BlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private BukkitTask maintenanceTask = null;
+    private volatile boolean closed = false;
+
+    public ConnectionPool(ConnectionSettings settings, ConnectionFactory factory){
+        this.settings = settings;
+        this.factory = factory;
+        this.permits = new Semaphore(settings.maxPoolSize(), true);
+    }
+
+    /**
+     * Opens a first connection to confirm the database can be reached at all, and starts the maintenance task evicting
+     * idle connections.
+     * @throws SQLException if no connection could be made
+     */
+    public void start() throws SQLException {
+        Connection connection = factory.create();
+        createdCount.incrementAndGet();
+        idleConnections.offerFirst(new IdleConnection(connection, System.currentTimeMillis()));
+        maintenanceTask = Bukkit.getScheduler().runTaskTimerAsynchronously(ValhallaMMO.getInstance(), this::evictIdleConnections,
+                settings.maintenanceDelay(), settings.maintenanceDelay());
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting at most {@link ConnectionSettings#maxWait()} milliseconds for one to
+     * become available. The connection must be closed after usage, which returns it to the pool.
+     * @return a pooled connection
+     * @throws SQLException if no connection became available in time, or if a new connection could not be made
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(settings.maxWait(), TimeUnit.MILLISECONDS)){
+                timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + settings.maxWait() + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        long waited = System.nanoTime() - waitStart;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        borrowCount.incrementAndGet();
+
+        try {
+            Connection physical = null;
+            IdleConnection candidate;
+            while (physical == null && (candidate = idleConnections.pollFirst()) != null){
+                if (isUsable(candidate)) physical = candidate.connection();
+                else discard(candidate.connection());
+            }
+            if (physical == null){
+                physical = factory.create();
+                createdCount.incrementAndGet();
+            }
+            activeConnections.incrementAndGet();
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e){
+            permits.release();
+            throw e;
+        }
+    }
+
+    private boolean isUsable(IdleConnection idle){
+        try {
+            if (idle.connection().isClosed()) return false;
+            if (System.currentTimeMillis() - idle.idleSince() < VALIDATION_BYPASS_WINDOW) return true;
+            return idle.connection().isValid(settings.validationTimeout());
+        } catch (SQLException ignored){
+            return false;
+        }
+    }
+
+    private void release(Connection physical){
+        activeConnections.decrementAndGet();
+        try {
+            if (closed || physical.isClosed()) discard(physical);
+            else {
+                if (!physical.getAutoCommit()){
+                    // a borrower left a transaction open, so it's rolled back rather than leaking into the next borrower
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                idleConnections.offerFirst(new IdleConnection(physical, System.currentTimeMillis()));
+            }
+        } catch (SQLException e){
+            discard(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(Connection physical){
+        evictedCount.incrementAndGet();
+        try {
+            physical.close();
+        } catch (SQLException ignored){}
+    }
+
+    /**
+     * Closes any connections that have been idle for longer than {@link ConnectionSettings#idleTimeout()}.
+     * Connections are reused most-recently-returned first, so any excess connections naturally end up idle at the tail of the queue.
+     */
+    public void evictIdleConnections(){
+        long evictBefore = System.currentTimeMillis() - settings.idleTimeout();
+        Iterator<IdleConnection> iterator = idleConnections.descendingIterator();
+        while (iterator.hasNext()){
+            IdleConnection idle = iterator.next();
+            if (idle.idleSince() >= evictBefore) break;
+            if (idleConnections.removeLastOccurrence(idle)) discard(idle.connection());
+        }
+    }
+
+    /**
+     * Closes the pool and all its idle connections. Connections still borrowed are closed as soon as they're returned.
+     */
+    public void close(){
+        closed = true;
+        if (maintenanceTask != null) maintenanceTask.cancel();
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) discard(idle.connection());
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public ConnectionSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return a snapshot of the current pool statistics
+     */
+    public Statistics getStatistics(){
+        long borrows = borrowCount.get();
+        return new Statistics(
+                activeConnections.get(),
+                idleConnections.size(),
+                settings.maxPoolSize(),
+                permits.getQueueLength(),
+                borrows,
+                borrows == 0 ? 0 : (totalWaitNanos.get() / borrows) / 1000000D,
+                maxWaitNanos.get() / 1000000D,
+                timeoutCount.get(),
+                createdCount.get(),
+                evictedCount.get()
+        );
+    }
+
+    private Connection wrap(Connection physical){
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, new PooledConnectionHandler(physical));
+    }
+
+    /**
+     * Forwards all calls to the physical connection, except for {@link Connection#close()} which returns the connection
+     * to the pool instead.
+     */
+    private class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private boolean returned = false;
+
+        private PooledConnectionHandler(Connection physical){
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()){
+                case "close" -> {
+                    if (!returned){
+                        returned = true;
+                        release(physical);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled" + physical;
+                }
+            }
+            if (returned) throw new SQLException("Connection was already returned to the pool");
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e){
+                throw e.getCause();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private record IdleConnection(Connection connection, long idleSince){}
+
+    /**
+     * @param active the amount of connections currently borrowed
+     * @param idle the amount of open connections waiting to be borrowed
+     * @param maxSize the maximum amount of connections the pool may have open
+     * @param waiting the (estimated) amount of threads currently waiting for a connection
+     * @param borrows the total amount of times a connection was borrowed
+     * @param averageWait the average time (in milliseconds) spent waiting for a connection
+     * @param maxWait the longest time (in milliseconds) spent waiting for a connection
+     * @param timeouts the amount of times a borrower gave up waiting for a connection
+     * @param created the total amount of physical connections opened
+     * @param evicted the total amount of physical connections closed
+     */
+    public record Statistics(int active, int idle, int maxSize, int waiting, long borrows, double averageWait,
+                             double maxWait, long timeouts, long created, long evicted){}
+}
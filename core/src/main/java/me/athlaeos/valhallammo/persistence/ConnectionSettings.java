@@ -0,0 +1,48 @@
+package me.athlaeos.valhallammo.persistence;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+/**
+ * An immutable snapshot of the database connection and pool settings from config.yml. This snapshot is captured once when
+ * the database is set up, so borrowing a connection never has to go back to the config file.
+ * @param host the database host
+ * @param port the database port
+ * @param database the name of the database
+ * @param username the username to connect with
+ * @param password the password to connect with
+ * @param maxPoolSize the maximum amount of connections open at any time
+ * @param maxWait the maximum time (in milliseconds) to wait for a connection to free up before giving up
+ * @param idleTimeout the time (in milliseconds) after which an unused connection is closed
+ * @param validationTimeout the time (in seconds) a connection may take to confirm it's still valid when borrowed
+ * @param maintenanceDelay the delay (in game ticks) between each pass evicting idle connections
+ */
+public record ConnectionSettings(String host, int port, String database, String username, String password,
+                                 int maxPoolSize, long maxWait, long idleTimeout, int validationTimeout, int maintenanceDelay) {
+
+    public static ConnectionSettings fromConfig(YamlConfiguration config){
+        return new ConnectionSettings(
+                config.getString("db_host"),
+                config.getInt("db_port"),
+                config.getString("db_database"),
+                config.getString("db_username"),
+                config.getString("db_password"),
+                Math.max(1, config.getInt("db_pool_size", 10)),
+                Math.max(0, config.getLong("db_pool_max_wait", 5000L)),
+                Math.max(0, config.getLong("db_pool_idle_timeout", 600000L)),
+                Math.max(1, config.getInt("db_pool_validation_timeout", 3)),
+                Math.max(20, config.getInt("db_ping_delay", 24000))
+        );
+    }
+
+    public String jdbcUrl(){
+        return "jdbc:mysql://" + host + ":" + port + "/" + database;
+    }
+
+    /**
+     * @param maxPoolSize the new maximum pool size
+     * @return a copy of these settings with a different maximum pool size
+     */
+    public ConnectionSettings withMaxPoolSize(int maxPoolSize){
+        return new ConnectionSettings(host, port, database, username, password, maxPoolSize, maxWait, idleTimeout, validationTimeout, maintenanceDelay);
+    }
+}
@@ -1,9 +1,64 @@
 package me.athlaeos.valhallammo.persistence;
 
+import me.athlaeos.valhallammo.ValhallaMMO;
+
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
 
 public interface Database {
-    Connection getConnection();
+    /**
+     * Borrows a connection from this database's connection pool. The connection should be closed after usage, which
+     * returns it to the pool rather than closing it.
+     * @return a pooled connection
+     * @throws SQLException if no connection could be borrowed in time
+     */
+    Connection getConnection() throws SQLException;
+
+    /**
+     * @return the connection pool backing this database, or null if no connection to the database could be made
+     */
+    ConnectionPool getPool();
+
+    /**
+     * Runs a task writing to the database. By default the task simply runs on a connection borrowed on the calling
+     * thread, but implementations may funnel all writes through a single writer instead, in which case the calling
+     * thread waits for the write to be done.
+     * @param task the task to run with a writable connection
+     * @return the result of the task
+     * @throws SQLException if the task failed, or no writable connection could be obtained
+     */
+    default <T> T write(ConnectionTask<T> task) throws SQLException {
+        try (Connection connection = getConnection()) {
+            return task.run(connection);
+        }
+    }
+
+    /**
+     * Closes all connections to the database, after which it can no longer be used
+     */
+    default void close(){
+        if (getPool() != null) getPool().close();
+    }
+
+    /**
+     * Adds a column to a table if it doesn't have it yet. To add many columns, {@link SchemaReconciler} should be used
+     * directly so they're all added in one pass.
+     * @param tableName the table to add the column to
+     * @param columnName the name of the column
+     * @param columnType the type and default value of the column
+     */
+    default void addColumnIfNotExists(String tableName, String columnName, String columnType){
+        try {
+            SchemaReconciler.addMissingColumns(this, tableName, Map.of(columnName, columnType));
+        } catch (SQLException e){
+            ValhallaMMO.logSevere("SQLException when trying to add column " + columnName + " " + columnType + " to " + tableName + ". ");
+            e.printStackTrace();
+        }
+    }
 
-    void addColumnIfNotExists(String tableName, String columnName, String columnType);
+    @FunctionalInterface
+    interface ConnectionTask<T> {
+        T run(Connection connection) throws SQLException;
+    }
 }
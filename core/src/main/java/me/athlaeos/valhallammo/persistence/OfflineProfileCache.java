@@ -0,0 +1,61 @@
+package me.athlaeos.valhallammo.persistence;
+
+import me.athlaeos.valhallammo.playerstats.profiles.Profile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps snapshots of the profiles of offline players, so looking up the same player repeatedly (like staff checking
+ * someone's stats) doesn't query the database every time.<br>
+ * Only a limited amount of players is kept, evicting the least recently used first, and snapshots expire after a while
+ * so changes made to a player's profiles elsewhere are eventually seen. Snapshots are read-only, changes made to them
+ * are never saved.
+ */
+public class OfflineProfileCache {
+    private final long duration;
+    private final Map<UUID, Snapshot> snapshots;
+
+    /**
+     * @param maxSize the maximum amount of players to keep the profiles of
+     * @param duration the time (in milliseconds) a snapshot is kept for before it's fetched again
+     */
+    public OfflineProfileCache(int maxSize, long duration){
+        this.duration = duration;
+        this.snapshots = new LinkedHashMap<>(16, 0.75F, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Snapshot> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param owner the player to get the profiles of
+     * @return the cached profiles of the player, or null if none are cached or they expired
+     */
+    public synchronized Map<Class<? extends Profile>, Profile> get(UUID owner){
+        Snapshot snapshot = snapshots.get(owner);
+        if (snapshot == null) return null;
+        if (snapshot.expiresAt() < System.currentTimeMillis()){
+            snapshots.remove(owner);
+            return null;
+        }
+        return snapshot.profiles();
+    }
+
+    public synchronized void put(UUID owner, Map<Class<? extends Profile>, Profile> profiles){
+        snapshots.put(owner, new Snapshot(profiles, System.currentTimeMillis() + duration));
+    }
+
+    /**
+     * Removes the snapshot of a player, for when their profiles are loaded and so the snapshot is about to become outdated
+     * @param owner the player to remove the snapshot of
+     */
+    public synchronized void evict(UUID owner){
+        snapshots.remove(owner);
+    }
+
+    private record Snapshot(Map<Class<? extends Profile>, Profile> profiles, long expiresAt){}
+}
@@ -0,0 +1,82 @@
+package me.athlaeos.valhallammo.persistence;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Remembers the names belonging to player UUIDs, so showing offline players (like on leaderboards) doesn't look up each
+ * of them through the server's player profile cache every time. Only a limited amount of players is kept, evicting the
+ * least recently used first. Names are remembered when players join, so a name change is picked up on their next login.
+ */
+public class PlayerNameCache {
+    private final Map<UUID, String> names;
+    private final Map<String, UUID> ids;
+
+    /**
+     * @param maxSize the maximum amount of players to remember the name of
+     */
+    public PlayerNameCache(int maxSize){
+        this.names = new LinkedHashMap<>(16, 0.75F, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.ids = new LinkedHashMap<>(16, 0.75F, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UUID> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized void remember(UUID id, String name){
+        String previous = names.put(id, name);
+        if (previous != null && !previous.equalsIgnoreCase(name)) ids.remove(previous.toLowerCase(Locale.US));
+        ids.put(name.toLowerCase(Locale.US), id);
+    }
+
+    /**
+     * @param id the UUID of the player
+     * @return the name of the player, or null if the server doesn't know their name
+     */
+    public String getName(UUID id){
+        synchronized (this){
+            String name = names.get(id);
+            if (name != null) return name;
+        }
+        Player online = Bukkit.getPlayer(id);
+        String name = online != null ? online.getName() : Bukkit.getOfflinePlayer(id).getName();
+        if (name != null) remember(id, name);
+        return name;
+    }
+
+    /**
+     * Looks up the UUID of a player by name. If the player isn't known yet, the server may have to look them up online,
+     * so this should not be called on the main thread.
+     * @param name the name of the player, case-insensitive
+     * @return the UUID of the player, or null if no player of that name has ever played on this server
+     */
+    @SuppressWarnings("deprecation")
+    public UUID getUniqueId(String name){
+        synchronized (this){
+            UUID id = ids.get(name.toLowerCase(Locale.US));
+            if (id != null) return id;
+        }
+        Player online = Bukkit.getPlayerExact(name);
+        if (online != null) {
+            remember(online.getUniqueId(), online.getName());
+            return online.getUniqueId();
+        }
+        OfflinePlayer player = Bukkit.getOfflinePlayer(name);
+        if (!player.hasPlayedBefore()) return null;
+        remember(player.getUniqueId(), player.getName() == null ? name : player.getName());
+        return player.getUniqueId();
+    }
+}
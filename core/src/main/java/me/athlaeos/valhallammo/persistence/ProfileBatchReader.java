@@ -0,0 +1,133 @@
+package me.athlaeos.valhallammo.persistence;
+
+import me.athlaeos.valhallammo.ValhallaMMO;
+import me.athlaeos.valhallammo.playerstats.profiles.Profile;
+import me.athlaeos.valhallammo.playerstats.profiles.ProfileSchema;
+import org.bukkit.entity.Player;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fetches all of a player's profiles from a {@link Database} in a single query, instead of one query per profile type.<br>
+ * Every profile table is left-joined onto the player's UUID, and each table's columns are read by position in the order
+ * of its {@link ProfileSchema}, so profiles sharing stat names (like level and exp) can't be mixed up. The members of
+ * all string set stats are fetched in a second query, combining the string set tables of all profile types.
+ */
+public class ProfileBatchReader {
+    private static final Map<List<Class<? extends Profile>>, String> joinQueries = new ConcurrentHashMap<>();
+    private static final Map<List<Class<? extends Profile>>, String> stringSetQueries = new ConcurrentHashMap<>();
+
+    /**
+     * Fetches the player's profiles of all the given types. If the combined query fails, for example because the database
+     * doesn't allow this many columns in one result, each profile type is fetched separately instead.
+     * @param database the database to fetch from
+     * @param p the player to fetch the profiles of
+     * @param types the profile types to fetch
+     * @return the fetched profiles. Types the player has no stored profile for are mapped to null, types that could not
+     * be fetched at all are absent
+     */
+    public static Map<Class<? extends Profile>, Profile> fetchProfiles(Database database, Player p, Collection<Profile> types){
+        return fetchProfiles(database, p.getUniqueId(), p.getName(), types);
+    }
+
+    /**
+     * Fetches the profiles of all the given types of an owner that may not be online.
+     * @see #fetchProfiles(Database, Player, Collection)
+     */
+    public static Map<Class<? extends Profile>, Profile> fetchProfiles(Database database, UUID owner, Collection<Profile> types){
+        return fetchProfiles(database, owner, owner.toString(), types);
+    }
+
+    private static Map<Class<? extends Profile>, Profile> fetchProfiles(Database database, UUID owner, String name, Collection<Profile> types){
+        List<Profile> typeList = new ArrayList<>(types);
+        try {
+            return fetchJoined(database, owner, typeList);
+        } catch (SQLException e){
+            ValhallaMMO.logWarning("Could not fetch " + name + "'s profiles in one query (" + e.getMessage() + "), fetching them separately instead");
+        }
+
+        Map<Class<? extends Profile>, Profile> profiles = new HashMap<>();
+        for (Profile type : typeList){
+            try {
+                profiles.put(type.getClass(), type.fetchProfile(owner, database));
+            } catch (SQLException e){
+                ValhallaMMO.logSevere("SQLException when trying to fetch " + name + "'s profile of type " + type.getClass().getSimpleName() + ". ");
+                e.printStackTrace();
+            }
+        }
+        return profiles;
+    }
+
+    private static Map<Class<? extends Profile>, Profile> fetchJoined(Database database, UUID owner, List<Profile> types) throws SQLException {
+        Map<Class<? extends Profile>, Profile> profiles = new HashMap<>();
+        if (types.isEmpty()) return profiles;
+        try (Connection connection = database.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(joinQuery(types))) {
+            stmt.setString(1, owner.toString());
+            ResultSet result = stmt.executeQuery();
+            if (!result.next()) return profiles;
+            int column = 1;
+            for (Profile type : types){
+                // each table's owner column is followed by its stat columns, and is only null if the left join found no row
+                if (result.getString(column) == null) profiles.put(type.getClass(), null);
+                else profiles.put(type.getClass(), type.readProfile(owner, result, column + 1));
+                column += 1 + type.getSchema().getRowStats().length;
+            }
+            result.close();
+            fetchStringSets(connection, owner, types, profiles);
+        }
+        return profiles;
+    }
+
+    private static void fetchStringSets(Connection connection, UUID owner, List<Profile> types, Map<Class<? extends Profile>, Profile> profiles) throws SQLException {
+        List<Profile> withStringSets = types.stream().filter(t -> t.getSchema().hasStringSets()).toList();
+        if (withStringSets.isEmpty()) return;
+        List<Map<String, Collection<String>>> members = new ArrayList<>();
+        for (int i = 0; i < withStringSets.size(); i++) members.add(new HashMap<>());
+        try (PreparedStatement stmt = connection.prepareStatement(stringSetQuery(withStringSets))) {
+            for (int i = 1; i <= withStringSets.size(); i++) stmt.setString(i, owner.toString());
+            ResultSet result = stmt.executeQuery();
+            while (result.next()){
+                members.get(result.getInt(1)).computeIfAbsent(result.getString(2), k -> new ArrayList<>()).add(result.getString(3));
+            }
+        }
+        for (int i = 0; i < withStringSets.size(); i++){
+            Profile profile = profiles.get(withStringSets.get(i).getClass());
+            if (profile != null) members.get(i).forEach(profile::loadStringSet);
+        }
+    }
+
+    private static String stringSetQuery(List<Profile> types){
+        List<Class<? extends Profile>> key = types.stream().<Class<? extends Profile>>map(Profile::getClass).toList();
+        return stringSetQueries.computeIfAbsent(key, k -> {
+            StringJoiner query = new StringJoiner(" UNION ALL ", "", ";");
+            for (int i = 0; i < types.size(); i++){
+                query.add("SELECT " + i + " AS type, stat, value FROM " + types.get(i).getSchema().getStringSetTableName() + " WHERE owner = ?");
+            }
+            return query.toString();
+        });
+    }
+
+    private static String joinQuery(List<Profile> types){
+        List<Class<? extends Profile>> key = types.stream().<Class<? extends Profile>>map(Profile::getClass).toList();
+        return joinQueries.computeIfAbsent(key, k -> {
+            StringBuilder columns = new StringBuilder();
+            StringBuilder joins = new StringBuilder();
+            for (int i = 0; i < types.size(); i++){
+                ProfileSchema schema = types.get(i).getSchema();
+                String alias = "t" + i;
+                if (i > 0) columns.append(", ");
+                columns.append(alias).append(".owner");
+                for (int c : schema.getRowStats()) columns.append(", ").append(alias).append(".").append(schema.getColumn(c));
+                joins.append(" LEFT JOIN ").append(schema.getTableName()).append(" ").append(alias)
+                        .append(" ON ").append(alias).append(".owner = player.owner");
+            }
+            return "SELECT " + columns + " FROM (SELECT ? AS owner) player" + joins + ";";
+        });
+    }
+}
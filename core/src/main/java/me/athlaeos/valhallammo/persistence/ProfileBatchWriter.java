@@ -0,0 +1,217 @@
+package me.athlaeos.valhallammo.persistence;
+
+import me.athlaeos.valhallammo.ValhallaMMO;
+import me.athlaeos.valhallammo.playerstats.profiles.CompactStringSet;
+import me.athlaeos.valhallammo.playerstats.profiles.Profile;
+import me.athlaeos.valhallammo.playerstats.profiles.ProfileSchema;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.*;
+
+/**
+ * Writes the changes of many profiles to a {@link Database} at once. All profiles of the same type are grouped into a
+ * batch. Existing rows are updated with one prepared statement per combination of changed columns, so each row only has
+ * the columns written that actually changed on it, and rows of profiles not yet in the database are inserted with one
+ * more. Of the string set stats, only the members added or removed since the last save are written.<br>
+ * All batches are written in a single transaction, so the whole save only commits once. Each batch is guarded by its own
+ * savepoint, so a failing batch is rolled back and retried on its own without undoing the others.
+ */
+public class ProfileBatchWriter {
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Writes the changes of the given profiles to the database. Profiles without changes are skipped. Profiles that
+     * could not be written keep their changes marked, so they're attempted again the next save.
+     * @param database the database to write to
+     * @param profiles the profiles to save
+     * @return true if all changes were written, false if any profile failed to save
+     */
+    public static boolean saveProfiles(Database database, Collection<Profile> profiles){
+        Map<Class<? extends Profile>, List<Profile>> batches = new LinkedHashMap<>();
+        Map<Profile, BitSet> changes = new HashMap<>();
+        for (Profile profile : profiles){
+            if (profile == null || profile.getOwner() == null || !profile.isDirty()) continue;
+            batches.computeIfAbsent(profile.getClass(), k -> new ArrayList<>()).add(profile);
+            changes.put(profile, profile.takeDirtyStats());
+        }
+        if (batches.isEmpty()) return true;
+
+        Collection<Profile> written = new HashSet<>();
+        Collection<Profile> inserted = new HashSet<>();
+        Map<CompactStringSet, String[]> writtenStringSets = new HashMap<>();
+        try {
+            database.write(connection -> {
+                connection.setAutoCommit(false);
+                try {
+                    for (List<Profile> batch : batches.values()){
+                        if (writeBatch(connection, batch, changes, inserted, writtenStringSets)) written.addAll(batch);
+                    }
+                    connection.commit();
+                } catch (SQLException e){
+                    connection.rollback();
+                    written.clear();
+                    writtenStringSets.clear();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+                return null;
+            });
+        } catch (SQLException e){
+            ValhallaMMO.logSevere("SQLException when trying to save " + changes.size() + " profiles, their changes will be saved again next time. ");
+            e.printStackTrace();
+        }
+
+        for (Profile profile : changes.keySet()){
+            if (!written.contains(profile)) profile.restoreDirtyStats(changes.get(profile));
+            else if (inserted.contains(profile)) profile.setPersisted(true);
+        }
+        writtenStringSets.forEach(CompactStringSet::setPersisted);
+        return written.size() == changes.size();
+    }
+
+    /**
+     * Writes a batch of profiles of the same type, retrying a few times if it fails.
+     * @return true if the batch was written, false if it was rolled back
+     * @throws SQLException if the savepoint of the batch could not be created or rolled back to
+     */
+    private static boolean writeBatch(Connection connection, List<Profile> batch, Map<Profile, BitSet> changes, Collection<Profile> inserted,
+                                      Map<CompactStringSet, String[]> writtenStringSets) throws SQLException {
+        String type = batch.get(0).getClass().getSimpleName();
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++){
+            Savepoint savepoint = connection.setSavepoint();
+            Collection<Profile> batchInserts = new HashSet<>();
+            Map<CompactStringSet, String[]> batchStringSets = new HashMap<>();
+            try {
+                executeBatch(connection, batch, changes, batchInserts);
+                writeStringSets(connection, batch, changes, batchStringSets);
+                connection.releaseSavepoint(savepoint);
+                inserted.addAll(batchInserts);
+                writtenStringSets.putAll(batchStringSets);
+                return true;
+            } catch (SQLException e){
+                connection.rollback(savepoint);
+                if (attempt < MAX_ATTEMPTS) {
+                    ValhallaMMO.logWarning("Saving " + batch.size() + " profiles of type " + type + " failed (" + e.getMessage() + "), retrying");
+                } else {
+                    ValhallaMMO.logSevere("SQLException when trying to save " + batch.size() + " profiles of type " + type + ", giving up until next save. ");
+                    e.printStackTrace();
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void executeBatch(Connection connection, List<Profile> batch, Map<Profile, BitSet> changes, Collection<Profile> inserted) throws SQLException {
+        Profile schema = batch.get(0);
+        List<Profile> inserts = new ArrayList<>();
+        // profiles already in the database are grouped by the columns they changed, each group sharing one update statement
+        Map<BitSet, List<Profile>> updates = new HashMap<>();
+        for (Profile profile : batch){
+            if (profile.isPersisted()) {
+                BitSet updatedStats = (BitSet) changes.get(profile).clone();
+                updatedStats.andNot(schema.getSchema().getStringSetStats()); // those have no column, they're written separately
+                if (!updatedStats.isEmpty()) updates.computeIfAbsent(updatedStats, k -> new ArrayList<>()).add(profile);
+            } else inserts.add(profile);
+        }
+
+        for (Map.Entry<BitSet, List<Profile>> group : updates.entrySet()){
+            BitSet updatedStats = group.getKey();
+            List<Profile> profiles = group.getValue();
+            try (PreparedStatement stmt = connection.prepareStatement(schema.updateQuery(updatedStats))) {
+                for (Profile profile : profiles){
+                    profile.bindUpdate(stmt, updatedStats);
+                    stmt.addBatch();
+                }
+                int[] results = stmt.executeBatch();
+                for (int i = 0; i < results.length; i++){
+                    if (results[i] == 0) inserts.add(profiles.get(i)); // the row of this profile went missing, so it's written whole instead
+                }
+            }
+        }
+
+        if (!inserts.isEmpty()){
+            try (PreparedStatement stmt = connection.prepareStatement(schema.replaceQuery())) {
+                for (Profile profile : inserts){
+                    profile.bindReplace(stmt);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            inserted.addAll(inserts);
+        }
+    }
+
+    /**
+     * Writes the members added to and removed from the changed string sets of the batch. String sets of which it's
+     * unknown what's stored are cleared and written whole.
+     * @param written the string sets that were written, mapped to the members they were written with
+     */
+    private static void writeStringSets(Connection connection, List<Profile> batch, Map<Profile, BitSet> changes, Map<CompactStringSet, String[]> written) throws SQLException {
+        ProfileSchema schema = batch.get(0).getSchema();
+        if (!schema.hasStringSets()) return;
+        try (PreparedStatement clear = connection.prepareStatement(schema.getStringSetClearQuery());
+             PreparedStatement delete = connection.prepareStatement(schema.getStringSetDeleteQuery());
+             PreparedStatement insert = connection.prepareStatement(schema.getStringSetInsertQuery())) {
+            int clears = 0;
+            int deletes = 0;
+            int insertions = 0;
+            for (Profile profile : batch){
+                BitSet changed = (BitSet) changes.get(profile).clone();
+                changed.and(schema.getStringSetStats());
+                String owner = profile.getOwner().toString();
+                for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)){
+                    String stat = schema.getStat(i);
+                    CompactStringSet set = profile.getCompactStringSet(stat);
+                    String[] members = set.members();
+                    String[] persisted = set.getPersisted();
+                    if (persisted == null){
+                        clear.setString(1, owner);
+                        clear.setString(2, stat);
+                        clear.addBatch();
+                        clears++;
+                        persisted = new String[0];
+                    }
+                    // both arrays are sorted, so the added and removed members are found in a single pass
+                    int m = 0;
+                    int p = 0;
+                    while (m < members.length || p < persisted.length){
+                        int comparison = m == members.length ? 1 : p == persisted.length ? -1 : members[m].compareTo(persisted[p]);
+                        if (comparison < 0) {
+                            bindInsert(insert, owner, stat, members[m++]);
+                            insertions++;
+                        } else if (comparison > 0) {
+                            bindMember(delete, owner, stat, persisted[p++]);
+                            deletes++;
+                        } else {
+                            m++;
+                            p++;
+                        }
+                    }
+                    written.put(set, members);
+                }
+            }
+            if (clears > 0) clear.executeBatch();
+            if (deletes > 0) delete.executeBatch();
+            if (insertions > 0) insert.executeBatch();
+        }
+    }
+
+    private static void bindInsert(PreparedStatement stmt, String owner, String stat, String value) throws SQLException {
+        stmt.setString(1, owner);
+        stmt.setString(2, stat);
+        stmt.setString(3, ProfileSchema.hashStringSetMember(value));
+        stmt.setString(4, value);
+        stmt.addBatch();
+    }
+
+    private static void bindMember(PreparedStatement stmt, String owner, String stat, String value) throws SQLException {
+        stmt.setString(1, owner);
+        stmt.setString(2, stat);
+        stmt.setString(3, ProfileSchema.hashStringSetMember(value));
+        stmt.addBatch();
+    }
+}
@@ -0,0 +1,195 @@
+package me.athlaeos.valhallammo.persistence;
+
+import me.athlaeos.valhallammo.playerstats.profiles.Profile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Encodes the stats of a profile into a compact, versioned binary format, used to store profiles in a player's
+ * persistent data container.<br>
+ * The encoding starts with a version byte, followed by a schema header listing the name and type of each stored stat in
+ * the order their values follow. Only stats that differ from their default value are stored at all, and stats missing
+ * from the header are given their default value when decoding, so stats added to or removed from a profile type later on
+ * don't break existing data.<br>
+ * Ints are stored as zigzag varints, floats and doubles in their raw 4 and 8 bytes, booleans as a single byte, and string
+ * sets as a varint size followed by each string as varint length-prefixed UTF-8.
+ */
+public class ProfileCodec {
+    public static final byte VERSION = 1;
+
+    private static final byte INT = 0;
+    private static final byte FLOAT = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte STRING_SET = 3;
+    private static final byte BOOLEAN = 4;
+
+    /**
+     * @param profile the profile to encode
+     * @return the encoded stats of the profile
+     */
+    public static byte[] encode(Profile profile){
+        List<String> stats = new ArrayList<>();
+        List<Byte> types = new ArrayList<>();
+        for (String stat : profile.getAllStatNames()){
+            byte type = typeOf(profile, stat);
+            if (type < 0 || isDefault(profile, stat, type)) continue;
+            stats.add(stat);
+            types.add(type);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(VERSION);
+        writeVarInt(out, stats.size());
+        for (int i = 0; i < stats.size(); i++){
+            writeString(out, stats.get(i));
+            out.write(types.get(i));
+        }
+        for (int i = 0; i < stats.size(); i++){
+            String stat = stats.get(i);
+            switch (types.get(i)){
+                case INT -> writeVarInt(out, zigzag(profile.getInt(stat)));
+                case FLOAT -> writeInt(out, Float.floatToIntBits(profile.getFloat(stat)));
+                case DOUBLE -> {
+                    long bits = Double.doubleToLongBits(profile.getDouble(stat));
+                    writeInt(out, (int) (bits >>> 32));
+                    writeInt(out, (int) bits);
+                }
+                case STRING_SET -> {
+                    Collection<String> values = profile.getStringSet(stat);
+                    writeVarInt(out, values.size());
+                    for (String value : values) writeString(out, value);
+                }
+                case BOOLEAN -> out.write(profile.getBoolean(stat) ? 1 : 0);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes the given data into the given profile. Stored stats the profile doesn't have (anymore) are skipped.
+     * @param data the encoded stats
+     * @param profile the profile to set the decoded stats to
+     * @throws IOException if the data is of an unknown version or is malformed
+     */
+    public static void decode(byte[] data, Profile profile) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            byte version = in.get();
+            if (version != VERSION) throw new IOException("Unsupported profile encoding version " + version);
+            int count = readVarInt(in);
+            String[] stats = new String[count];
+            byte[] types = new byte[count];
+            for (int i = 0; i < count; i++){
+                stats[i] = readString(in);
+                types[i] = in.get();
+            }
+            for (int i = 0; i < count; i++){
+                String stat = stats[i];
+                // values of stats whose type changed are still read, so the values following them stay aligned
+                boolean matches = typeOf(profile, stat) == types[i];
+                switch (types[i]){
+                    case INT -> {
+                        int value = unzigzag(readVarInt(in));
+                        if (matches) profile.setInt(stat, value);
+                    }
+                    case FLOAT -> {
+                        float value = Float.intBitsToFloat(in.getInt());
+                        if (matches) profile.setFloat(stat, value);
+                    }
+                    case DOUBLE -> {
+                        double value = in.getDouble();
+                        if (matches) profile.setDouble(stat, value);
+                    }
+                    case STRING_SET -> {
+                        int size = readVarInt(in);
+                        Collection<String> values = new HashSet<>();
+                        for (int v = 0; v < size; v++) values.add(readString(in));
+                        if (matches) profile.setStringSet(stat, values);
+                    }
+                    case BOOLEAN -> {
+                        boolean value = in.get() != 0;
+                        if (matches) profile.setBoolean(stat, value);
+                    }
+                    default -> throw new IOException("Unknown stat type " + types[i] + " for stat " + stat);
+                }
+            }
+        } catch (BufferUnderflowException e){
+            throw new IOException("Encoded profile ended unexpectedly", e);
+        }
+    }
+
+    private static byte typeOf(Profile profile, String stat){
+        if (profile.intStatNames().contains(stat)) return INT;
+        if (profile.floatStatNames().contains(stat)) return FLOAT;
+        if (profile.doubleStatNames().contains(stat)) return DOUBLE;
+        if (profile.stringSetStatNames().contains(stat)) return STRING_SET;
+        if (profile.booleanStatNames().contains(stat)) return BOOLEAN;
+        return -1;
+    }
+
+    private static boolean isDefault(Profile profile, String stat, byte type){
+        return switch (type){
+            case INT -> profile.getInt(stat) == profile.getDefaultInt(stat);
+            case FLOAT -> Float.compare(profile.getFloat(stat), profile.getDefaultFloat(stat)) == 0;
+            case DOUBLE -> Double.compare(profile.getDouble(stat), profile.getDefaultDouble(stat)) == 0;
+            case STRING_SET -> profile.getStringSet(stat).isEmpty();
+            case BOOLEAN -> profile.getBoolean(stat) == profile.getDefaultBoolean(stat);
+            default -> false;
+        };
+    }
+
+    private static int zigzag(int value){
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value){
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value){
+        while ((value & ~0x7F) != 0){
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7){
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value){
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value){
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0 || length > in.remaining()) throw new IOException("Malformed string length " + length);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
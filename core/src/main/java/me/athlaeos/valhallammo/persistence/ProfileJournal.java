@@ -0,0 +1,326 @@
+package me.athlaeos.valhallammo.persistence;
+
+import me.athlaeos.valhallammo.ValhallaMMO;
+import me.athlaeos.valhallammo.playerstats.profiles.Profile;
+import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the stat changes made to persistent profiles, so changes made after the last save are not
+ * lost if the server crashes or is killed before the next save.<br>
+ * Every change is encoded as a length-prefixed and checksummed record (owner, profile table, stat, new value) into an
+ * in-memory buffer, which is regularly appended to the journal file and forced to disk off the main thread with
+ * {@link #flush()}, so many changes share a single disk sync.<br>
+ * The journal is split into numbered segments. Before all profiles are saved the active segment is sealed with
+ * {@link #rotate()}, and once the save succeeded the sealed segments are deleted with {@link #discard(long)}, since their
+ * changes are then in the database. Segments still present on startup are left over from an unclean shutdown and are
+ * written into the database by {@link #replay(Database)}. Those are never kept around to be replayed again later, as
+ * newer saves of the same players would then be overwritten by their older changes. Segments that couldn't be fully
+ * recovered are moved aside instead (suffixed with .failed), to be looked into by hand.
+ */
+public class ProfileJournal {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String FAILED_SUFFIX = ".failed";
+    private static final int HEADER_SIZE = 8; // record length and checksum, both ints
+    private static final byte INT = 0;
+    private static final byte FLOAT = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte STRING_SET = 3;
+    private static final byte BOOLEAN = 4;
+
+    private final File directory;
+    private final List<Long> leftoverSegments;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private final CRC32 checksum = new CRC32();
+    private final Object fileLock = new Object();
+    private FileChannel channel;
+    private long segment;
+    private boolean closed = false;
+
+    /**
+     * Opens the journal in the given directory, starting a new segment after any segments left over from a previous run.
+     * @param directory the directory to keep the journal segments in
+     * @throws IOException if the directory or new segment could not be created
+     */
+    public ProfileJournal(File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.exists() && !directory.mkdirs()) throw new IOException("Could not create journal directory " + directory.getPath());
+        this.leftoverSegments = segments();
+        this.segment = leftoverSegments.isEmpty() ? 0 : leftoverSegments.get(leftoverSegments.size() - 1) + 1;
+        this.channel = open(segment);
+    }
+
+    /**
+     * Records the current value of the given stat of a persistent profile. The record is only buffered, it is written
+     * to disk on the next {@link #flush()}
+     * @param profile the profile the stat was changed on
+     * @param stat the changed stat
+     */
+    public void record(Profile profile, String stat){
+        if (profile.getOwner() == null) return;
+        synchronized (buffer){
+            if (closed) return;
+            try {
+                recordBytes.reset();
+                record.writeLong(profile.getOwner().getMostSignificantBits());
+                record.writeLong(profile.getOwner().getLeastSignificantBits());
+                record.writeUTF(profile.getTableName());
+                record.writeUTF(stat);
+                if (profile.intStatNames().contains(stat)) {
+                    record.writeByte(INT);
+                    record.writeInt(profile.getInt(stat));
+                } else if (profile.floatStatNames().contains(stat)) {
+                    record.writeByte(FLOAT);
+                    record.writeFloat(profile.getFloat(stat));
+                } else if (profile.doubleStatNames().contains(stat)) {
+                    record.writeByte(DOUBLE);
+                    record.writeDouble(profile.getDouble(stat));
+                } else if (profile.stringSetStatNames().contains(stat)) {
+                    Collection<String> values = profile.getStringSet(stat);
+                    record.writeByte(STRING_SET);
+                    record.writeInt(values.size());
+                    for (String value : values) record.writeUTF(value);
+                } else if (profile.booleanStatNames().contains(stat)) {
+                    record.writeByte(BOOLEAN);
+                    record.writeBoolean(profile.getBoolean(stat));
+                } else return;
+                record.flush();
+
+                checksum.reset();
+                checksum.update(recordBytes.toByteArray());
+                DataOutputStream out = new DataOutputStream(buffer);
+                out.writeInt(recordBytes.size());
+                out.writeInt((int) checksum.getValue());
+                recordBytes.writeTo(buffer);
+            } catch (IOException e){
+                // writing to memory can't really fail, but a stat value could be too long to encode
+                ValhallaMMO.logWarning("Could not journal stat " + stat + " of " + profile.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Appends all buffered records to the active segment and forces them to disk. Should not be called on the main thread.
+     */
+    public void flush(){
+        synchronized (fileLock){
+            byte[] pending;
+            synchronized (buffer){
+                if (buffer.size() == 0) return;
+                pending = buffer.toByteArray();
+                buffer.reset();
+            }
+            if (channel == null) return;
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(pending);
+                while (bytes.hasRemaining()) channel.write(bytes);
+                channel.force(false);
+            } catch (IOException e){
+                ValhallaMMO.logSevere("Could not write " + pending.length + " bytes to the profile journal, these changes won't survive a crash until they're saved. ");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Flushes and seals the active segment and starts a new one. Should be called right before all profiles are saved,
+     * so that all changes in the sealed segments are included in that save.
+     * @return the number of the sealed segment, to pass to {@link #discard(long)} once the save succeeded
+     */
+    public long rotate(){
+        synchronized (fileLock){
+            flush();
+            long sealed = segment;
+            try {
+                if (channel != null) channel.close();
+                segment++;
+                channel = open(segment);
+            } catch (IOException e){
+                ValhallaMMO.logSevere("Could not start a new profile journal segment, changes won't be journaled until the next save. ");
+                e.printStackTrace();
+                channel = null;
+            }
+            return sealed;
+        }
+    }
+
+    /**
+     * Deletes all sealed segments up to and including the given one. Should only be called once all changes recorded in
+     * them were saved.
+     * @param upTo the last segment to delete
+     */
+    public void discard(long upTo){
+        synchronized (fileLock){
+            for (long s : segments()){
+                if (s > upTo || s == segment) continue;
+                if (!segmentFile(s).delete()) ValhallaMMO.logWarning("Could not delete profile journal segment " + segmentFile(s).getName());
+            }
+        }
+    }
+
+    /**
+     * Writes the changes of segments left over from an unclean shutdown into the database. A segment is deleted if the
+     * changes of every player in it were written, otherwise it's moved aside so it's not replayed over newer saves later.
+     * Should be done once on startup, after the profile tables were created and before any players join.
+     * @param database the database to write the changes to
+     */
+    public void replay(Database database){
+        if (leftoverSegments.isEmpty()) return;
+        Map<String, Profile> typesByTable = new HashMap<>();
+        for (Profile type : ProfileRegistry.getProfileTypes().profiles()) typesByTable.put(type.getTableName(), type);
+
+        Map<UUID, Map<String, Profile>> profiles = new LinkedHashMap<>();
+        Map<Long, Set<UUID>> ownersBySegment = new HashMap<>();
+        Set<Long> unreadableSegments = new HashSet<>();
+        Set<UUID> incompleteOwners = new HashSet<>(); // players of whom not all changes could be written
+        CRC32 recordChecksum = new CRC32();
+        int records = 0;
+        for (long s : leftoverSegments){
+            ByteBuffer contents;
+            try (FileChannel segmentChannel = FileChannel.open(segmentFile(s).toPath(), StandardOpenOption.READ)) {
+                contents = ByteBuffer.allocate((int) segmentChannel.size());
+                while (contents.hasRemaining()) if (segmentChannel.read(contents) < 0) break;
+                contents.flip();
+            } catch (IOException e){
+                ValhallaMMO.logSevere("Could not read profile journal segment " + segmentFile(s).getName() + ". ");
+                e.printStackTrace();
+                unreadableSegments.add(s);
+                continue;
+            }
+            Set<UUID> segmentOwners = ownersBySegment.computeIfAbsent(s, k -> new HashSet<>());
+
+            while (contents.remaining() >= HEADER_SIZE){
+                int length = contents.getInt();
+                int expectedChecksum = contents.getInt();
+                if (length < 0 || length > contents.remaining()) break; // the server stopped halfway through writing this record
+                byte[] payload = new byte[length];
+                contents.get(payload);
+                recordChecksum.reset();
+                recordChecksum.update(payload);
+                if ((int) recordChecksum.getValue() != expectedChecksum) break;
+
+                try {
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                    UUID owner = new UUID(in.readLong(), in.readLong());
+                    Profile type = typesByTable.get(in.readUTF());
+                    String stat = in.readUTF();
+                    if (type == null) continue; // profile type is no longer registered
+                    segmentOwners.add(owner);
+                    Map<String, Profile> ownerProfiles = profiles.get(owner);
+                    if (ownerProfiles == null) {
+                        ownerProfiles = fetchProfiles(database, owner);
+                        if (ownerProfiles.size() < typesByTable.size()) incompleteOwners.add(owner);
+                        profiles.put(owner, ownerProfiles);
+                    }
+                    Profile profile = ownerProfiles.get(type.getTableName());
+                    if (profile == null || !profile.getAllStatNames().contains(stat)) continue;
+                    apply(profile, stat, in);
+                    records++;
+                } catch (IOException | IllegalArgumentException e){
+                    ValhallaMMO.logWarning("Skipped unreadable profile journal record: " + e.getMessage());
+                }
+            }
+        }
+
+        Collection<Profile> changed = new ArrayList<>();
+        profiles.values().forEach(p -> changed.addAll(p.values()));
+        ProfileBatchWriter.saveProfiles(database, changed);
+        for (Map.Entry<UUID, Map<String, Profile>> entry : profiles.entrySet()){
+            // profiles that failed to save keep their changes marked
+            if (entry.getValue().values().stream().anyMatch(Profile::isDirty)) incompleteOwners.add(entry.getKey());
+        }
+        ValhallaMMO.logInfo("Recovered " + records + " unsaved stat changes of " + (profiles.size() - incompleteOwners.size()) + " players from the profile journal");
+
+        for (long s : leftoverSegments){
+            File file = segmentFile(s);
+            boolean recovered = !unreadableSegments.contains(s) && Collections.disjoint(ownersBySegment.getOrDefault(s, Set.of()), incompleteOwners);
+            if (recovered) {
+                if (!file.delete()) ValhallaMMO.logWarning("Could not delete profile journal segment " + file.getName());
+                continue;
+            }
+            File failed = new File(directory, file.getName() + FAILED_SUFFIX);
+            if (file.renameTo(failed)) ValhallaMMO.logSevere("Not all changes in profile journal segment " + file.getName() + " could be recovered, it was moved to " + failed.getName() + " and won't be replayed again");
+            else ValhallaMMO.logSevere("Not all changes in profile journal segment " + file.getName() + " could be recovered, and it could not be moved aside. Remove it before restarting, or its changes are replayed over newer saves");
+        }
+    }
+
+    private Map<String, Profile> fetchProfiles(Database database, UUID owner){
+        Map<String, Profile> profiles = new HashMap<>();
+        Collection<Profile> types = ProfileRegistry.getProfileTypes().profiles();
+        Map<Class<? extends Profile>, Profile> fetched = ProfileBatchReader.fetchProfiles(database, owner, types);
+        for (Profile type : types){
+            if (!fetched.containsKey(type.getClass())) continue; // could not be fetched, already logged
+            Profile profile = fetched.get(type.getClass());
+            profiles.put(type.getTableName(), profile == null ? type.getBlankProfile(owner) : profile);
+        }
+        return profiles;
+    }
+
+    private void apply(Profile profile, String stat, DataInputStream in) throws IOException {
+        switch (in.readByte()){
+            case INT -> profile.setInt(stat, in.readInt());
+            case FLOAT -> profile.setFloat(stat, in.readFloat());
+            case DOUBLE -> profile.setDouble(stat, in.readDouble());
+            case STRING_SET -> {
+                int size = in.readInt();
+                Collection<String> values = new HashSet<>();
+                for (int i = 0; i < size; i++) values.add(in.readUTF());
+                profile.setStringSet(stat, values);
+            }
+            case BOOLEAN -> profile.setBoolean(stat, in.readBoolean());
+            default -> throw new IOException("Unknown stat type");
+        }
+    }
+
+    /**
+     * Flushes any remaining records and closes the journal. The active segment is deleted if nothing was written to it.
+     */
+    public void close(){
+        synchronized (fileLock){
+            flush();
+            synchronized (buffer){
+                closed = true;
+            }
+            if (channel == null) return;
+            try {
+                boolean empty = channel.size() == 0;
+                channel.close();
+                channel = null;
+                if (empty && !segmentFile(segment).delete()) ValhallaMMO.logWarning("Could not delete empty profile journal segment " + segmentFile(segment).getName());
+            } catch (IOException e){
+                ValhallaMMO.logWarning("Could not close the profile journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        return FileChannel.open(segmentFile(segment).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private File segmentFile(long segment){
+        return new File(directory, SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+    }
+
+    private List<Long> segments(){
+        List<Long> segments = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) return segments;
+        for (File file : files){
+            String number = file.getName().substring(SEGMENT_PREFIX.length(), file.getName().length() - SEGMENT_SUFFIX.length());
+            try {
+                segments.add(Long.parseLong(number));
+            } catch (NumberFormatException ignored){}
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+}
@@ -1,5 +1,8 @@
 package me.athlaeos.valhallammo.persistence;
 
+import me.athlaeos.valhallammo.ValhallaMMO;
+import me.athlaeos.valhallammo.configuration.ConfigManager;
+import me.athlaeos.valhallammo.listeners.JoinLeaveListener;
 import me.athlaeos.valhallammo.skills.perkresourcecost.ResourceExpense;
 import me.athlaeos.valhallammo.skills.skills.Perk;
 import me.athlaeos.valhallammo.playerstats.profiles.Profile;
@@ -8,12 +11,22 @@ import me.athlaeos.valhallammo.playerstats.profiles.ResetType;
 import me.athlaeos.valhallammo.playerstats.profiles.implementations.PowerProfile;
 import me.athlaeos.valhallammo.skills.skills.Skill;
 import me.athlaeos.valhallammo.skills.skills.SkillRegistry;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public abstract class ProfilePersistence {
+    protected final ProfileStore store = new ProfileStore();
+    protected final ProfilePrefetcher prefetcher = new ProfilePrefetcher(ConfigManager.getConfig("config.yml").get().getLong("profile_prefetch_duration", 10000));
+    protected final OfflineProfileCache offlineProfiles = new OfflineProfileCache(
+            ConfigManager.getConfig("config.yml").get().getInt("offline_profile_cache_size", 128),
+            ConfigManager.getConfig("config.yml").get().getLong("offline_profile_cache_duration", 60000));
+    protected final PlayerNameCache playerNames = new PlayerNameCache(ConfigManager.getConfig("config.yml").get().getInt("player_name_cache_size", 2048));
+    private final Map<UUID, CompletableFuture<Map<Class<? extends Profile>, Profile>>> offlineReads = new ConcurrentHashMap<>();
 
     public abstract void setPersistentProfile(Player p, Profile profile, Class<? extends Profile> type);
     public abstract void setSkillProfile(Player p, Profile profile, Class<? extends Profile> type);
@@ -26,7 +39,7 @@ public abstract class ProfilePersistence {
         switch (resetType){
             case STATS_ONLY -> {
                 // Only resets persistent stat profile, keeping skill progress
-                for (Profile profileType : ProfileRegistry.getRegisteredProfiles().values()) {
+                for (Profile profileType : ProfileRegistry.getProfileTypes().profiles()) {
                     Profile persistentProfile = ProfileRegistry.getPersistentProfile(p, profileType.getClass());
                     double totalEXP = persistentProfile.getTotalEXP();
                     double EXP = persistentProfile.getEXP();
@@ -42,7 +55,7 @@ public abstract class ProfilePersistence {
             case SKILLS_ONLY -> {
                 // Only resets skill progress, keeping persistent stats
                 PowerProfile powerProfile = ProfileRegistry.getPersistentProfile(p, PowerProfile.class);
-                for (Profile profileType : ProfileRegistry.getRegisteredProfiles().values()) {
+                for (Profile profileType : ProfileRegistry.getProfileTypes().profiles()) {
                     // setting persistent properties to 0, removing perks from unlocked perks and permalocked perks
                     Profile profile = getPersistentProfile(p, profileType.getClass());
                     profile.setEXP(0);
@@ -62,7 +75,7 @@ public abstract class ProfilePersistence {
             }
             case SKILLS_AND_STATS -> {
                 // set both persistent and skill stats to 0
-                for (Profile profileType : ProfileRegistry.getRegisteredProfiles().values()) {
+                for (Profile profileType : ProfileRegistry.getProfileTypes().profiles()) {
                     setPersistentProfile(p, profileType.getBlankProfile(p), profileType.getClass());
                     setSkillProfile(p, profileType.getBlankProfile(p), profileType.getClass());
                 }
@@ -74,10 +87,10 @@ public abstract class ProfilePersistence {
                 powerProfile.setFakeUnlockedPerks(new HashSet<>());
                 powerProfile.setPermanentlyLockedPerks(new HashSet<>());
                 ProfileRegistry.setPersistentProfile(p, powerProfile, PowerProfile.class);
-                setSkillProfile(p, ProfileRegistry.getRegisteredProfiles().get(PowerProfile.class).getBlankProfile(p), PowerProfile.class);
+                setSkillProfile(p, ProfileRegistry.getProfileTypes().get(PowerProfile.class).getBlankProfile(p), PowerProfile.class);
 
                 // resets skill progress but leaves persistent progress untouched, and updates based on that
-                for (Profile profileType : ProfileRegistry.getRegisteredProfiles().values()) {
+                for (Profile profileType : ProfileRegistry.getProfileTypes().profiles()) {
                     if (profileType instanceof PowerProfile) continue;
                     setSkillProfile(p, profileType.getBlankProfile(p), profileType.getClass());
                 }
@@ -117,15 +130,251 @@ public abstract class ProfilePersistence {
 
     public abstract void loadProfile(Player p);
 
+    /**
+     * Claims the loading of the player's profiles. If their profiles are still in memory, for example because they
+     * relogged while their profiles were being saved, those are kept and considered loaded again.
+     * @param p the player whose profiles are to be loaded
+     * @return true if the caller should fetch the player's profiles and hand them to {@link ProfileStore#finishLoad(UUID, Map)},
+     * false if they're already loaded or being loaded
+     */
+    protected boolean claimLoad(Player p){
+        offlineProfiles.evict(p.getUniqueId());
+        playerNames.remember(p.getUniqueId(), p.getName());
+        ProfileStore.LoadClaim claim = store.beginLoad(p.getUniqueId());
+        store.setOnline(p.getUniqueId(), true);
+        if (claim == ProfileStore.LoadClaim.IN_MEMORY){
+            JoinLeaveListener.getLoadedProfiles().add(p.getUniqueId());
+            SkillRegistry.updateSkillProgression(p, false);
+        }
+        return claim == ProfileStore.LoadClaim.FETCH;
+    }
+
+    /**
+     * Fetches the profiles of a player that's logging in ahead of time, so they can be used as soon as they join.
+     * Called off the main thread, before the player joins. Does nothing by default, for implementations that can't load
+     * profiles before the player is online.
+     * @param owner the player logging in
+     */
+    public void prefetchProfiles(UUID owner){
+        // do nothing by default
+    }
+
+    /**
+     * Discards any profiles prefetched for the player, for when their login was denied or abandoned
+     * @param owner the player whose login was abandoned
+     */
+    public void evictPrefetchedProfiles(UUID owner){
+        prefetcher.evict(owner);
+    }
+
+    /**
+     * Fetches the persistent profiles of a player who may be offline. If their profiles are loaded, those are used.
+     * Otherwise a recently fetched snapshot is used if there is one, or they're read off the main thread.<br>
+     * The profiles of offline players are read-only snapshots, changes made to them are not saved.
+     * @param owner the player to fetch the profiles of
+     * @return a future completed with the player's profiles of every registered type, blank for types nothing is stored
+     * of. Completed with an empty map if the profiles of offline players can't be read
+     */
+    public CompletableFuture<Map<Class<? extends Profile>, Profile>> fetchOfflineProfiles(UUID owner){
+        Map<Class<? extends Profile>, Profile> profiles = getLoadedProfiles(owner);
+        if (profiles == null) profiles = offlineProfiles.get(owner);
+        if (profiles != null) return CompletableFuture.completedFuture(profiles);
+        // players looked up at the same time (like by several staff members) are only read once
+        return offlineReads.computeIfAbsent(owner, k -> {
+            CompletableFuture<Map<Class<? extends Profile>, Profile>> future = new CompletableFuture<>();
+            Bukkit.getScheduler().runTaskAsynchronously(ValhallaMMO.getInstance(), () -> {
+                try {
+                    Map<Class<? extends Profile>, Profile> read = readOfflineProfiles(owner);
+                    if (read == null) {
+                        future.complete(Map.of());
+                        return;
+                    }
+                    Map<Class<? extends Profile>, Profile> snapshot = withBlankProfiles(owner, read);
+                    // types that could not be read at all are absent, those aren't cached so they're read again next time.
+                    // the player may also have joined in the meantime, in which case their loaded profiles are more recent
+                    if (read.keySet().containsAll(snapshot.keySet()) && getLoadedProfiles(owner) == null) offlineProfiles.put(owner, snapshot);
+                    future.complete(snapshot);
+                } catch (RuntimeException e){
+                    future.completeExceptionally(e);
+                } finally {
+                    offlineReads.remove(owner);
+                }
+            });
+            return future;
+        });
+    }
+
+    /**
+     * Gets the persistent profiles of a player who may be offline like {@link #fetchOfflineProfiles(UUID)}, but reads
+     * them on the calling thread and doesn't cache them. For going through many players once, like when exporting
+     * profiles, without pushing out the players looked up by commands. Should not be called on the main thread.
+     * @param owner the player to get the profiles of
+     * @return the player's profiles of every registered type, blank for types nothing is stored of, or null if the
+     * profiles of offline players can't be read
+     */
+    public Map<Class<? extends Profile>, Profile> getOfflineProfiles(UUID owner){
+        Map<Class<? extends Profile>, Profile> profiles = getLoadedProfiles(owner);
+        if (profiles == null) profiles = offlineProfiles.get(owner);
+        if (profiles != null) return profiles;
+        Map<Class<? extends Profile>, Profile> read = readOfflineProfiles(owner);
+        return read == null ? null : withBlankProfiles(owner, read);
+    }
+
+    /**
+     * Discards the cached snapshot of a player's profiles, for when their stored profiles were changed
+     * @param owner the player whose snapshot to discard
+     */
+    public void evictOfflineProfiles(UUID owner){
+        offlineProfiles.evict(owner);
+    }
+
+    /**
+     * @param owner the player to check
+     * @return true if the player's profiles are loaded, and so changes to their stored profiles would be overwritten
+     */
+    public boolean isLoaded(UUID owner){
+        return getLoadedProfiles(owner) != null;
+    }
+
+    /**
+     * Holds off saving a player's loaded profiles while imported profiles are written over their stored ones, so a save
+     * can't overwrite the import before the loaded profiles are replaced. Should be followed up by
+     * {@link #finishImport(UUID, boolean)}, and not be called on the main thread.
+     * @param owner the player whose profiles are imported
+     * @return true if the player's profiles are loaded, and so have to be replaced once the import is written
+     */
+    public boolean beginImport(UUID owner){
+        ProfileStore.Entry entry = store.get(owner);
+        if (entry == null || !entry.isLoaded()) return false;
+        store.beginImport(entry);
+        return true;
+    }
+
+    /**
+     * Allows a player's profiles to be saved again, after their loaded profiles were replaced by the imported ones or
+     * the import failed
+     * @param owner the player whose profiles were imported
+     * @param imported whether the imported profiles were written to storage
+     */
+    public void finishImport(UUID owner, boolean imported){
+        store.finishImport(owner, imported);
+    }
+
+    private Map<Class<? extends Profile>, Profile> withBlankProfiles(UUID owner, Map<Class<? extends Profile>, Profile> read){
+        Map<Class<? extends Profile>, Profile> profiles = new HashMap<>();
+        for (Profile type : ProfileRegistry.getProfileTypes().profiles()){
+            Profile profile = read.get(type.getClass());
+            profiles.put(type.getClass(), profile == null ? type.getBlankProfile(owner) : profile);
+        }
+        return profiles;
+    }
+
+    /**
+     * @see #fetchOfflineProfiles(UUID)
+     */
+    public <T extends Profile> CompletableFuture<T> fetchOfflineProfile(UUID owner, Class<T> type){
+        return fetchOfflineProfiles(owner).thenApply(profiles -> type.cast(profiles.get(type)));
+    }
+
+    /**
+     * Looks up the UUID of a player who may be offline by name, off the main thread
+     * @param name the name of the player, case-insensitive
+     * @return a future completed with the UUID of the player, or with null if no such player has played on this server
+     */
+    public CompletableFuture<UUID> fetchPlayerId(String name){
+        CompletableFuture<UUID> future = new CompletableFuture<>();
+        Bukkit.getScheduler().runTaskAsynchronously(ValhallaMMO.getInstance(), () -> {
+            try {
+                future.complete(playerNames.getUniqueId(name));
+            } catch (RuntimeException e){
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @param owner the UUID of the player
+     * @return the name of the player, or null if the server doesn't know it
+     */
+    public String getPlayerName(UUID owner){
+        return playerNames.getName(owner);
+    }
+
+    private Map<Class<? extends Profile>, Profile> getLoadedProfiles(UUID owner){
+        ProfileStore.Entry entry = store.get(owner);
+        if (entry == null || !entry.isLoaded()) return null;
+        Map<Class<? extends Profile>, Profile> profiles = new HashMap<>();
+        for (Profile profile : entry.getPersistentProfiles()) profiles.put(profile.getClass(), profile);
+        return profiles;
+    }
+
+    /**
+     * Reads the persistent profiles of an offline player from storage. Called off the main thread.
+     * @param owner the player to read the profiles of
+     * @return the profiles of the player, with types nothing is stored of being absent or null, or null if the profiles
+     * of offline players can't be read by this implementation
+     */
+    protected Map<Class<? extends Profile>, Profile> readOfflineProfiles(UUID owner){
+        return null;
+    }
+
     public abstract void saveAllProfiles();
 
+    /**
+     * Saves the profiles of a single player without unloading them, unless the player is no longer online. Called off
+     * the main thread by the {@link ProfileSaveScheduler}.
+     * @param owner the player whose profiles are to be saved
+     * @return true if the profiles were saved or there was nothing to save, false if the save failed
+     */
+    public abstract boolean persistProfiles(UUID owner);
+
+    /**
+     * Saves the profiles of a single player to a database without unloading them, unless the player is no longer online,
+     * for implementations of {@link #persistProfiles(UUID)} that store profiles in a {@link Database}. Whether the player
+     * is online is taken from the {@link ProfileStore}, as Bukkit can't be asked off the main thread.
+     * @param database the database to save the profiles to
+     * @param owner the player whose profiles are to be saved
+     * @return true if the profiles were saved or there was nothing to save, false if the save failed
+     */
+    protected boolean persistProfiles(Database database, UUID owner){
+        ProfileStore.Entry entry = store.get(owner);
+        if (entry == null || !entry.isLoaded()) return true;
+        if (!store.beginSave(entry)) return true; // imported over, the imported profiles replace these once written
+        boolean saved = ProfileBatchWriter.saveProfiles(database, new ArrayList<>(entry.getPersistentProfiles()));
+        store.finishSave(entry);
+        // a player that left while their save was queued is unloaded, unless their profiles failed to save
+        if (!entry.isOnline() && store.beginUnload(entry)) store.finishUnload(entry);
+        return saved;
+    }
+
+    /**
+     * Remembers that the player left, so saves running off the main thread know their profiles can be unloaded. Called
+     * on the main thread when they quit.
+     * @param owner the player who left
+     */
+    public void markOffline(UUID owner){
+        store.setOnline(owner, false);
+    }
+
+    /**
+     * @return the players whose profiles are currently loaded
+     */
+    public Collection<UUID> getLoadedOwners(){
+        Collection<UUID> owners = new ArrayList<>();
+        for (ProfileStore.Entry entry : store.getEntries()){
+            if (entry.isLoaded()) owners.add(entry.getOwner());
+        }
+        return owners;
+    }
+
     public abstract void saveProfile(Player p);
 
     public static String serializeStringSet(Collection<String> stringSet) {
         return String.join("<>", stringSet);
     }
 
-    private static final Map<UUID, Collection<Class<? extends Profile>>> profilesToSave = new HashMap<>();
+    private static final Map<UUID, Collection<Class<? extends Profile>>> profilesToSave = new ConcurrentHashMap<>();
 
     /**
      * Tells the plugin that this profile type of a player should be persisted, even if the profile doesn't meet the necessary EXP requirements
@@ -133,14 +382,12 @@ public abstract class ProfilePersistence {
      * @param typeToSave the profile type the plugin should persist
      */
     public static void scheduleProfilePersisting(Player p, Class<? extends Profile> typeToSave){
-        Collection<Class<? extends Profile>> types = profilesToSave.getOrDefault(p.getUniqueId(), new HashSet<>());
-        types.add(typeToSave);
-        profilesToSave.put(p.getUniqueId(), types);
+        profilesToSave.computeIfAbsent(p.getUniqueId(), k -> ConcurrentHashMap.newKeySet()).add(typeToSave);
     }
     @SuppressWarnings("all")
     public boolean shouldPersist(Profile profile){
         if (profile.getOwner() == null) return false;
-        return profilesToSave.getOrDefault(profile.getOwner(), new HashSet<>()).contains(profile.getClass());
+        return profilesToSave.getOrDefault(profile.getOwner(), Set.of()).contains(profile.getClass());
     }
 
     public static Collection<String> deserializeStringSet(String serializedStringSet) {
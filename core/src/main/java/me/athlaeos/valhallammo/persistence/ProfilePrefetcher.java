@@ -0,0 +1,51 @@
+package me.athlaeos.valhallammo.persistence;
+
+import me.athlaeos.valhallammo.playerstats.profiles.Profile;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds profiles fetched while a player is still logging in, so they're ready to be used the moment the player joins.
+ * Prefetched profiles are only kept for a short while, in case the login is abandoned without anything evicting them.
+ */
+public class ProfilePrefetcher {
+    private final Map<UUID, Prefetched> prefetched = new ConcurrentHashMap<>();
+    private final long duration;
+
+    /**
+     * @param duration the time (in milliseconds) prefetched profiles are kept for before they're considered abandoned
+     */
+    public ProfilePrefetcher(long duration){
+        this.duration = duration;
+    }
+
+    /**
+     * Stages the fetched profiles of a player that's logging in, to be picked up with {@link #take(UUID)} once they join.
+     * @param owner the player logging in
+     * @param profiles the fetched profiles, in the same form as returned by {@link ProfileBatchReader}
+     */
+    public void stage(UUID owner, Map<Class<? extends Profile>, Profile> profiles){
+        long now = System.currentTimeMillis();
+        prefetched.values().removeIf(p -> p.expiresAt() < now);
+        prefetched.put(owner, new Prefetched(profiles, now + duration));
+    }
+
+    /**
+     * Removes and returns the prefetched profiles of the player
+     * @param owner the player who joined
+     * @return the prefetched profiles, or null if none were prefetched or they were kept for too long
+     */
+    public Map<Class<? extends Profile>, Profile> take(UUID owner){
+        Prefetched p = prefetched.remove(owner);
+        if (p == null || p.expiresAt() < System.currentTimeMillis()) return null;
+        return p.profiles();
+    }
+
+    public void evict(UUID owner){
+        prefetched.remove(owner);
+    }
+
+    private record Prefetched(Map<Class<? extends Profile>, Profile> profiles, long expiresAt){}
+}
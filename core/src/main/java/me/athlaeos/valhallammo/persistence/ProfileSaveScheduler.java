@@ -0,0 +1,207 @@
+package me.athlaeos.valhallammo.persistence;
+
+import me.athlaeos.valhallammo.ValhallaMMO;
+import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Saves the profiles of loaded players in the background, spread evenly over the save interval instead of all at once.<br>
+ * Every interval a round is started over a snapshot of the players whose profiles are loaded. A rolling cursor moves
+ * over them a few players each tick, so the round ends by the end of the interval, and queues them to be saved by a
+ * single worker thread which doesn't save more players per second than configured. The queue is bounded, so if the
+ * worker can't keep up the cursor waits for room in the queue instead of queueing up more and more saves.<br>
+ * The profile journal is rotated at the start of a round, and the sealed segment is discarded once every player of that
+ * round was saved successfully.
+ */
+public class ProfileSaveScheduler {
+    private static final int LATENCY_SAMPLES = 1024;
+
+    private final ProfilePersistence persistence;
+    private final int interval;
+    private final long saveSpacing;
+    private final BlockingQueue<UUID> queue;
+    private final int capacity;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private BukkitTask feeder = null;
+
+    // the state of the current round, only changed by the feeder
+    private List<UUID> round = List.of();
+    private int cursor = 0;
+    private double due = 0;
+    private long ticks = 0;
+    private long roundStart = 0;
+    private long sealedSegment = -1;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean roundFailed = new AtomicBoolean();
+
+    private final AtomicLong saves = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rounds = new AtomicLong();
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long latencyCount = 0;
+
+    /**
+     * @param persistence the persistence implementation to save profiles with
+     * @param interval the time (in game ticks) over which all loaded players should be saved once
+     * @param maxSavesPerSecond the maximum amount of players to save per second, 0 or less for no limit
+     * @param capacity the maximum amount of players queued to be saved at once
+     */
+    public ProfileSaveScheduler(ProfilePersistence persistence, int interval, int maxSavesPerSecond, int capacity){
+        this.persistence = persistence;
+        this.interval = Math.max(1, interval);
+        this.saveSpacing = maxSavesPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / maxSavesPerSecond;
+        this.capacity = Math.max(1, capacity);
+        this.queue = new ArrayBlockingQueue<>(this.capacity);
+        this.worker = new Thread(this::work, "ValhallaMMO profile saver");
+        this.worker.setDaemon(true);
+    }
+
+    public void start(){
+        worker.start();
+        feeder = Bukkit.getScheduler().runTaskTimerAsynchronously(ValhallaMMO.getInstance(), this::feed, 1L, 1L);
+    }
+
+    /**
+     * Stops saving profiles in the background, waiting for the save in progress to finish. Anything still queued is
+     * dropped, so all profiles should be saved afterwards.
+     */
+    public void stop(){
+        running = false;
+        if (feeder != null) feeder.cancel();
+        queue.clear();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void feed(){
+        if (!running) return;
+        ticks++;
+        if (cursor >= round.size()){
+            if (pending.get() > 0 || ticks - roundStart < interval) return; // the round is still saving, or the next isn't due yet
+            finishRound();
+            startRound();
+        }
+        due = Math.min(due + (double) round.size() / interval, capacity);
+        while (due >= 1 && cursor < round.size()){
+            pending.incrementAndGet();
+            if (!queue.offer(round.get(cursor))){
+                pending.decrementAndGet();
+                return; // the queue is full, the cursor stays put until the worker catches up
+            }
+            cursor++;
+            due--;
+        }
+    }
+
+    private void startRound(){
+        ProfileJournal journal = ProfileRegistry.getJournal();
+        // changes journaled up until now belong to the players of this round, so they may be discarded once they're saved
+        sealedSegment = journal == null ? -1 : journal.rotate();
+        round = new ArrayList<>(persistence.getLoadedOwners());
+        cursor = 0;
+        due = 0;
+        roundStart = ticks;
+    }
+
+    private void finishRound(){
+        if (roundFailed.getAndSet(false)) return; // the segment is kept, and discarded along with the next round's
+        ProfileJournal journal = ProfileRegistry.getJournal();
+        if (journal != null && sealedSegment >= 0) journal.discard(sealedSegment);
+        if (!round.isEmpty()) rounds.incrementAndGet();
+    }
+
+    private void work(){
+        long lastSave = 0;
+        while (running){
+            UUID owner;
+            try {
+                owner = queue.poll(250, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e){
+                return;
+            }
+            if (owner == null) continue;
+            long wait = lastSave + saveSpacing - System.nanoTime();
+            if (lastSave != 0 && wait > 0) LockSupport.parkNanos(wait);
+
+            long start = System.nanoTime();
+            lastSave = start;
+            boolean saved;
+            try {
+                saved = persistence.persistProfiles(owner);
+            } catch (RuntimeException e){
+                ValhallaMMO.logSevere("Could not save the profiles of " + owner + " due to an exception: ");
+                e.printStackTrace();
+                saved = false;
+            }
+            recordSave(System.nanoTime() - start, saved);
+            pending.decrementAndGet();
+        }
+    }
+
+    private void recordSave(long latency, boolean saved){
+        if (saved) saves.incrementAndGet();
+        else {
+            failures.incrementAndGet();
+            roundFailed.set(true);
+        }
+        synchronized (latencies){
+            latencies[(int) (latencyCount++ % LATENCY_SAMPLES)] = latency;
+        }
+    }
+
+    /**
+     * @return the current state of the scheduler, with latencies taken from the most recent saves
+     */
+    public Statistics getStatistics(){
+        long[] samples;
+        synchronized (latencies){
+            samples = Arrays.copyOf(latencies, (int) Math.min(latencyCount, LATENCY_SAMPLES));
+        }
+        Arrays.sort(samples);
+        int roundSize;
+        int roundProgress;
+        synchronized (this){
+            roundSize = round.size();
+            roundProgress = cursor;
+        }
+        return new Statistics(queue.size(), capacity, roundProgress, roundSize, rounds.get(), saves.get(), failures.get(),
+                percentile(samples, 0.5), percentile(samples, 0.95), percentile(samples, 0.99),
+                samples.length == 0 ? 0 : samples[samples.length - 1] / 1_000_000D);
+    }
+
+    private static double percentile(long[] sorted, double percentile){
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000D;
+    }
+
+    /**
+     * @param queued the amount of players waiting to be saved
+     * @param capacity the maximum amount of players that may be waiting to be saved
+     * @param roundProgress the amount of players of the current round that were queued so far
+     * @param roundSize the amount of players in the current round
+     * @param rounds the amount of rounds in which every player was saved successfully
+     * @param saves the amount of successful saves
+     * @param failures the amount of failed saves
+     * @param p50 the median save duration, in milliseconds
+     * @param p95 the 95th percentile save duration, in milliseconds
+     * @param p99 the 99th percentile save duration, in milliseconds
+     * @param max the longest save duration, in milliseconds
+     */
+    public record Statistics(int queued, int capacity, int roundProgress, int roundSize, long rounds, long saves,
+                             long failures, double p50, double p95, double p99, double max){}
+}
@@ -0,0 +1,241 @@
+package me.athlaeos.valhallammo.persistence;
+
+import me.athlaeos.valhallammo.playerstats.profiles.Profile;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Holds the persistent and skill profiles of all players a {@link ProfilePersistence} has in memory. It may safely be
+ * used from both the main thread and async load and save tasks, and looking up a profile never blocks.<br>
+ * Each player has one {@link Entry} which moves through the states of {@link State}. Loading is claimed through
+ * {@link #beginLoad(UUID)}, so a player relogging while their profiles are still being saved or unloaded simply keeps
+ * the profiles in memory instead of fetching possibly outdated ones while the save is still running.
+ */
+public class ProfileStore {
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    public Entry get(UUID owner){
+        return entries.get(owner);
+    }
+
+    public Collection<Entry> getEntries(){
+        return entries.values();
+    }
+
+    public Profile getPersistentProfile(UUID owner, Class<? extends Profile> type){
+        Entry entry = entries.get(owner);
+        return entry == null ? null : entry.persistentProfiles.get(type);
+    }
+
+    public Profile getSkillProfile(UUID owner, Class<? extends Profile> type){
+        Entry entry = entries.get(owner);
+        return entry == null ? null : entry.skillProfiles.get(type);
+    }
+
+    /**
+     * @return the profile previously stored under this type, or null if there was none
+     */
+    public Profile setPersistentProfile(UUID owner, Class<? extends Profile> type, Profile profile){
+        return entries.computeIfAbsent(owner, Entry::new).persistentProfiles.put(type, profile);
+    }
+
+    public void setSkillProfile(UUID owner, Class<? extends Profile> type, Profile profile){
+        entries.computeIfAbsent(owner, Entry::new).skillProfiles.put(type, profile);
+    }
+
+    /**
+     * Claims the loading of a player's profiles.
+     * @param owner the player whose profiles are to be loaded
+     * @return {@link LoadClaim#FETCH} if the caller should fetch the profiles and hand them to
+     * {@link #finishLoad(UUID, Map)}, {@link LoadClaim#IN_PROGRESS} if another load is already fetching them, or
+     * {@link LoadClaim#IN_MEMORY} if the profiles were still in memory and are kept as they are
+     */
+    public LoadClaim beginLoad(UUID owner){
+        LoadClaim[] claim = new LoadClaim[1];
+        entries.compute(owner, (k, entry) -> {
+            if (entry == null) entry = new Entry(owner);
+            if (entry.state.get() == State.LOADING) claim[0] = LoadClaim.IN_PROGRESS;
+            else if (entry.loaded) {
+                // a save still running will no longer unload the profiles once it's done
+                entry.state.set(entry.savesInProgress.get() > 0 ? State.SAVING : State.READY);
+                claim[0] = LoadClaim.IN_MEMORY;
+            } else {
+                entry.state.set(State.LOADING);
+                claim[0] = LoadClaim.FETCH;
+            }
+            return entry;
+        });
+        return claim[0];
+    }
+
+    /**
+     * Stores the fetched profiles of a player and marks them ready for usage. Profiles that were set while loading take
+     * priority over the fetched ones.
+     * @param owner the player whose profiles were fetched
+     * @param profiles the fetched profiles
+     */
+    public void finishLoad(UUID owner, Map<Class<? extends Profile>, Profile> profiles){
+        Entry entry = entries.computeIfAbsent(owner, Entry::new);
+        profiles.forEach(entry.persistentProfiles::putIfAbsent);
+        entry.loaded = true;
+        entry.state.compareAndSet(State.LOADING, State.READY);
+    }
+
+    /**
+     * Records whether the player is online. Should be called on the main thread as they join and quit, so saves running
+     * on other threads can tell without asking Bukkit.
+     * @param owner the player who joined or quit
+     * @param online whether they're online now
+     */
+    public void setOnline(UUID owner, boolean online){
+        Entry entry = entries.get(owner);
+        if (entry != null) entry.online = online;
+    }
+
+    /**
+     * Registers a save of the entry's profiles, which should be followed up by {@link #finishSave(Entry)} once done.
+     * Profiles being imported over can't be saved until the import is done, as they'd overwrite the imported ones.
+     * @return true if the profiles may be saved, false if they're being imported over and the save should be skipped
+     */
+    public boolean beginSave(Entry entry){
+        entry.savesInProgress.incrementAndGet();
+        if (entry.importing) {
+            finishSave(entry);
+            return false;
+        }
+        entry.state.compareAndSet(State.READY, State.SAVING);
+        return true;
+    }
+
+    public void finishSave(Entry entry){
+        if (entry.savesInProgress.decrementAndGet() <= 0) entry.state.compareAndSet(State.SAVING, State.READY);
+    }
+
+    /**
+     * Holds off saves of the entry's profiles while imported profiles are written to storage, until
+     * {@link #finishImport(UUID, boolean)} is called after they replaced the ones in memory. Waits for saves that
+     * were already running to finish, so this shouldn't be called on the main thread.
+     */
+    public void beginImport(Entry entry){
+        entry.importing = true;
+        while (entry.savesInProgress.get() > 0) LockSupport.parkNanos(1_000_000L);
+    }
+
+    /**
+     * Allows the profiles of a player to be saved again after an import. If the profiles were imported and the player
+     * is no longer online their entry is dropped, as the profiles still in memory are outdated.
+     * @param owner the player whose profiles were imported
+     * @param imported whether the imported profiles were written to storage
+     */
+    public void finishImport(UUID owner, boolean imported){
+        entries.computeIfPresent(owner, (k, entry) -> {
+            if (!entry.importing) return entry;
+            entry.importing = false;
+            return imported && !entry.online ? null : entry;
+        });
+    }
+
+    /**
+     * Marks the entry as being unloaded, which it will be once its profiles were saved and
+     * {@link #finishUnload(Entry)} is called. Entries still loading can't be unloaded.
+     * @return true if the entry is now being unloaded
+     */
+    public boolean beginUnload(Entry entry){
+        State state;
+        do {
+            state = entry.state.get();
+            if (state == State.LOADING) return false;
+        } while (!entry.state.compareAndSet(state, State.UNLOADING));
+        return true;
+    }
+
+    /**
+     * Removes the entry from the store, unless its player logged back in since unloading began, its profiles are still
+     * being saved, or any of its profiles still have unsaved changes, in which case it's kept to be saved again later.
+     * @return true if the entry was removed
+     */
+    public boolean finishUnload(Entry entry){
+        boolean[] removed = new boolean[1];
+        entries.computeIfPresent(entry.owner, (k, current) -> {
+            if (current != entry || entry.state.get() != State.UNLOADING || entry.savesInProgress.get() > 0 || entry.isDirty()) return current;
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    public enum State {
+        /**
+         * The player's profiles are being fetched
+         */
+        LOADING,
+        /**
+         * The player's profiles are in memory and not being saved
+         */
+        READY,
+        /**
+         * The player's profiles are being saved, and will be ready again afterwards
+         */
+        SAVING,
+        /**
+         * The player left, and their profiles are being saved one last time before being removed from memory
+         */
+        UNLOADING
+    }
+
+    public enum LoadClaim {
+        FETCH,
+        IN_PROGRESS,
+        IN_MEMORY
+    }
+
+    public static class Entry {
+        private final UUID owner;
+        private final AtomicReference<State> state = new AtomicReference<>(State.READY);
+        private final Map<Class<? extends Profile>, Profile> persistentProfiles = new ConcurrentHashMap<>();
+        private final Map<Class<? extends Profile>, Profile> skillProfiles = new ConcurrentHashMap<>();
+        private final AtomicInteger savesInProgress = new AtomicInteger();
+        private volatile boolean loaded = false; // whether the persistent profiles were loaded from storage
+        private volatile boolean online = false; // set on the main thread as the player joins and quits
+        private volatile boolean importing = false; // whether saves are held off while profiles are imported over these
+
+        private Entry(UUID owner){
+            this.owner = owner;
+        }
+
+        public UUID getOwner() {
+            return owner;
+        }
+
+        public State getState() {
+            return state.get();
+        }
+
+        public boolean isLoaded() {
+            return loaded;
+        }
+
+        /**
+         * @return whether the player was online as of the last time they joined or quit, which may be read from any thread
+         */
+        public boolean isOnline() {
+            return online;
+        }
+
+        /**
+         * @return an unmodifiable view of the persistent profiles of this entry
+         */
+        public Collection<Profile> getPersistentProfiles() {
+            return Collections.unmodifiableCollection(persistentProfiles.values());
+        }
+
+        public boolean isDirty(){
+            for (Profile profile : persistentProfiles.values()) if (profile.isDirty()) return true;
+            return false;
+        }
+    }
+}
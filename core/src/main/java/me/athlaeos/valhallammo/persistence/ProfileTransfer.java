@@ -0,0 +1,322 @@
+package me.athlaeos.valhallammo.persistence;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import me.athlaeos.valhallammo.ValhallaMMO;
+import me.athlaeos.valhallammo.dom.Action;
+import me.athlaeos.valhallammo.playerstats.profiles.Profile;
+import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
+import me.athlaeos.valhallammo.skills.skills.SkillRegistry;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exports the profiles of all players to a JSON file and imports them again, for example to move them to another
+ * database. Players are written and read one at a time with a streaming JSON writer and reader, so the memory used stays
+ * the same no matter how many players there are. Both run off the main thread, reporting their progress every few seconds.<br>
+ * The file holds a version number and a list of players, each with their UUID and per profile type (by class name) the
+ * stats that differ from their default. Imported profiles are written to the database in batches, replacing what's stored.
+ */
+public class ProfileTransfer {
+    public static final int VERSION = 1;
+    private static final int OWNER_PAGE_SIZE = 500;
+    private static final int IMPORT_BATCH_SIZE = 250;
+    private static final long PROGRESS_INTERVAL = 5000;
+    private static final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * @return true if profiles are currently being exported or imported
+     */
+    public static boolean isRunning(){
+        return running.get();
+    }
+
+    /**
+     * Exports the profiles of all players stored to the given file. If profiles can't be read while their owner is offline,
+     * only the profiles of online players are exported.
+     * @param file the file to export to, which is replaced once the export is done
+     * @param progress called off the main thread with the amount of players exported so far, every few seconds
+     * @return a future completed with the amount of players exported
+     */
+    public static CompletableFuture<Integer> exportProfiles(File file, Action<Integer> progress){
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        if (!running.compareAndSet(false, true)) return CompletableFuture.failedFuture(new IllegalStateException("Profiles are already being transferred"));
+        Bukkit.getScheduler().runTaskAsynchronously(ValhallaMMO.getInstance(), () -> {
+            try {
+                future.complete(export(file, progress));
+            } catch (Exception e){
+                future.completeExceptionally(e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Imports the profiles in the given file, replacing the stored profiles of the players in it. Online players have
+     * their loaded profiles replaced as well. If profiles can't be stored while their owner is offline, offline players
+     * are skipped.
+     * @param file the file to import from
+     * @param progress called off the main thread with the amount of players imported so far, every few seconds
+     * @return a future completed with the amount of players imported and skipped
+     */
+    public static CompletableFuture<ImportResult> importProfiles(File file, Action<Integer> progress){
+        CompletableFuture<ImportResult> future = new CompletableFuture<>();
+        if (!running.compareAndSet(false, true)) return CompletableFuture.failedFuture(new IllegalStateException("Profiles are already being transferred"));
+        Bukkit.getScheduler().runTaskAsynchronously(ValhallaMMO.getInstance(), () -> {
+            try {
+                future.complete(load(file, progress));
+            } catch (Exception e){
+                future.completeExceptionally(e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return future;
+    }
+
+    private static int export(File file, Action<Integer> progress) throws IOException, SQLException {
+        ProfilePersistence persistence = ProfileRegistry.getPersistence();
+        List<Profile> types = new ArrayList<>(ProfileRegistry.getProfileTypes().profiles());
+        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) throw new IOException("Could not create directory " + file.getParentFile().getPath());
+        File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        int count = 0;
+        long lastReport = System.currentTimeMillis();
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporary), StandardCharsets.UTF_8)))) {
+            writer.beginObject();
+            writer.name("version").value(VERSION);
+            writer.name("players").beginArray();
+            if (persistence instanceof Database database){
+                // owners are fetched a page at a time, ordered by UUID so each page can continue after the last
+                String after = "";
+                List<String> page;
+                while (!(page = ownerPage(database, types, after)).isEmpty()){
+                    for (String owner : page){
+                        Map<Class<? extends Profile>, Profile> profiles = persistence.getOfflineProfiles(UUID.fromString(owner));
+                        if (profiles == null || profiles.isEmpty()) continue;
+                        writePlayer(writer, UUID.fromString(owner), profiles.values());
+                        count++;
+                        if (System.currentTimeMillis() - lastReport >= PROGRESS_INTERVAL){
+                            progress.act(count);
+                            lastReport = System.currentTimeMillis();
+                        }
+                    }
+                    after = page.get(page.size() - 1);
+                }
+            } else {
+                for (UUID owner : persistence.getLoadedOwners()){
+                    Map<Class<? extends Profile>, Profile> profiles = persistence.getOfflineProfiles(owner);
+                    if (profiles == null || profiles.isEmpty()) continue;
+                    writePlayer(writer, owner, profiles.values());
+                    count++;
+                }
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return count;
+    }
+
+    private static List<String> ownerPage(Database database, List<Profile> types, String after) throws SQLException {
+        // each table only contributes its first page of owners, so the union stays small no matter how many rows there are
+        StringJoiner query = new StringJoiner(" UNION ", "", " ORDER BY owner LIMIT " + OWNER_PAGE_SIZE + ";");
+        for (int i = 0; i < types.size(); i++){
+            query.add("SELECT owner FROM (SELECT owner FROM " + types.get(i).getTableName() +
+                    " WHERE owner > ? ORDER BY owner LIMIT " + OWNER_PAGE_SIZE + ") page" + i);
+        }
+        List<String> owners = new ArrayList<>();
+        try (Connection connection = database.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(query.toString())) {
+            for (int i = 1; i <= types.size(); i++) stmt.setString(i, after);
+            ResultSet result = stmt.executeQuery();
+            while (result.next()) owners.add(result.getString(1));
+        }
+        return owners;
+    }
+
+    private static void writePlayer(JsonWriter writer, UUID owner, Collection<Profile> profiles) throws IOException {
+        writer.beginObject();
+        writer.name("owner").value(owner.toString());
+        writer.name("profiles").beginObject();
+        for (Profile profile : profiles){
+            writer.name(profile.getClass().getSimpleName()).beginObject();
+            for (String stat : profile.intStatNames()){
+                if (profile.getInt(stat) != profile.getDefaultInt(stat)) writer.name(stat).value(profile.getInt(stat));
+            }
+            for (String stat : profile.floatStatNames()){
+                if (Float.compare(profile.getFloat(stat), profile.getDefaultFloat(stat)) != 0) writer.name(stat).value(Float.valueOf(profile.getFloat(stat)));
+            }
+            for (String stat : profile.doubleStatNames()){
+                if (Double.compare(profile.getDouble(stat), profile.getDefaultDouble(stat)) != 0) writer.name(stat).value(profile.getDouble(stat));
+            }
+            for (String stat : profile.stringSetStatNames()){
+                Collection<String> values = profile.getStringSet(stat);
+                if (values.isEmpty()) continue;
+                writer.name(stat).beginArray();
+                for (String value : values) writer.value(value);
+                writer.endArray();
+            }
+            for (String stat : profile.booleanStatNames()){
+                if (profile.getBoolean(stat) != profile.getDefaultBoolean(stat)) writer.name(stat).value(profile.getBoolean(stat));
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.endObject();
+    }
+
+    private static ImportResult load(File file, Action<Integer> progress) throws IOException {
+        if (!file.exists()) throw new FileNotFoundException("File " + file.getName() + " does not exist");
+        ProfilePersistence persistence = ProfileRegistry.getPersistence();
+        Database database = persistence instanceof Database d ? d : null;
+        Map<String, Profile> types = new HashMap<>();
+        for (Profile type : ProfileRegistry.getProfileTypes().profiles()) types.put(type.getClass().getSimpleName(), type);
+
+        int imported = 0;
+        int skipped = 0;
+        long lastReport = System.currentTimeMillis();
+        List<Map<Class<? extends Profile>, Profile>> batch = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))) {
+            reader.beginObject();
+            while (reader.hasNext()){
+                String name = reader.nextName();
+                if (name.equals("version")){
+                    int version = reader.nextInt();
+                    if (version != VERSION) throw new IOException("Unsupported profile export version " + version);
+                } else if (name.equals("players")){
+                    reader.beginArray();
+                    while (reader.hasNext()){
+                        Map<Class<? extends Profile>, Profile> profiles = readPlayer(reader, types);
+                        if (profiles.isEmpty()) continue;
+                        UUID owner = profiles.values().iterator().next().getOwner();
+                        // offline players can only be imported if their profiles can be stored without them being online
+                        if (database == null && !persistence.isLoaded(owner)) {
+                            skipped++;
+                            continue;
+                        }
+                        batch.add(profiles);
+                        imported++;
+                        if (batch.size() >= IMPORT_BATCH_SIZE) flush(persistence, database, batch);
+                        if (System.currentTimeMillis() - lastReport >= PROGRESS_INTERVAL){
+                            progress.act(imported);
+                            lastReport = System.currentTimeMillis();
+                        }
+                    }
+                    reader.endArray();
+                } else reader.skipValue();
+            }
+            reader.endObject();
+        } catch (IllegalStateException | IllegalArgumentException e){
+            throw new IOException("Malformed profile export, " + e.getMessage(), e);
+        }
+        flush(persistence, database, batch);
+        return new ImportResult(imported, skipped);
+    }
+
+    private static Map<Class<? extends Profile>, Profile> readPlayer(JsonReader reader, Map<String, Profile> types) throws IOException {
+        Map<Class<? extends Profile>, Profile> profiles = new HashMap<>();
+        UUID owner = null;
+        reader.beginObject();
+        while (reader.hasNext()){
+            String name = reader.nextName();
+            if (name.equals("owner")) owner = UUID.fromString(reader.nextString());
+            else if (name.equals("profiles")){
+                if (owner == null) throw new IOException("Malformed profile export, a player's profiles are listed before their owner");
+                reader.beginObject();
+                while (reader.hasNext()){
+                    Profile type = types.get(reader.nextName());
+                    if (type == null) {
+                        reader.skipValue(); // a profile type that's no longer registered
+                        continue;
+                    }
+                    Profile profile = type.getBlankProfile(owner);
+                    readStats(reader, profile);
+                    profiles.put(profile.getClass(), profile);
+                }
+                reader.endObject();
+            } else reader.skipValue();
+        }
+        reader.endObject();
+        return profiles;
+    }
+
+    private static void readStats(JsonReader reader, Profile profile) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()){
+            String stat = reader.nextName();
+            if (profile.intStatNames().contains(stat)) profile.setInt(stat, reader.nextInt());
+            else if (profile.floatStatNames().contains(stat)) profile.setFloat(stat, (float) reader.nextDouble());
+            else if (profile.doubleStatNames().contains(stat)) profile.setDouble(stat, reader.nextDouble());
+            else if (profile.stringSetStatNames().contains(stat)){
+                Collection<String> values = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) values.add(reader.nextString());
+                reader.endArray();
+                profile.setStringSet(stat, values);
+            } else if (profile.booleanStatNames().contains(stat)) profile.setBoolean(stat, reader.nextBoolean());
+            else reader.skipValue(); // a stat that's no longer registered
+        }
+        reader.endObject();
+    }
+
+    private static void flush(ProfilePersistence persistence, Database database, List<Map<Class<? extends Profile>, Profile>> batch) throws IOException {
+        if (batch.isEmpty()) return;
+        // loaded profiles would otherwise overwrite the imported ones on their next save, so their saves are held off
+        // until they're replaced by the imported profiles
+        List<Map<Class<? extends Profile>, Profile>> loaded = new ArrayList<>();
+        for (Map<Class<? extends Profile>, Profile> player : batch){
+            UUID owner = player.values().iterator().next().getOwner();
+            if (database == null ? persistence.isLoaded(owner) : persistence.beginImport(owner)) loaded.add(player);
+        }
+        if (database != null){
+            Collection<Profile> profiles = new ArrayList<>();
+            for (Map<Class<? extends Profile>, Profile> player : batch){
+                for (Profile profile : player.values()){
+                    profile.markAllDirty(); // written whole, replacing what's stored
+                    profiles.add(profile);
+                }
+            }
+            if (!ProfileBatchWriter.saveProfiles(database, profiles)) {
+                for (Map<Class<? extends Profile>, Profile> player : loaded) persistence.finishImport(player.values().iterator().next().getOwner(), false);
+                throw new IOException("Imported profiles could not be written to the database, check console for more details");
+            }
+        }
+
+        for (Map<Class<? extends Profile>, Profile> player : batch) persistence.evictOfflineProfiles(player.values().iterator().next().getOwner());
+        batch.clear();
+        if (loaded.isEmpty()) return;
+        Bukkit.getScheduler().runTask(ValhallaMMO.getInstance(), () -> {
+            for (Map<Class<? extends Profile>, Profile> player : loaded){
+                UUID owner = player.values().iterator().next().getOwner();
+                Player p = Bukkit.getPlayer(owner);
+                if (p != null) {
+                    player.forEach((type, profile) -> persistence.setPersistentProfile(p, profile, type));
+                    SkillRegistry.updateSkillProgression(p, false);
+                }
+                if (database != null) persistence.finishImport(owner, true);
+            }
+        });
+    }
+
+    /**
+     * @param imported the amount of players whose profiles were imported
+     * @param skipped the amount of players skipped because they were offline, and their profiles can't be stored while
+     *                they're offline
+     */
+    public record ImportResult(int imported, int skipped){}
+}
@@ -0,0 +1,135 @@
+package me.athlaeos.valhallammo.persistence;
+
+import me.athlaeos.valhallammo.ValhallaMMO;
+import me.athlaeos.valhallammo.playerstats.profiles.ProfileSchema;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Brings existing tables up to date with the columns they're expected to have.<br>
+ * The columns a table already has are read from the database's metadata once, and all missing columns are then added in
+ * a single pass: one ALTER TABLE statement adding all of them, or for SQLite (which can only add one column per
+ * statement) one batch of statements. Columns known to exist are remembered per database, so reconciling the same table
+ * again doesn't query the database at all.<br>
+ * String sets still stored in the profile's table in the old "&lt;&gt;"-joined format are moved to the string set table.
+ */
+public class SchemaReconciler {
+    private static final Map<Database, Map<String, Set<String>>> knownColumns = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Adds any columns of the profile schema its table doesn't have yet
+     * @param database the database containing the table
+     * @param schema the schema of the profile type
+     * @throws SQLException if the existing columns could not be read, or the missing columns could not be added
+     */
+    public static void reconcile(Database database, ProfileSchema schema) throws SQLException {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (int i : schema.getRowStats()) columns.put(schema.getColumn(i), schema.getColumnDefinition(i));
+        addMissingColumns(database, schema.getTableName(), columns);
+    }
+
+    /**
+     * Adds the given columns to the table, if it doesn't have them yet
+     * @param database the database containing the table
+     * @param table the table to add the columns to
+     * @param columns the column names mapped to their definition (type and default)
+     * @throws SQLException if the existing columns could not be read, or the missing columns could not be added
+     */
+    public static void addMissingColumns(Database database, String table, Map<String, String> columns) throws SQLException {
+        Set<String> known = knownColumns.computeIfAbsent(database, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(table.toLowerCase(Locale.US), k -> ConcurrentHashMap.newKeySet());
+        if (known.containsAll(columns.keySet())) return;
+
+        database.write(connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Set<String> existing = readColumns(metaData, connection.getCatalog(), table);
+            if (existing.isEmpty()) existing = readColumns(metaData, connection.getCatalog(), table.toLowerCase(Locale.US));
+
+            List<String> missing = new ArrayList<>();
+            for (String column : columns.keySet()){
+                if (!existing.contains(column.toLowerCase(Locale.US))) missing.add(column);
+            }
+            if (!missing.isEmpty()) {
+                boolean sqlite = metaData.getDatabaseProductName().toLowerCase(Locale.US).contains("sqlite");
+                try (Statement stmt = connection.createStatement()) {
+                    if (sqlite) {
+                        for (String column : missing) stmt.addBatch("ALTER TABLE " + table + " ADD COLUMN " + column + " " + columns.get(column) + ";");
+                        stmt.executeBatch();
+                    } else {
+                        StringJoiner additions = new StringJoiner(", ");
+                        for (String column : missing) additions.add("ADD COLUMN " + column + " " + columns.get(column));
+                        stmt.execute("ALTER TABLE " + table + " " + additions + ";");
+                    }
+                }
+                ValhallaMMO.logFine("Added " + missing.size() + " new columns to table " + table);
+            }
+            known.addAll(existing);
+            known.addAll(columns.keySet());
+            return null;
+        });
+    }
+
+    /**
+     * Moves the string sets still stored as "&lt;&gt;"-joined text in the profile's table into the string set table, and
+     * empties the old columns afterwards. This is done in a single transaction, so it can't be left half done.
+     * @param database the database containing the tables
+     * @param schema the schema of the profile type
+     * @throws SQLException if the string sets could not be moved, in which case nothing was moved
+     */
+    public static void migrateStringSets(Database database, ProfileSchema schema) throws SQLException {
+        if (!schema.hasStringSets()) return;
+        String table = schema.getTableName();
+        int migrated = database.write(connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Set<String> existing = readColumns(metaData, connection.getCatalog(), table);
+            if (existing.isEmpty()) existing = readColumns(metaData, connection.getCatalog(), table.toLowerCase(Locale.US));
+            BitSet stringSets = schema.getStringSetStats();
+            List<Integer> legacyColumns = new ArrayList<>();
+            for (int i = stringSets.nextSetBit(0); i >= 0; i = stringSets.nextSetBit(i + 1)){
+                if (existing.contains(schema.getColumn(i))) legacyColumns.add(i);
+            }
+            if (legacyColumns.isEmpty()) return 0;
+
+            int count = 0;
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement();
+                 PreparedStatement insert = connection.prepareStatement(schema.getStringSetInsertQuery())) {
+                for (int ordinal : legacyColumns){
+                    String column = schema.getColumn(ordinal);
+                    try (ResultSet result = stmt.executeQuery("SELECT owner, " + column + " FROM " + table + " WHERE " + column + " IS NOT NULL AND " + column + " <> '';")) {
+                        while (result.next()){
+                            for (String value : ProfilePersistence.deserializeStringSet(result.getString(2))){
+                                insert.setString(1, result.getString(1));
+                                insert.setString(2, schema.getStat(ordinal));
+                                insert.setString(3, ProfileSchema.hashStringSetMember(value));
+                                insert.setString(4, value);
+                                insert.addBatch();
+                                if (++count % 1000 == 0) insert.executeBatch();
+                            }
+                        }
+                    }
+                    insert.executeBatch();
+                    stmt.executeUpdate("UPDATE " + table + " SET " + column + " = NULL WHERE " + column + " IS NOT NULL;");
+                }
+                connection.commit();
+            } catch (SQLException e){
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            return count;
+        });
+        if (migrated > 0) ValhallaMMO.logInfo("Moved " + migrated + " string set entries of table " + table + " to table " + schema.getStringSetTableName());
+    }
+
+    private static Set<String> readColumns(DatabaseMetaData metaData, String catalog, String table) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (ResultSet result = metaData.getColumns(catalog, null, table, null)) {
+            while (result.next()) columns.add(result.getString("COLUMN_NAME").toLowerCase(Locale.US));
+        }
+        return columns;
+    }
+}
@@ -4,109 +4,188 @@ import com.google.gson.Gson;
 import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.listeners.JoinLeaveListener;
 import me.athlaeos.valhallammo.localization.TranslationManager;
+import me.athlaeos.valhallammo.persistence.ProfileCodec;
 import me.athlaeos.valhallammo.persistence.ProfilePersistence;
+import me.athlaeos.valhallammo.persistence.ProfileStore;
 import me.athlaeos.valhallammo.playerstats.profiles.Profile;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
 import me.athlaeos.valhallammo.skills.skills.SkillRegistry;
 import me.athlaeos.valhallammo.utility.Utils;
 
 import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PDC extends ProfilePersistence {
     private final Gson gson = new Gson();
-    private final Map<UUID, Map<Class<? extends Profile>, Profile>> persistentProfiles = new HashMap<>();
-    private final Map<UUID, Map<Class<? extends Profile>, Profile>> skillProfiles = new HashMap<>();
+    private final Map<UUID, Set<Class<? extends Profile>>> unreadableProfiles = new ConcurrentHashMap<>(); // profiles that were reset because their stored data couldn't be read
 
     @Override
     public void setPersistentProfile(Player p, Profile profile, Class<? extends Profile> type) {
-        Map<Class<? extends Profile>, Profile> profiles = persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>());
-        profiles.put(type, profile);
-        persistentProfiles.put(p.getUniqueId(), profiles);
+        Profile previous = store.setPersistentProfile(p.getUniqueId(), type, profile);
+        if (previous != profile) profile.markAllDirty(); // a replaced profile (like after a reset) has to be written whole
         ProfilePersistence.scheduleProfilePersisting(p, type);
     }
 
     @Override
     public void setSkillProfile(Player p, Profile profile, Class<? extends Profile> type) {
-        Map<Class<? extends Profile>, Profile> profiles = skillProfiles.getOrDefault(p.getUniqueId(), new HashMap<>());
-        profiles.put(type, profile);
-        skillProfiles.put(p.getUniqueId(), profiles);
+        store.setSkillProfile(p.getUniqueId(), type, profile);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T extends Profile> T getPersistentProfile(Player p, Class<T> type) {
-        return (T) persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>()).get(type);
+        return (T) store.getPersistentProfile(p.getUniqueId(), type);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T extends Profile> T getSkillProfile(Player p, Class<T> type) {
-        return (T) skillProfiles.getOrDefault(p.getUniqueId(), new HashMap<>()).get(type);
+        return (T) store.getSkillProfile(p.getUniqueId(), type);
     }
 
     @Override
     public void loadProfile(Player p) {
-        if (persistentProfiles.containsKey(p.getUniqueId())) return;
+        if (!claimLoad(p)) return;
+        unreadableProfiles.remove(p.getUniqueId());
         Bukkit.getScheduler().runTaskAsynchronously(ValhallaMMO.getInstance(), () -> {
-            Map<Class<? extends Profile>, Profile> profiles = persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>());
-            for (Profile pr : ProfileRegistry.getRegisteredProfiles().values()) {
-                String jsonProfile = p.getPersistentDataContainer().get(pr.getKey(), PersistentDataType.STRING);
-                Profile loadedProfile = pr.getBlankProfile(p);
-                PersistableProfile tempProfile = gson.fromJson(jsonProfile, PersistableProfile.class);
-
-                for (String s : pr.intStatNames()) loadedProfile.setInt(s, tempProfile.intStats.getOrDefault(s, pr.getDefaultInt(s)));
-                for (String s : pr.floatStatNames()) loadedProfile.setFloat(s, tempProfile.floatStats.getOrDefault(s, pr.getDefaultFloat(s)));
-                for (String s : pr.doubleStatNames()) loadedProfile.setDouble(s, tempProfile.doubleStats.getOrDefault(s, pr.getDefaultDouble(s)));
-                for (String s : pr.stringSetStatNames()) loadedProfile.setStringSet(s, tempProfile.stringSetStats.getOrDefault(s, new HashSet<>()));
-                for (String s : pr.booleanStatNames()) loadedProfile.setBoolean(s, tempProfile.booleanStats.getOrDefault(s, pr.getDefaultBoolean(s)));
-
-                profiles.put(pr.getClass(), loadedProfile);
+            Map<Class<? extends Profile>, Profile> profiles = new HashMap<>();
+            boolean runPersistentStartingPerks = false;
+            for (Profile pr : ProfileRegistry.getProfileTypes().profiles()) {
+                Profile profile = readProfile(p, pr);
+                if (profile == null) {
+                    profile = pr.getBlankProfile(p);
+                    runPersistentStartingPerks = true;
+                }
+                profiles.put(pr.getClass(), profile);
             }
-            persistentProfiles.put(p.getUniqueId(), profiles);
+            store.finishLoad(p.getUniqueId(), profiles);
             p.sendMessage(Utils.chat(TranslationManager.getTranslation("status_profiles_loaded")));
 
             JoinLeaveListener.getLoadedProfiles().add(p.getUniqueId());
-            SkillRegistry.updateSkillProgression(p, false);
+            SkillRegistry.updateSkillProgression(p, runPersistentStartingPerks);
         });
     }
 
     @Override
     public void saveAllProfiles() {
-        for (UUID p : new HashSet<>(persistentProfiles.keySet())){
-            if (!JoinLeaveListener.getLoadedProfiles().contains(p)) continue;
-            Player player = Bukkit.getPlayer(p);
+        for (ProfileStore.Entry entry : store.getEntries()){
+            if (!entry.isLoaded()) continue;
+            Player player = Bukkit.getPlayer(entry.getOwner());
             if (player == null || !player.isOnline()) {
-                persistentProfiles.remove(p);
+                // the data container of an offline player can't be written to, their profiles were saved when they left
+                if (store.beginUnload(entry)) {
+                    entry.getPersistentProfiles().forEach(Profile::markClean);
+                    store.finishUnload(entry);
+                    unreadableProfiles.remove(entry.getOwner());
+                }
                 continue;
             }
-            saveProfile(player);
+            store.beginSave(entry);
+            writeProfiles(player, entry);
+            store.finishSave(entry);
         }
     }
 
     @Override
-    public void saveProfile(Player p) {
-        if (persistentProfiles.containsKey(p.getUniqueId()) &&
-                JoinLeaveListener.getLoadedProfiles().contains(p.getUniqueId())){
-            for (Profile pr : persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>()).values()){
-                PersistableProfile tempProfile = new PersistableProfile();
-
-                for (String s : pr.intStatNames()) tempProfile.intStats.put(s, pr.getInt(s));
-                for (String s : pr.floatStatNames()) tempProfile.floatStats.put(s, pr.getFloat(s));
-                for (String s : pr.doubleStatNames()) tempProfile.doubleStats.put(s, pr.getDouble(s));
-                for (String s : pr.stringSetStatNames()) tempProfile.stringSetStats.put(s, pr.getStringSet(s));
-                for (String s : pr.booleanStatNames()) tempProfile.booleanStats.put(s, pr.getBoolean(s));
-
-                String jsonProfile = gson.toJson(tempProfile);
-                p.getPersistentDataContainer().set(pr.getKey(), PersistentDataType.STRING, jsonProfile);
+    public boolean persistProfiles(UUID owner) {
+        ProfileStore.Entry entry = store.get(owner);
+        if (entry == null || !entry.isLoaded()) return true;
+        Player player = Bukkit.getPlayer(owner);
+        if (player == null || !player.isOnline()) {
+            // the data container of an offline player can't be written to, their profiles were saved when they left
+            if (store.beginUnload(entry)) {
+                entry.getPersistentProfiles().forEach(Profile::markClean);
+                store.finishUnload(entry);
+                unreadableProfiles.remove(entry.getOwner());
             }
+            return true;
         }
+        store.beginSave(entry);
+        writeProfiles(player, entry);
+        store.finishSave(entry);
+        return true;
+    }
+
+    @Override
+    public void saveProfile(Player p) {
+        ProfileStore.Entry entry = store.get(p.getUniqueId());
+        if (entry == null || !entry.isLoaded() || !store.beginUnload(entry)) return;
+        store.beginSave(entry);
+        writeProfiles(p, entry);
+        store.finishSave(entry);
+        store.finishUnload(entry);
+        unreadableProfiles.remove(p.getUniqueId());
+    }
+
+    private void writeProfiles(Player p, ProfileStore.Entry entry){
+        Set<Class<? extends Profile>> unreadable = unreadableProfiles.get(p.getUniqueId());
+        for (Profile pr : entry.getPersistentProfiles()){
+            if (!pr.isDirty()) continue;
+            pr.markClean();
+            if (unreadable != null && unreadable.remove(pr.getClass())) backupUnreadable(p, pr);
+            p.getPersistentDataContainer().set(pr.getKey(), PersistentDataType.BYTE_ARRAY, ProfileCodec.encode(pr));
+        }
+    }
+
+    /**
+     * Copies the stored data of a profile that couldn't be read to a backup key before the reset profile is written over
+     * it, so it isn't lost if it was stored by a newer version of the plugin or only partially corrupted. An earlier
+     * backup isn't overwritten.
+     */
+    private void backupUnreadable(Player p, Profile profile){
+        PersistentDataContainer container = p.getPersistentDataContainer();
+        byte[] data = container.get(profile.getKey(), PersistentDataType.BYTE_ARRAY);
+        if (data == null) return;
+        NamespacedKey backupKey = new NamespacedKey(ValhallaMMO.getInstance(), profile.getKey().getKey() + "_unreadable");
+        if (container.has(backupKey, PersistentDataType.BYTE_ARRAY)) return;
+        container.set(backupKey, PersistentDataType.BYTE_ARRAY, data);
+        ValhallaMMO.logWarning("Backed up " + p.getName() + "'s unreadable profile of type " + profile.getClass().getSimpleName() + " under key " + backupKey);
+    }
+
+    /**
+     * Reads the player's profile of the given type from their data container. Profiles are stored encoded by
+     * {@link ProfileCodec}, but profiles still stored as JSON by older versions are read too. Those are marked as changed
+     * so they're stored in the new format on the next save.
+     * @param p the player to read the profile of
+     * @param type the type of profile to read
+     * @return the read profile, or null if the player had none stored
+     */
+    private Profile readProfile(Player p, Profile type){
+        Profile loadedProfile = type.getBlankProfile(p);
+        PersistentDataContainer container = p.getPersistentDataContainer();
+        if (container.has(type.getKey(), PersistentDataType.BYTE_ARRAY)){
+            try {
+                ProfileCodec.decode(container.get(type.getKey(), PersistentDataType.BYTE_ARRAY), loadedProfile);
+            } catch (IOException e){
+                ValhallaMMO.logSevere("Could not read " + p.getName() + "'s profile of type " + type.getClass().getSimpleName() + ", it was reset. The stored data is backed up before it's overwritten");
+                e.printStackTrace();
+                loadedProfile = type.getBlankProfile(p);
+                unreadableProfiles.computeIfAbsent(p.getUniqueId(), k -> ConcurrentHashMap.newKeySet()).add(type.getClass());
+            }
+            loadedProfile.markClean();
+        } else if (container.has(type.getKey(), PersistentDataType.STRING)){
+            PersistableProfile tempProfile = gson.fromJson(container.get(type.getKey(), PersistentDataType.STRING), PersistableProfile.class);
+            if (tempProfile != null){
+                for (String s : type.intStatNames()) loadedProfile.setInt(s, tempProfile.intStats.getOrDefault(s, type.getDefaultInt(s)));
+                for (String s : type.floatStatNames()) loadedProfile.setFloat(s, tempProfile.floatStats.getOrDefault(s, type.getDefaultFloat(s)));
+                for (String s : type.doubleStatNames()) loadedProfile.setDouble(s, tempProfile.doubleStats.getOrDefault(s, type.getDefaultDouble(s)));
+                for (String s : type.stringSetStatNames()) loadedProfile.setStringSet(s, tempProfile.stringSetStats.getOrDefault(s, new HashSet<>()));
+                for (String s : type.booleanStatNames()) loadedProfile.setBoolean(s, tempProfile.booleanStats.getOrDefault(s, type.getDefaultBoolean(s)));
+            }
+            loadedProfile.markAllDirty(); // migrated to the binary format on the next save
+        } else return null;
+        return loadedProfile;
     }
 
     /**
+     * Stats used to be stored as JSON of this class, it's only still used to read and migrate profiles stored that way.
      * A standard {@link Profile} is too complicated to persist efficiently, so we simply store all of a profile's stats in
      * this temporary PersistableProfile object for easier fetching and storing. This also allows us to
      * replace missing values with a default value in case new stats were added to a profile type
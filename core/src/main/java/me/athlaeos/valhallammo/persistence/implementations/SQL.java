@@ -1,10 +1,15 @@
 package me.athlaeos.valhallammo.persistence.implementations;
 
 import me.athlaeos.valhallammo.ValhallaMMO;
-import me.athlaeos.valhallammo.configuration.ConfigManager;
 import me.athlaeos.valhallammo.listeners.JoinLeaveListener;
 import me.athlaeos.valhallammo.localization.TranslationManager;
+import me.athlaeos.valhallammo.persistence.ConnectionPool;
+import me.athlaeos.valhallammo.persistence.ConnectionSettings;
 import me.athlaeos.valhallammo.persistence.Database;
+import me.athlaeos.valhallammo.persistence.ProfileBatchReader;
+import me.athlaeos.valhallammo.persistence.ProfileBatchWriter;
+import me.athlaeos.valhallammo.persistence.ProfileJournal;
+import me.athlaeos.valhallammo.persistence.ProfileStore;
 import me.athlaeos.valhallammo.playerstats.LeaderboardCompatible;
 import me.athlaeos.valhallammo.playerstats.LeaderboardEntry;
 import me.athlaeos.valhallammo.persistence.ProfilePersistence;
@@ -15,168 +20,149 @@ import me.athlaeos.valhallammo.skills.skills.SkillRegistry;
 import me.athlaeos.valhallammo.utility.Utils;
 
 import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.sql.*;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class SQL extends ProfilePersistence implements Database, LeaderboardCompatible {
-    private final Map<UUID, Map<Class<? extends Profile>, Profile>> persistentProfiles = new HashMap<>();
-    private final Map<UUID, Map<Class<? extends Profile>, Profile>> skillProfiles = new HashMap<>();
 
-    private Connection conn;
-    @Override
-    public Connection getConnection() {
-        YamlConfiguration config = ConfigManager.getConfig("config.yml").reload().get();
-        String host = config.getString("db_host");
-        String database = config.getString("db_database");
-        String username = config.getString("db_username");
-        String password = config.getString("db_password");
-        int port = config.getInt("db_port");
-        int ping_delay = config.getInt("db_ping_delay");
-        try {
-            if (conn != null && !conn.isClosed()) {
-                return conn;
-            }
+    private final ConnectionPool pool;
 
-            synchronized (ValhallaMMO.getInstance()) {
-                if (conn != null && !conn.isClosed()) {
-                    return conn;
-                }
-                Class.forName("com.mysql.jdbc.Driver");
-                conn = DriverManager.getConnection("jdbc:mysql://" + host + ":" + port + "/" + database, username, password);
-
-                ValhallaMMO.logFine("Database connection created!");
-            }
+    public SQL(ConnectionSettings settings){
+        ConnectionPool pool = new ConnectionPool(settings, () -> DriverManager.getConnection(settings.jdbcUrl(), settings.username(), settings.password()));
+        try {
+            Class.forName("com.mysql.jdbc.Driver");
+            pool.start();
+            ValhallaMMO.logFine("Database connection pool created!");
         } catch (Exception e) {
             ValhallaMMO.logInfo("Database connection failed, attempting SQLite for profile persistence");
-            return null;
-        }
-        if (conn != null){
-            new BukkitRunnable(){
-                @Override
-                public void run() {
-                    try {
-                        conn.prepareStatement("/* ping */ SELECT 1;").execute();
-                    } catch (SQLException ex){
-                        ValhallaMMO.logWarning("Database ping failed");
-                        cancel();
-                    }
-                }
-            }.runTaskTimerAsynchronously(ValhallaMMO.getInstance(), ping_delay, ping_delay);
+            pool.close();
+            pool = null;
         }
-        return conn;
+        this.pool = pool;
     }
 
     @Override
-    public void addColumnIfNotExists(String tableName, String columnName, String columnType) {
-        try {
-            PreparedStatement procedureCreationStatement = conn.prepareStatement(
-                    "SELECT " + columnName + " FROM " + tableName + ";");
-            procedureCreationStatement.execute();
-        } catch (SQLException e){
-            try {
-                PreparedStatement procedureCreationStatement = conn.prepareStatement(
-                        "ALTER TABLE " + tableName + " ADD COLUMN " + columnName + " " + columnType + ";");
-                procedureCreationStatement.execute();
-            } catch (SQLException ex){
-                ValhallaMMO.logSevere("SQLException when trying to add column " + columnName + " " + columnType + " to " + tableName + ". ");
-                e.printStackTrace();
-            }
-        }
+    public Connection getConnection() throws SQLException {
+        if (pool == null) throw new SQLException("No database connection could be established");
+        return pool.borrow();
+    }
+
+    @Override
+    public ConnectionPool getPool() {
+        return pool;
     }
 
     @Override
     public void setPersistentProfile(Player p, Profile profile, Class<? extends Profile> type) {
-        Map<Class<? extends Profile>, Profile> profiles = persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>());
-        profiles.put(type, profile);
-        persistentProfiles.put(p.getUniqueId(), profiles);
+        Profile previous = store.setPersistentProfile(p.getUniqueId(), type, profile);
+        profile.setJournal(ProfileRegistry.getJournal());
+        if (previous != profile) profile.markAllDirty(); // a replaced profile (like after a reset) has to be written whole
         ProfilePersistence.scheduleProfilePersisting(p, type);
     }
 
     @Override
     public void setSkillProfile(Player p, Profile profile, Class<? extends Profile> type) {
-        Map<Class<? extends Profile>, Profile> profiles = skillProfiles.getOrDefault(p.getUniqueId(), new HashMap<>());
-        profiles.put(type, profile);
-        skillProfiles.put(p.getUniqueId(), profiles);
+        store.setSkillProfile(p.getUniqueId(), type, profile);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T extends Profile> T getPersistentProfile(Player p, Class<T> type) {
-        return (T) persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>()).get(type);
+        return (T) store.getPersistentProfile(p.getUniqueId(), type);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T extends Profile> T getSkillProfile(Player p, Class<T> type) {
-        return (T) skillProfiles.getOrDefault(p.getUniqueId(), new HashMap<>()).get(type);
+        return (T) store.getSkillProfile(p.getUniqueId(), type);
     }
 
     @Override
     public void loadProfile(Player p) {
-        if (persistentProfiles.containsKey(p.getUniqueId())) return; // stats are presumably already loaded in and so they do not
+        if (!claimLoad(p)) return; // stats are presumably already loaded in, and so they do not
         // need to be loaded in from the database again
+        Map<Class<? extends Profile>, Profile> prefetchedProfiles = prefetcher.take(p.getUniqueId());
+        if (prefetchedProfiles != null) {
+            finishLoad(p, prefetchedProfiles);
+            return;
+        }
         Database database = this;
-        Bukkit.getScheduler().runTaskAsynchronously(ValhallaMMO.getInstance(), () -> {
-            boolean runPersistentStartingPerks = false;
-            Map<Class<? extends Profile>, Profile> profs = persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>());
-            for (Profile pr : ProfileRegistry.getRegisteredProfiles().values()){
-                try {
-                    Profile profile = pr.fetchProfile(p, database);
-                    if (profile == null) {
-                        profile = ProfileRegistry.getBlankProfile(p, pr.getClass());
-                        runPersistentStartingPerks = true;
-                    }
-                    profs.put(profile.getClass(), profile);
-                } catch (SQLException e){
-                    ValhallaMMO.logSevere("SQLException when trying to fetch " + p.getName() + "'s profile of type " + pr.getClass().getSimpleName() + ". ");
-                    e.printStackTrace();
-                }
+        Bukkit.getScheduler().runTaskAsynchronously(ValhallaMMO.getInstance(), () ->
+                finishLoad(p, ProfileBatchReader.fetchProfiles(database, p, ProfileRegistry.getProfileTypes().profiles())));
+    }
+
+    @Override
+    public void prefetchProfiles(UUID owner) {
+        ProfileStore.Entry entry = store.get(owner);
+        if (entry != null && entry.isLoaded()) return; // still in memory, so those will be used when they join
+        prefetcher.stage(owner, ProfileBatchReader.fetchProfiles(this, owner, ProfileRegistry.getProfileTypes().profiles()));
+    }
+
+    @Override
+    protected Map<Class<? extends Profile>, Profile> readOfflineProfiles(UUID owner) {
+        return ProfileBatchReader.fetchProfiles(this, owner, ProfileRegistry.getProfileTypes().profiles());
+    }
+
+    private void finishLoad(Player p, Map<Class<? extends Profile>, Profile> fetchedProfiles){
+        Map<Class<? extends Profile>, Profile> profs = new HashMap<>();
+        boolean runPersistentStartingPerks = false;
+        for (Profile pr : ProfileRegistry.getProfileTypes().profiles()){
+            if (!fetchedProfiles.containsKey(pr.getClass())) continue; // profile could not be fetched, already logged
+            Profile profile = fetchedProfiles.get(pr.getClass());
+            if (profile == null) {
+                profile = ProfileRegistry.getBlankProfile(p, pr.getClass());
+                runPersistentStartingPerks = true;
             }
-            persistentProfiles.put(p.getUniqueId(), profs);
-            p.sendMessage(Utils.chat(TranslationManager.getTranslation("status_profiles_loaded")));
+            profile.setJournal(ProfileRegistry.getJournal());
+            profs.put(profile.getClass(), profile);
+        }
+        store.finishLoad(p.getUniqueId(), profs);
+        p.sendMessage(Utils.chat(TranslationManager.getTranslation("status_profiles_loaded")));
 
-            JoinLeaveListener.getLoadedProfiles().add(p.getUniqueId());
-            SkillRegistry.updateSkillProgression(p, runPersistentStartingPerks);
-        });
+        JoinLeaveListener.getLoadedProfiles().add(p.getUniqueId());
+        SkillRegistry.updateSkillProgression(p, runPersistentStartingPerks);
     }
 
     @Override
     public void saveAllProfiles() {
-        for (UUID p : new HashSet<>(persistentProfiles.keySet())){
-            if (!persistentProfiles.containsKey(p)) continue;
-            Player player = Bukkit.getPlayer(p);
-            for (Profile profile : persistentProfiles.getOrDefault(p, new HashMap<>()).values()){
-                try {
-                    profile.insertOrUpdateProfile(this);
-                } catch (SQLException e){
-                    Bukkit.getLogger().severe("SQLException when trying to save profile for profile type " + profile.getClass().getName() + ". ");
-                    e.printStackTrace();
-                }
-            }
-            if (player == null || !player.isOnline()) persistentProfiles.remove(p);
+        Collection<ProfileStore.Entry> entries = new ArrayList<>();
+        Collection<Profile> profiles = new ArrayList<>();
+        for (ProfileStore.Entry entry : store.getEntries()){
+            if (!entry.isLoaded() || !store.beginSave(entry)) continue;
+            entries.add(entry);
+            profiles.addAll(entry.getPersistentProfiles());
         }
+        // changes journaled up until now are included in this save, so they may be discarded once it succeeds
+        ProfileJournal journal = ProfileRegistry.getJournal();
+        long sealedSegment = journal == null ? -1 : journal.rotate();
+        if (ProfileBatchWriter.saveProfiles(this, profiles) && journal != null) journal.discard(sealedSegment);
+        entries.forEach(store::finishSave);
+        // offline players are unloaded, unless their profiles failed to save in which case they're kept so they may be saved next time
+        for (ProfileStore.Entry entry : store.getEntries()){
+            Player player = Bukkit.getPlayer(entry.getOwner());
+            if ((player == null || !player.isOnline()) && store.beginUnload(entry)) store.finishUnload(entry);
+        }
+    }
+
+    @Override
+    public boolean persistProfiles(UUID owner) {
+        return persistProfiles(this, owner);
     }
 
     @Override
     public void saveProfile(Player p) {
-        if (persistentProfiles.containsKey(p.getUniqueId())){
-            Bukkit.getScheduler().runTaskAsynchronously(ValhallaMMO.getInstance(), () -> {
-                for (Profile profile : persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>()).values()){
-                    try {
-                        profile.insertOrUpdateProfile(this);
-                    } catch (SQLException e){
-                        Bukkit.getLogger().severe("SQLException when trying to save profile for profile type " + profile.getClass().getName() + ". ");
-                        e.printStackTrace();
-                    }
-                }
-            });
-        }
+        ProfileStore.Entry entry = store.get(p.getUniqueId());
+        if (entry == null || !entry.isLoaded() || !store.beginUnload(entry)) return;
+        if (!store.beginSave(entry)) return; // imported over, and dropped once the import is written
+        Collection<Profile> profiles = new ArrayList<>(entry.getPersistentProfiles());
+        Bukkit.getScheduler().runTaskAsynchronously(ValhallaMMO.getInstance(), () -> {
+            ProfileBatchWriter.saveProfiles(this, profiles);
+            store.finishSave(entry);
+            store.finishUnload(entry); // kept in memory if the player logged back in or the save failed
+        });
     }
 
     public static String leaderboardQuery(Profile p, String stat, Collection<String> extraStats){
@@ -198,18 +184,18 @@ public class SQL extends ProfilePersistence implements Database, LeaderboardComp
     @Override
     public Map<Integer, LeaderboardEntry> queryLeaderboardEntries(LeaderboardManager.Leaderboard leaderboard) {
         Map<Integer, LeaderboardEntry> entries = new HashMap<>();
-        Profile profile = ProfileRegistry.getRegisteredProfiles().get(leaderboard.profile());
-        try {
-            PreparedStatement stmt = conn.prepareStatement(leaderboardQuery(profile, leaderboard.mainStat(), leaderboard.extraStats().values()));
+        Profile profile = ProfileRegistry.getProfileTypes().get(leaderboard.profile());
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(leaderboardQuery(profile, leaderboard.mainStat(), leaderboard.extraStats().values()))) {
             ResultSet set = stmt.executeQuery();
             int rank = 1;
             while (set.next()){
                 double value = set.getDouble("main_stat");
                 UUID uuid = UUID.fromString(set.getString("owner"));
-                OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
+                String name = getPlayerName(uuid);
                 Map<String, Double> extraStat = new HashMap<>();
                 for (String e : leaderboard.extraStats().values()) extraStat.put(e, set.getDouble(e));
-                entries.put(rank, new LeaderboardEntry(player.getName(), player.getUniqueId(), value, rank, extraStat));
+                entries.put(rank, new LeaderboardEntry(name == null ? uuid.toString() : name, uuid, value, rank, extraStat));
                 rank++;
             }
         } catch (SQLException ex){
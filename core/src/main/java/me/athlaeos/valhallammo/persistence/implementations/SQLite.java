@@ -1,9 +1,16 @@
 package me.athlaeos.valhallammo.persistence.implementations;
 
 import me.athlaeos.valhallammo.ValhallaMMO;
+import me.athlaeos.valhallammo.configuration.ConfigManager;
 import me.athlaeos.valhallammo.listeners.JoinLeaveListener;
 import me.athlaeos.valhallammo.localization.TranslationManager;
+import me.athlaeos.valhallammo.persistence.ConnectionPool;
+import me.athlaeos.valhallammo.persistence.ConnectionSettings;
 import me.athlaeos.valhallammo.persistence.Database;
+import me.athlaeos.valhallammo.persistence.ProfileBatchReader;
+import me.athlaeos.valhallammo.persistence.ProfileBatchWriter;
+import me.athlaeos.valhallammo.persistence.ProfileJournal;
+import me.athlaeos.valhallammo.persistence.ProfileStore;
 import me.athlaeos.valhallammo.playerstats.LeaderboardCompatible;
 import me.athlaeos.valhallammo.playerstats.LeaderboardEntry;
 import me.athlaeos.valhallammo.persistence.ProfilePersistence;
@@ -14,7 +21,7 @@ import me.athlaeos.valhallammo.skills.skills.SkillRegistry;
 import me.athlaeos.valhallammo.utility.Utils;
 
 import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 
@@ -22,13 +29,28 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.*;
 
+/**
+ * Persists profiles in a local SQLite database file. The database runs in write-ahead-log mode, so reads can continue
+ * while a write is in progress. All writes are funneled through a single writer thread with its own connection, so writers
+ * never compete for the database lock, while reads use a small pool of read-only connections.
+ */
 public class SQLite extends ProfilePersistence implements Database, LeaderboardCompatible {
-    private final Map<UUID, Map<Class<? extends Profile>, Profile>> persistentProfiles = new HashMap<>();
-    private final Map<UUID, Map<Class<? extends Profile>, Profile>> skillProfiles = new HashMap<>();
-    private Connection conn;
-    @Override
-    public Connection getConnection() {
+    private static final Collection<String> SYNCHRONOUS_MODES = Set.of("OFF", "NORMAL", "FULL", "EXTRA");
+
+    private final File file;
+    private final Pragmas pragmas;
+    private final ConnectionPool pool;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ValhallaMMO SQLite writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Thread writerThread = null;
+    private Connection writeConnection = null; // only ever touched by the writer thread
+
+    public SQLite(ConnectionSettings settings){
         File dataFolder = new File(ValhallaMMO.getInstance().getDataFolder(), "player_data.db");
         if (!dataFolder.exists()){
             try {
@@ -37,149 +59,270 @@ public class SQLite extends ProfilePersistence implements Database, LeaderboardC
                 ValhallaMMO.logSevere("Could not create SQLite database file player_data.db");
             }
         }
+        this.file = dataFolder;
+        this.pragmas = Pragmas.fromConfig(ConfigManager.getConfig("config.yml").get());
 
+        ConnectionPool pool = new ConnectionPool(settings.withMaxPoolSize(pragmas.readConnections()), this::openReadConnection);
         try {
-            if(conn != null && !conn.isClosed()){
-                return conn;
-            }
             Class.forName("org.sqlite.JDBC");
-            conn = DriverManager.getConnection("jdbc:sqlite:" + dataFolder);
+            write(connection -> null); // opens the write connection, switching the database to write-ahead-log mode before anything is read
+            pool.start();
             ValhallaMMO.logFine("SQLite connection created! Deleting this file will reset everyone's progress, so back this file up or ignore it in case you want to delete/reset the configs.");
-            return conn;
         } catch (SQLException ex) {
             ValhallaMMO.logSevere("SQLite exception on initialize " + ex);
+            pool.close();
+            pool = null;
         } catch (ClassNotFoundException ex) {
             ValhallaMMO.logInfo("You do not have the SQLite JDBC library on your server, defaulted to Persistent Data Container storage");
+            pool.close();
+            pool = null;
         }
-        return null;
+        this.pool = pool;
+        if (pool == null) writer.shutdown();
+    }
+
+    /**
+     * Borrows a read-only connection. Anything writing to the database should go through {@link #write(ConnectionTask)} instead.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (pool == null) throw new SQLException("No SQLite connection could be established");
+        return pool.borrow();
+    }
+
+    @Override
+    public ConnectionPool getPool() {
+        return pool;
     }
 
+    /**
+     * Queues the task to be run by the writer thread, and waits for it to be done. Tasks are run one at a time in the
+     * order they were queued.
+     */
     @Override
-    public void addColumnIfNotExists(String tableName, String columnName, String columnType) {
+    public <T> T write(ConnectionTask<T> task) throws SQLException {
+        if (Thread.currentThread() == writerThread) return task.run(writeConnection()); // a write nested in another write
+        Future<T> result;
+        try {
+            result = writer.submit(() -> task.run(writeConnection()));
+        } catch (RejectedExecutionException e){
+            throw new SQLException("SQLite writer was shut down", e);
+        }
         try {
-            PreparedStatement procedureCreationStatement = conn.prepareStatement(
-                    "SELECT " + columnName + " FROM " + tableName + ";");
-            procedureCreationStatement.execute();
+            return result.get();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a SQLite write", e);
+        } catch (ExecutionException e){
+            if (e.getCause() instanceof SQLException ex) throw ex;
+            throw new SQLException("SQLite write failed", e.getCause());
+        }
+    }
+
+    private Connection writeConnection() throws SQLException {
+        writerThread = Thread.currentThread();
+        if (writeConnection == null || writeConnection.isClosed()){
+            writeConnection = DriverManager.getConnection("jdbc:sqlite:" + file);
+            try (Statement stmt = writeConnection.createStatement()) {
+                stmt.execute("PRAGMA journal_mode = WAL;");
+                applyPragmas(stmt);
+            }
+        }
+        return writeConnection;
+    }
+
+    private Connection openReadConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file);
+        try (Statement stmt = connection.createStatement()) {
+            applyPragmas(stmt);
+            stmt.execute("PRAGMA query_only = ON;");
         } catch (SQLException e){
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private void applyPragmas(Statement stmt) throws SQLException {
+        stmt.execute("PRAGMA synchronous = " + pragmas.synchronous() + ";");
+        stmt.execute("PRAGMA cache_size = " + pragmas.cacheSize() + ";");
+        stmt.execute("PRAGMA mmap_size = " + pragmas.mmapSize() + ";");
+        stmt.execute("PRAGMA busy_timeout = " + pragmas.busyTimeout() + ";");
+    }
+
+    /**
+     * Closes the read connections, and the write connection once all queued writes are done
+     */
+    @Override
+    public void close() {
+        if (pool != null) pool.close();
+        writer.execute(() -> {
             try {
-                PreparedStatement procedureCreationStatement = conn.prepareStatement(
-                        "ALTER TABLE " + tableName + " ADD COLUMN " + columnName + " " + columnType + ";");
-                procedureCreationStatement.execute();
-            } catch (SQLException ex){
-                ValhallaMMO.logSevere("SQLException when trying to add column " + columnName + " " + columnType + " to " + tableName + ". ");
-                e.printStackTrace();
+                if (writeConnection != null) writeConnection.close();
+            } catch (SQLException ignored){}
+        });
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) ValhallaMMO.logWarning("SQLite writer did not finish its queued writes in time");
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param readConnections the maximum amount of read-only connections open at once
+     * @param synchronous how strictly SQLite waits for writes to reach the disk. NORMAL is safe in write-ahead-log mode,
+     *                    only the most recent writes may be lost on a power loss
+     * @param cacheSize the page cache size, in pages if positive or in KiB if negative
+     * @param mmapSize the maximum amount of bytes of the database file to memory-map, 0 to disable
+     * @param busyTimeout the time (in milliseconds) to wait on a locked database before giving up
+     */
+    private record Pragmas(int readConnections, String synchronous, int cacheSize, long mmapSize, int busyTimeout){
+        private static Pragmas fromConfig(YamlConfiguration config){
+            String synchronous = config.getString("sqlite_synchronous", "NORMAL").toUpperCase(Locale.US);
+            if (!SYNCHRONOUS_MODES.contains(synchronous)) {
+                ValhallaMMO.logWarning("Invalid sqlite_synchronous mode " + synchronous + ", using NORMAL instead");
+                synchronous = "NORMAL";
             }
+            return new Pragmas(
+                    Math.max(1, config.getInt("sqlite_read_connections", 4)),
+                    synchronous,
+                    config.getInt("sqlite_cache_size", -8000),
+                    Math.max(0, config.getLong("sqlite_mmap_size", 134217728L)),
+                    Math.max(0, config.getInt("sqlite_busy_timeout", 5000))
+            );
         }
     }
 
     @Override
     public void setPersistentProfile(Player p, Profile profile, Class<? extends Profile> type) {
-        Map<Class<? extends Profile>, Profile> profiles = persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>());
-        profiles.put(type, profile);
-        persistentProfiles.put(p.getUniqueId(), profiles);
+        Profile previous = store.setPersistentProfile(p.getUniqueId(), type, profile);
+        profile.setJournal(ProfileRegistry.getJournal());
+        if (previous != profile) profile.markAllDirty(); // a replaced profile (like after a reset) has to be written whole
         ProfilePersistence.scheduleProfilePersisting(p, type);
     }
 
     @Override
     public void setSkillProfile(Player p, Profile profile, Class<? extends Profile> type) {
-        Map<Class<? extends Profile>, Profile> profiles = skillProfiles.getOrDefault(p.getUniqueId(), new HashMap<>());
-        profiles.put(type, profile);
-        skillProfiles.put(p.getUniqueId(), profiles);
+        store.setSkillProfile(p.getUniqueId(), type, profile);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T extends Profile> T getPersistentProfile(Player p, Class<T> type) {
-        return (T) persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>()).get(type);
+        return (T) store.getPersistentProfile(p.getUniqueId(), type);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T extends Profile> T getSkillProfile(Player p, Class<T> type) {
-        return (T) skillProfiles.getOrDefault(p.getUniqueId(), new HashMap<>()).get(type);
+        return (T) store.getSkillProfile(p.getUniqueId(), type);
     }
 
     @Override
     public void loadProfile(Player p) {
-        if (persistentProfiles.containsKey(p.getUniqueId())) return; // stats are presumably already loaded in, and so they do not
+        if (!claimLoad(p)) return; // stats are presumably already loaded in, and so they do not
         // need to be loaded in from the database again
+        Map<Class<? extends Profile>, Profile> prefetchedProfiles = prefetcher.take(p.getUniqueId());
+        if (prefetchedProfiles != null) {
+            finishLoad(p, prefetchedProfiles);
+            return;
+        }
         Database database = this;
         new BukkitRunnable(){
             @Override
             public void run() {
-                Map<Class<? extends Profile>, Profile> profs = persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>());
-                boolean runPersistentStartingPerks = false;
-                for (Profile pr : ProfileRegistry.getRegisteredProfiles().values()){
-                    try {
-                        Profile profile = pr.fetchProfile(p, database);
-                        if (profile == null) {
-                            profile = ProfileRegistry.getBlankProfile(p, pr.getClass());
-                            runPersistentStartingPerks = true;
-                        }
-                        profs.put(profile.getClass(), profile);
-                    } catch (SQLException e){
-                        ValhallaMMO.logSevere("SQLException when trying to fetch " + p.getName() + "'s profile of type " + pr.getClass().getSimpleName() + ". ");
-                        e.printStackTrace();
-                    }
-                }
-                persistentProfiles.put(p.getUniqueId(), profs);
-                Utils.sendMessage(p, TranslationManager.getTranslation("status_profiles_loaded"));
-
-                JoinLeaveListener.getLoadedProfiles().add(p.getUniqueId());
-                SkillRegistry.updateSkillProgression(p, runPersistentStartingPerks);
+                finishLoad(p, ProfileBatchReader.fetchProfiles(database, p, ProfileRegistry.getProfileTypes().profiles()));
             }
         }.runTaskAsynchronously(ValhallaMMO.getInstance());
     }
 
     @Override
-    public void saveAllProfiles() {
-        for (UUID p : new HashSet<>(persistentProfiles.keySet())){
-            Player player = Bukkit.getPlayer(p);
-            for (Profile profile : persistentProfiles.getOrDefault(p, new HashMap<>()).values()){
-                if (!shouldPersist(profile)) continue;
-                try {
-                    profile.insertOrUpdateProfile(this);
-                } catch (SQLException e){
-                    Bukkit.getLogger().severe("SQLException when trying to save profile for profile type " + profile.getClass().getName() + ". ");
-                    e.printStackTrace();
-                }
+    public void prefetchProfiles(UUID owner) {
+        ProfileStore.Entry entry = store.get(owner);
+        if (entry != null && entry.isLoaded()) return; // still in memory, so those will be used when they join
+        prefetcher.stage(owner, ProfileBatchReader.fetchProfiles(this, owner, ProfileRegistry.getProfileTypes().profiles()));
+    }
+
+    @Override
+    protected Map<Class<? extends Profile>, Profile> readOfflineProfiles(UUID owner) {
+        return ProfileBatchReader.fetchProfiles(this, owner, ProfileRegistry.getProfileTypes().profiles());
+    }
+
+    private void finishLoad(Player p, Map<Class<? extends Profile>, Profile> fetchedProfiles){
+        Map<Class<? extends Profile>, Profile> profs = new HashMap<>();
+        boolean runPersistentStartingPerks = false;
+        for (Profile pr : ProfileRegistry.getProfileTypes().profiles()){
+            if (!fetchedProfiles.containsKey(pr.getClass())) continue; // profile could not be fetched, already logged
+            Profile profile = fetchedProfiles.get(pr.getClass());
+            if (profile == null) {
+                profile = ProfileRegistry.getBlankProfile(p, pr.getClass());
+                runPersistentStartingPerks = true;
             }
-            if (player == null || !player.isOnline()) persistentProfiles.remove(p);
+            profile.setJournal(ProfileRegistry.getJournal());
+            profs.put(profile.getClass(), profile);
         }
+        store.finishLoad(p.getUniqueId(), profs);
+        Utils.sendMessage(p, TranslationManager.getTranslation("status_profiles_loaded"));
+
+        JoinLeaveListener.getLoadedProfiles().add(p.getUniqueId());
+        SkillRegistry.updateSkillProgression(p, runPersistentStartingPerks);
     }
 
     @Override
-    public void saveProfile(Player p) {
-        if (persistentProfiles.containsKey(p.getUniqueId())){
-            Bukkit.getScheduler().runTaskAsynchronously(ValhallaMMO.getInstance(), () -> {
-                for (Profile profile : persistentProfiles.getOrDefault(p.getUniqueId(), new HashMap<>()).values()){
-                    if (!shouldPersist(profile)) continue;
-                    try {
-                        profile.insertOrUpdateProfile(this);
-                    } catch (SQLException e){
-                        Bukkit.getLogger().severe("SQLException when trying to save profile for profile type " + profile.getClass().getName() + ". ");
-                        e.printStackTrace();
-                    }
-                }
-            });
+    public void saveAllProfiles() {
+        Collection<ProfileStore.Entry> entries = new ArrayList<>();
+        Collection<Profile> profiles = new ArrayList<>();
+        for (ProfileStore.Entry entry : store.getEntries()){
+            if (!entry.isLoaded() || !store.beginSave(entry)) continue;
+            entries.add(entry);
+            profiles.addAll(entry.getPersistentProfiles());
         }
+        // changes journaled up until now are included in this save, so they may be discarded once it succeeds
+        ProfileJournal journal = ProfileRegistry.getJournal();
+        long sealedSegment = journal == null ? -1 : journal.rotate();
+        if (ProfileBatchWriter.saveProfiles(this, profiles) && journal != null) journal.discard(sealedSegment);
+        entries.forEach(store::finishSave);
+        // offline players are unloaded, unless their profiles failed to save in which case they're kept so they may be saved next time
+        for (ProfileStore.Entry entry : store.getEntries()){
+            Player player = Bukkit.getPlayer(entry.getOwner());
+            if ((player == null || !player.isOnline()) && store.beginUnload(entry)) store.finishUnload(entry);
+        }
+    }
+
+    @Override
+    public boolean persistProfiles(UUID owner) {
+        return persistProfiles(this, owner);
+    }
+
+    @Override
+    public void saveProfile(Player p) {
+        ProfileStore.Entry entry = store.get(p.getUniqueId());
+        if (entry == null || !entry.isLoaded() || !store.beginUnload(entry)) return;
+        if (!store.beginSave(entry)) return; // imported over, and dropped once the import is written
+        Collection<Profile> profiles = new ArrayList<>(entry.getPersistentProfiles());
+        Bukkit.getScheduler().runTaskAsynchronously(ValhallaMMO.getInstance(), () -> {
+            ProfileBatchWriter.saveProfiles(this, profiles);
+            store.finishSave(entry);
+            store.finishUnload(entry); // kept in memory if the player logged back in or the save failed
+        });
     }
 
     @Override
     public Map<Integer, LeaderboardEntry> queryLeaderboardEntries(LeaderboardManager.Leaderboard leaderboard) {
         Map<Integer, LeaderboardEntry> entries = new HashMap<>();
-        Profile profile = ProfileRegistry.getRegisteredProfiles().get(leaderboard.profile());
-        try {
-            PreparedStatement stmt = conn.prepareStatement(SQL.leaderboardQuery(profile, leaderboard.mainStat(), leaderboard.extraStats().values()));
+        Profile profile = ProfileRegistry.getProfileTypes().get(leaderboard.profile());
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL.leaderboardQuery(profile, leaderboard.mainStat(), leaderboard.extraStats().values()))) {
             ResultSet set = stmt.executeQuery();
             int rank = 1;
             while (set.next()){
                 double value = set.getDouble("main_stat");
                 UUID uuid = UUID.fromString(set.getString("owner"));
-                OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
+                String name = getPlayerName(uuid);
                 Map<String, Double> extraStat = new HashMap<>();
                 for (String e : leaderboard.extraStats().values()) extraStat.put(e, set.getDouble(e));
-                entries.put(rank, new LeaderboardEntry(player.getName(), player.getUniqueId(), value, rank, extraStat));
+                entries.put(rank, new LeaderboardEntry(name == null ? uuid.toString() : name, uuid, value, rank, extraStat));
                 rank++;
             }
         } catch (SQLException ex){
@@ -19,7 +19,7 @@ public class PlaceholderRegistry {
 
     static {
         // auto-registering profile stat placeholders
-        for (Profile profile : ProfileRegistry.getRegisteredProfiles().values()){
+        for (Profile profile : ProfileRegistry.getProfileTypes().profiles()){
             for (String numberStat : profile.getNumberStatProperties().keySet()) {
                 StatFormat format = profile.getNumberStatProperties().get(numberStat).getFormat();
                 if (format == null) continue;
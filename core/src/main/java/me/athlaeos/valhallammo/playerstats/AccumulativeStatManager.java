@@ -26,13 +26,22 @@ import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 @SuppressWarnings("unused")
 public class AccumulativeStatManager {
     private static final Map<String, StatCollector> sources = new HashMap<>();
+    private static final Map<String, Integer> statIds = new ConcurrentHashMap<>();
+    // stat collectors and their names by their stat id, so stats can be collected without looking them up by name
+    private static volatile StatCollector[] collectors = new StatCollector[0];
+    private static volatile String[] statNames = new String[0];
 
+    /**
+     * @return an unmodifiable map of all stat collectors by their stat name
+     */
     public static Map<String, StatCollector> getSources() {
-        return sources;
+        return Collections.unmodifiableMap(sources);
     }
 
     static {
@@ -314,13 +323,59 @@ public class AccumulativeStatManager {
         register(stat, existingSource);
     }
 
-    public static void register(String stat, StatCollector collector){
+    /**
+     * Registers a stat collector under the given stat name. The stat is given the next stat id, or keeps its id if a
+     * collector was already registered under this name, in which case it's replaced
+     * @param stat the name of the stat
+     * @param collector the collector of the stat
+     */
+    public static synchronized void register(String stat, StatCollector collector){
         sources.put(stat, collector);
+        Integer id = statIds.get(stat);
+        if (id == null) {
+            id = collectors.length;
+            statIds.put(stat, id);
+            statNames = Arrays.copyOf(statNames, id + 1);
+            statNames[id] = stat;
+            StatCollector[] grown = Arrays.copyOf(collectors, id + 1);
+            grown[id] = collector;
+            collectors = grown;
+        } else {
+            StatCollector[] replaced = collectors.clone();
+            replaced[id] = collector;
+            collectors = replaced;
+        }
     }
 
     public static StatCollector getStatCollector(String stat){
-        if (!sources.containsKey(stat)) throw new IllegalArgumentException("A stat collector with the name " + stat + " was fetched, but it does not exist");
-        return sources.get(stat);
+        return collectors[getStatId(stat)];
+    }
+
+    /**
+     * Returns the id of the stat, which stays the same for as long as the server runs. Stats should be collected by
+     * their id where they're collected often, so the stat doesn't need to be looked up by its name every time
+     * @param stat the name of the stat
+     * @return the id of the stat
+     * @throws IllegalArgumentException if no stat collector is registered under this name
+     */
+    public static int getStatId(String stat){
+        Integer id = statIds.get(stat);
+        if (id == null) throw new IllegalArgumentException("A stat collector with the name " + stat + " was fetched, but it does not exist");
+        return id;
+    }
+
+    /**
+     * @return the name of the stat with the given id
+     */
+    public static String getStatName(int stat){
+        return statNames[stat];
+    }
+
+    /**
+     * @return the amount of registered stats, every stat id is lower than this
+     */
+    public static int getStatCount(){
+        return collectors.length;
     }
 
     /**
@@ -338,15 +393,29 @@ public class AccumulativeStatManager {
      * @return the combined stat number
      */
     public static double getStats(String stat, Entity e, boolean use) {
-        StatCollector collector = getStatCollector(stat);
-        Collection<AccumulativeStatSource> existingSources = collector.getStatSources();
+        return getStats(getStatId(stat), e, use);
+    }
+
+    /**
+     * Collects all the stats of the given stat id, see {@link AccumulativeStatManager#getStats(String, Entity, boolean)}
+     * @param stat the id of the stat to gather its total from, see {@link AccumulativeStatManager#getStatId(String)}
+     * @param e the entity to gather their stats from
+     * @param use if true, it will be assumed the stat is actually being used in practice rather than being a visual
+     *            for show
+     * @return the combined stat number
+     */
+    public static double getStats(int stat, Entity e, boolean use) {
+        StatCollector collector = collectors[stat];
+        AccumulativeStatSource[] existingSources = collector.getFrozenSources().sources();
         double value = 0;
         for (AccumulativeStatSource s : existingSources){
             value += s.fetch(e, use);
         }
-        if (!collector.isAttackerPossessive() && e instanceof LivingEntity l && !(l instanceof Player)) value += MonsterScalingManager.getStatValue(l, stat);
-        if (!collector.isAttackerPossessive() && e instanceof Player p) value += PartyManager.getCompanyStats(p, stat);
-        return (double) Math.round(value * 1000000d) / 1000000d; // round to 6 decimals
+        if (!collector.isAttackerPossessive()) {
+            if (e instanceof Player p) value += PartyManager.getCompanyStats(p, statNames[stat]);
+            else if (e instanceof LivingEntity l) value += MonsterScalingManager.getStatValue(l, statNames[stat]);
+        }
+        return Utils.round6Decimals(value); // round to 6 decimals
     }
 
     /**
@@ -369,129 +438,159 @@ public class AccumulativeStatManager {
      * @return the collective stat number
      */
     public static double getRelationalStats(String stat, Entity e1, Entity e2, boolean use) {
+        if (e1 == null) return 0;
+        return getRelationalStats(getStatId(stat), e1, e2, use);
+    }
+
+    /**
+     * Collects all the stats of the given stat id, see {@link AccumulativeStatManager#getRelationalStats(String, Entity, Entity, boolean)}
+     * @param stat the id of the stat to gather its total from, see {@link AccumulativeStatManager#getStatId(String)}
+     * @param e1 the defending entity to gather their stats from
+     * @param e2 the attacking entity involved in stat accumulation
+     * @param use if true, it will be assumed the stat is actually being used in practice rather than being a visual
+     *            for show
+     * @return the collective stat number
+     */
+    public static double getRelationalStats(int stat, Entity e1, Entity e2, boolean use) {
         if (e1 == null) return 0;
         if (e2 == null) return getStats(stat, e1, use);
-        StatCollector collector = getStatCollector(stat);
-        Collection<AccumulativeStatSource> existingSources = collector.getStatSources();
+        StatCollector collector = collectors[stat];
+        StatCollector.FrozenSources frozen = collector.getFrozenSources(); // read once, so both arrays are of the same freeze
+        AccumulativeStatSource[] existingSources = frozen.sources();
+        EvEAccumulativeStatSource[] relationalSources = frozen.relationalSources();
         double value = 0;
-        for (AccumulativeStatSource s : existingSources){
-            if (s instanceof EvEAccumulativeStatSource os) value += os.fetch(e1, e2, use);
-            else value += s.fetch(e1, use);
+        for (int i = 0; i < existingSources.length; i++){
+            EvEAccumulativeStatSource os = relationalSources[i];
+            if (os != null) value += os.fetch(e1, e2, use);
+            else value += existingSources[i].fetch(e1, use);
         }
-        if (collector.isAttackerPossessive() && e2 instanceof LivingEntity l && !(l instanceof Player)) value += MonsterScalingManager.getStatValue(l, stat);
-        else if (!collector.isAttackerPossessive() && e1 instanceof LivingEntity l && !(l instanceof Player)) value += MonsterScalingManager.getStatValue(l, stat);
-        if (collector.isAttackerPossessive() && e2 instanceof Player p) value += PartyManager.getCompanyStats(p, stat);
-        else if (!collector.isAttackerPossessive() && e1 instanceof Player p) value += PartyManager.getCompanyStats(p, stat);
+        Entity possessor = collector.isAttackerPossessive() ? e2 : e1;
+        if (possessor instanceof Player p) value += PartyManager.getCompanyStats(p, statNames[stat]);
+        else if (possessor instanceof LivingEntity l) value += MonsterScalingManager.getStatValue(l, statNames[stat]);
 
         return Utils.round6Decimals(value); // round to 6 decimals
     }
 
     public static double getCachedStats(String stat, Entity p, long refreshAfter, boolean use){
         if (p == null) return 0;
-        if (isStatCached(p, stat)){
-            return getCachedStatIgnoringExpiration(p, stat);
-        } else {
-            double statValue = getStats(stat, p, use);
-            cacheStat(p, stat, statValue, refreshAfter);
-            return statValue;
+        return getCachedStats(getStatId(stat), p, refreshAfter, use);
+    }
+
+    /**
+     * Returns the stat of the entity if it's cached and unexpired, otherwise collects it and caches it
+     * @param stat the id of the stat, see {@link AccumulativeStatManager#getStatId(String)}
+     * @param p the entity to get the stat of
+     * @param refreshAfter the amount of time the collected value is cached for, in milliseconds
+     * @param use whether the stat is actually being used in practice rather than being a visual for show
+     * @return the stat of the entity
+     */
+    public static double getCachedStats(int stat, Entity p, long refreshAfter, boolean use){
+        if (p == null) return 0;
+        long now = System.currentTimeMillis();
+        CachedStats cached = statCache.get(p.getUniqueId());
+        if (cached != null) {
+            double value = cached.get(stat, now);
+            if (!Double.isNaN(value)) return value;
         }
+        double statValue = getStats(stat, p, use);
+        cacheStat(p, stat, statValue, now + refreshAfter);
+        return statValue;
     }
 
+    /**
+     * Returns the stat collected for the victim against the attacker, cached for this victim and attacker pair. If
+     * there's no attacker the stat is collected for the victim alone, see {@link AccumulativeStatManager#getCachedStats(String, Entity, long, boolean)}
+     */
     public static double getCachedRelationalStats(String stat, Entity victimPrimary, Entity attacker, long refreshAfter, boolean use){
         if (victimPrimary == null) return 0;
-        if (isStatCached(victimPrimary, stat)){
-            return getCachedStatIgnoringExpiration(victimPrimary, stat);
-        } else {
-            double statValue = getRelationalStats(stat, victimPrimary, attacker, use);
-            cacheStat(victimPrimary, stat, statValue, refreshAfter);
-            return statValue;
-        }
+        return getCachedRelationalStats(getStatId(stat), victimPrimary, attacker, refreshAfter, use);
     }
 
+    /**
+     * Returns the stat of the given stat id collected for the victim against the attacker, see
+     * {@link AccumulativeStatManager#getCachedRelationalStats(String, Entity, Entity, long, boolean)}
+     */
+    public static double getCachedRelationalStats(int stat, Entity victimPrimary, Entity attacker, long refreshAfter, boolean use){
+        if (victimPrimary == null) return 0;
+        if (attacker == null) return getCachedStats(stat, victimPrimary, refreshAfter, use);
+        return getCachedPairStats(stat, victimPrimary, attacker, refreshAfter, use);
+    }
+
+    /**
+     * Returns the stat collected for the attacker against the victim, cached for this victim and attacker pair
+     */
     public static double getCachedAttackerRelationalStats(String stat, Entity victim, Entity attackerPrimary, long refreshAfter, boolean use){
         if (victim == null || attackerPrimary == null) return 0;
-        if (isStatCached(attackerPrimary, stat)){
-            return getCachedStatIgnoringExpiration(attackerPrimary, stat);
-        } else {
-            double statValue = getRelationalStats(stat, victim, attackerPrimary, use);
-            cacheStat(attackerPrimary, stat, statValue, refreshAfter);
-            return statValue;
-        }
+        return getCachedAttackerRelationalStats(getStatId(stat), victim, attackerPrimary, refreshAfter, use);
     }
 
-    private static final Map<UUID, Map<String, Map.Entry<Long, Double>>> statCache = new HashMap<>();
-
-    private static long lastMapCleanup = System.currentTimeMillis();
-
     /**
-     * Attempts to get a cached stat from an entity
-     * isStatCached() should be checked beforehand, if the stat is not cached this method will return 0, but will still return
-     * the value even if the stat is expired
-     * @param e the entity to check the cache for
-     * @param stat the stat to get from the cache
-     * @return the cached stat value, or 0 if the stat is not cached. This will still return the value even if the stat is expired
+     * Returns the stat of the given stat id collected for the attacker against the victim, see
+     * {@link AccumulativeStatManager#getCachedAttackerRelationalStats(String, Entity, Entity, long, boolean)}
      */
-    private static double getCachedStatIgnoringExpiration(Entity e, String stat){
-        Map<String, Map.Entry<Long, Double>> currentCachedStats = statCache.getOrDefault(e.getUniqueId(), new HashMap<>());
-        if (currentCachedStats.get(stat) != null) return currentCachedStats.get(stat).getValue();
-        return 0;
+    public static double getCachedAttackerRelationalStats(int stat, Entity victim, Entity attackerPrimary, long refreshAfter, boolean use){
+        if (victim == null || attackerPrimary == null) return 0;
+        return getCachedPairStats(stat, victim, attackerPrimary, refreshAfter, use);
+    }
+
+    private static double getCachedPairStats(int stat, Entity victim, Entity attacker, long refreshAfter, boolean use){
+        long now = System.currentTimeMillis();
+        double cached = relationalStatCache.get(victim.getUniqueId(), attacker.getUniqueId(), stat, now);
+        if (!Double.isNaN(cached)) return cached;
+        double statValue = getRelationalStats(stat, victim, attacker, use);
+        relationalStatCache.put(victim.getUniqueId(), attacker.getUniqueId(), stat, statValue, now + refreshAfter);
+        return statValue;
     }
 
+    private static final Map<UUID, CachedStats> statCache = new ConcurrentHashMap<>();
+    private static final RelationalStatCache relationalStatCache = new RelationalStatCache(ValhallaMMO.getPluginConfig().getInt("relational_stat_cache_size", 4096));
+
+    private static final CacheSweeper<UUID, CachedStats> statCacheSweeper = new CacheSweeper<>(statCache,
+            (u, cached) -> {
+                if (cached.isExpired(System.currentTimeMillis())) return true;
+                Entity entity = Bukkit.getEntity(u);
+                return entity == null || !entity.isValid();
+            }, 64, () -> relationalStatCache.evictExpired(System.currentTimeMillis(), 64));
+
     /**
      * Caches a stat for an entity for a specified amount of time
      * @param e the entity to cache for
      * @param stat the stat to cache
      * @param amount the value that will be cached
      * @param cacheFor the amount of time the cached value will be valid for, in milliseconds
+     * @throws IllegalArgumentException if no stat collector is registered under this name
      */
     public static void cacheStat(Entity e, String stat, double amount, long cacheFor){
-        Map<String, Map.Entry<Long, Double>> currentCachedStats = statCache.getOrDefault(e.getUniqueId(), new HashMap<>());
-        currentCachedStats.put(stat, new Map.Entry<>() {
-            private final long time = System.currentTimeMillis() + cacheFor;
-            @Override
-            public Long getKey() { return time; }
-            @Override
-            public Double getValue() { return amount; }
-            @Override
-            public Double setValue(Double value) { return null; }
-        });
-        statCache.put(e.getUniqueId(), currentCachedStats);
+        cacheStat(e, getStatId(stat), amount, System.currentTimeMillis() + cacheFor);
+    }
+
+    private static void cacheStat(Entity e, int stat, double amount, long expiresAt){
+        CachedStats cached = statCache.get(e.getUniqueId());
+        if (cached == null) cached = statCache.computeIfAbsent(e.getUniqueId(), k -> new CachedStats(collectors.length));
+        cached.put(stat, amount, expiresAt);
     }
 
     /**
-     * Checks if a certain stat is cached, and if so, if the stat hasn't expired.
-     * This method also cleans up the cache every 2 minutes, removing any entity where isValid() returns false
-     * @param e the entity to check their cached stat
-     * @param stat the stat to see if it's cached
-     * @return true if the stat is cached and unexpired, false otherwise
+     * Starts removing the cached stats of entities that are gone or whose stats have all expired in the background,
+     * checking a limited amount of entities and victim and attacker pairs every second
      */
-    private static boolean isStatCached(Entity e, String stat){
-        attemptMapCleanup();
-        if (statCache.containsKey(e.getUniqueId())){
-            if (statCache.getOrDefault(e.getUniqueId(), new HashMap<>()).get(stat) != null){
-                return statCache.get(e.getUniqueId()).get(stat).getKey() > System.currentTimeMillis();
-            }
-        }
-        return false;
+    public static void startCacheSweeper(){
+        statCacheSweeper.start(20L);
     }
 
-    private static void attemptMapCleanup(){
-        Bukkit.getScheduler().runTask(ValhallaMMO.getInstance(), () -> {
-            if (lastMapCleanup + 120000 < System.currentTimeMillis()){
-                // cleaning up map every 2 minutes
-                new HashSet<>(statCache.keySet()).stream().filter(u -> {
-                    Entity entity = Bukkit.getEntity(u);
-                    return entity == null || !entity.isValid();
-                }).forEach(statCache::remove);
-                lastMapCleanup = System.currentTimeMillis();
-            }
-        });
+    public static void stopCacheSweeper(){
+        statCacheSweeper.stop();
     }
 
     public static void resetCache(Entity e){
         statCache.remove(e.getUniqueId());
+        relationalStatCache.evict(e.getUniqueId());
     }
 
+    /**
+     * Has all stats of the entity collected again, for when the entity changed in a way that may affect any of them
+     * @param e the entity whose stats changed
+     */
     public static void updateStats(Entity e) {
         resetCache(e);
         if (e instanceof Player p) {
@@ -500,4 +599,94 @@ public class AccumulativeStatManager {
             DigPacketInfo.resetMinerCache(e.getUniqueId());
         }
     }
+
+    /**
+     * Has only the stats of the entity depending on the changed inputs collected again, see {@link StatDependency}.
+     * Stats with a source that didn't declare its inputs are always collected again.
+     * @param e the entity whose stats changed
+     * @param changed the inputs that changed
+     */
+    public static void updateStats(Entity e, StatDependency... changed) {
+        invalidate(e, StatDependency.changeMask(changed));
+        if (e instanceof Player p) {
+            MovementListener.resetAttributeStats(p);
+            DigPacketInfo.resetMinerCache(e.getUniqueId());
+        }
+    }
+
+    private static void invalidate(Entity e, long changed){
+        relationalStatCache.expire(e.getUniqueId(), id -> (collectors[id].getFrozenSources().dependencyMask() & changed) != 0);
+        CachedStats cached = statCache.get(e.getUniqueId());
+        if (cached != null) cached.expire(changed);
+    }
+
+    /**
+     * The cached stats of one entity, with the values and the times they expire at in arrays indexed by stat id, so
+     * reading or caching a stat doesn't allocate anything.<br>
+     * Stats are read from any thread without locking. Caching a stat first clears its expiry time, then sets its value,
+     * then its new expiry time, each as a volatile write. A read takes the expiry time before and after the value and
+     * only returns the value if both are the same, so a value is never returned along with the expiry time of another.
+     * Both arrays are replaced together when grown, so they're always read as a pair.
+     */
+    private static class CachedStats {
+        private volatile Slots slots;
+
+        private CachedStats(int size){
+            this.slots = new Slots(new AtomicLongArray(size), new AtomicLongArray(size));
+        }
+
+        /**
+         * @return the cached value, or NaN if it's not cached or expired
+         */
+        private double get(int stat, long now){
+            Slots slots = this.slots;
+            if (stat >= slots.expiresAt.length()) return Double.NaN;
+            long expiresAt = slots.expiresAt.get(stat);
+            if (expiresAt <= now) return Double.NaN;
+            double value = Double.longBitsToDouble(slots.values.get(stat));
+            if (slots.expiresAt.get(stat) != expiresAt) return Double.NaN; // cached again while it was being read
+            return value;
+        }
+
+        private synchronized void put(int stat, double value, long expiresAt){
+            Slots slots = this.slots;
+            if (stat >= slots.expiresAt.length()) {
+                // grown if a stat was registered after these stats were first cached
+                slots = slots.grow(collectors.length);
+                this.slots = slots;
+            }
+            slots.expiresAt.set(stat, 0);
+            slots.values.set(stat, Double.doubleToRawLongBits(value));
+            slots.expiresAt.set(stat, expiresAt);
+        }
+
+        private boolean isExpired(long now){
+            AtomicLongArray expiresAt = slots.expiresAt;
+            for (int i = 0; i < expiresAt.length(); i++) if (expiresAt.get(i) > now) return false;
+            return true;
+        }
+
+        private synchronized void expire(long changed){
+            AtomicLongArray expiresAt = slots.expiresAt;
+            for (int i = 0; i < expiresAt.length(); i++){
+                if (expiresAt.get(i) != 0 && (collectors[i].getFrozenSources().dependencyMask() & changed) != 0) expiresAt.set(i, 0);
+            }
+        }
+
+        /**
+         * @param values the raw long bits of the cached values
+         * @param expiresAt the times the values expire at, 0 if the stat isn't cached
+         */
+        private record Slots(AtomicLongArray values, AtomicLongArray expiresAt) {
+            private Slots grow(int size){
+                AtomicLongArray grownValues = new AtomicLongArray(size);
+                AtomicLongArray grownExpiresAt = new AtomicLongArray(size);
+                for (int i = 0; i < expiresAt.length(); i++){
+                    grownValues.set(i, values.get(i));
+                    grownExpiresAt.set(i, expiresAt.get(i));
+                }
+                return new Slots(grownValues, grownExpiresAt);
+            }
+        }
+    }
 }
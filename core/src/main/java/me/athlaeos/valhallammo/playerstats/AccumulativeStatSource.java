@@ -2,6 +2,8 @@ package me.athlaeos.valhallammo.playerstats;
 
 import org.bukkit.entity.Entity;
 
+import java.util.Set;
+
 public interface AccumulativeStatSource {
     /**
      * Fetches some stat given an Entity stat possessor.
@@ -13,4 +15,13 @@ public interface AccumulativeStatSource {
      * @return the stat to return
      */
     double fetch(Entity statPossessor, boolean use);
+
+    /**
+     * Declares the inputs this source reads, so the stats it's a source of are only collected again when one of them
+     * changes. Sources not overriding this are assumed to depend on everything.
+     * @return the inputs this source depends on
+     */
+    default Set<StatDependency> getDependencies(){
+        return StatDependency.all();
+    }
 }
@@ -0,0 +1,70 @@
+package me.athlaeos.valhallammo.playerstats;
+
+import me.athlaeos.valhallammo.ValhallaMMO;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Removes stale entries from a cache in the background. Every pass checks at most a fixed amount of entries, continuing
+ * where the previous pass left off and starting over once all entries were checked, so the work done per tick stays the
+ * same no matter how large the cache grows. Passes run on the main thread on a fixed cadence, so caches never have to
+ * schedule their own cleanup while being read.<br>
+ * The cache must be a concurrent map, as its entries are iterated across multiple passes.
+ * @param <K> the type of the cache's keys
+ * @param <V> the type of the cache's values
+ */
+public class CacheSweeper<K, V> {
+    private final Map<K, V> cache;
+    private final BiPredicate<K, V> stale;
+    private final int entriesPerPass;
+    private final Runnable afterPass;
+    private Iterator<Map.Entry<K, V>> cursor = null;
+    private BukkitTask task = null;
+
+    /**
+     * @param cache the cache to sweep
+     * @param stale tests whether an entry is stale and should be removed
+     * @param entriesPerPass the maximum amount of entries checked per pass
+     * @param afterPass ran after every pass for any other cleanup, which should be limited per pass as well. May be null
+     */
+    public CacheSweeper(Map<K, V> cache, BiPredicate<K, V> stale, int entriesPerPass, Runnable afterPass){
+        this.cache = cache;
+        this.stale = stale;
+        this.entriesPerPass = Math.max(1, entriesPerPass);
+        this.afterPass = afterPass;
+    }
+
+    /**
+     * Starts sweeping the cache, if it wasn't already
+     * @param period the amount of ticks between passes
+     */
+    public void start(long period){
+        if (task != null) return;
+        task = Bukkit.getScheduler().runTaskTimer(ValhallaMMO.getInstance(), this::sweep, period, period);
+    }
+
+    public void stop(){
+        if (task == null) return;
+        task.cancel();
+        task = null;
+        cursor = null;
+    }
+
+    private void sweep(){
+        if (cursor == null) cursor = cache.entrySet().iterator();
+        for (int checked = 0; checked < entriesPerPass; checked++){
+            if (!cursor.hasNext()) {
+                cursor = null;
+                break;
+            }
+            Map.Entry<K, V> entry = cursor.next();
+            if (stale.test(entry.getKey(), entry.getValue())) cache.remove(entry.getKey(), entry.getValue());
+        }
+        if (afterPass != null) afterPass.run();
+    }
+}
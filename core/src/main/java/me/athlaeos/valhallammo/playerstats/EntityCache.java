@@ -1,6 +1,5 @@
 package me.athlaeos.valhallammo.playerstats;
 
-import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.utility.EntityUtils;
 
 import org.bukkit.Bukkit;
@@ -8,16 +7,20 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class EntityCache {
     private static final long CACHE_REFRESH_DELAY = 10000;
-    private static final long CACHE_CLEANUP_DELAY = 600000;
-    private static final Map<UUID, EntityProperties> cachedProperties = new HashMap<>();
-    private static final Map<UUID, Long> lastCacheRefreshMap = new HashMap<>();
-    private static long lastCacheCleanup = System.currentTimeMillis();
+    private static final Map<UUID, EntityProperties> cachedProperties = new ConcurrentHashMap<>();
+    private static final Map<UUID, Long> lastCacheRefreshMap = new ConcurrentHashMap<>();
+    private static final CacheSweeper<UUID, EntityProperties> sweeper = new CacheSweeper<>(cachedProperties, (u, properties) -> {
+        Entity entity = Bukkit.getEntity(u);
+        if (entity != null && entity.isValid()) return false;
+        lastCacheRefreshMap.remove(u);
+        return true;
+    }, 64, null);
 
     public static EntityProperties getAndCacheProperties(LivingEntity entity){
-        attemptCacheCleanup();
         if (lastCacheRefreshMap.getOrDefault(entity.getUniqueId(), 0L) + CACHE_REFRESH_DELAY <= System.currentTimeMillis()){
             // delay expired, cache properties
             cachedProperties.put(entity.getUniqueId(), EntityUtils.getEntityProperties(entity, true, true, true));
@@ -40,23 +43,20 @@ public class EntityCache {
                 entity, false, false, true));
     }
 
-    public static void removeProperties(LivingEntity entity){
+    public static void removeProperties(Entity entity){
         cachedProperties.remove(entity.getUniqueId());
+        lastCacheRefreshMap.remove(entity.getUniqueId());
     }
 
-    public static void attemptCacheCleanup(){
-        Bukkit.getScheduler().runTask(ValhallaMMO.getInstance(), () -> {
-            if (lastCacheCleanup + CACHE_CLEANUP_DELAY < System.currentTimeMillis()){
-                Collection<UUID> uuids = new HashSet<>(cachedProperties.keySet());
-                uuids.forEach(u -> {
-                    Entity entity = Bukkit.getEntity(u);
-                    if (entity == null || !entity.isValid()){
-                        cachedProperties.remove(u);
-                        lastCacheRefreshMap.remove(u);
-                    }
-                });
-                lastCacheCleanup = System.currentTimeMillis();
-            }
-        });
+    /**
+     * Starts removing the cached properties of entities that are gone in the background, checking a limited amount of
+     * entities every second
+     */
+    public static void startCacheSweeper(){
+        sweeper.start(20L);
+    }
+
+    public static void stopCacheSweeper(){
+        sweeper.stop();
     }
 }
@@ -11,6 +11,7 @@ import me.athlaeos.valhallammo.placeholder.placeholders.LeaderboardPlacementPlac
 import me.athlaeos.valhallammo.playerstats.format.StatFormat;
 import me.athlaeos.valhallammo.playerstats.profiles.Profile;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
+import me.athlaeos.valhallammo.playerstats.profiles.StatKey;
 import me.athlaeos.valhallammo.utility.Utils;
 
 import org.bukkit.Bukkit;
@@ -60,6 +61,12 @@ public class LeaderboardManager {
             Map<String, String> extraStats = new LinkedHashMap<>();
             ConfigurationSection extraStatSection = config.getConfigurationSection("leaderboards." + leaderboard + ".extra_stats");
             if (extraStatSection != null) extraStatSection.getKeys(false).forEach(e -> extraStats.put(e, config.getString("leaderboards." + leaderboard + ".extra_stats." + e)));
+            // stats are used as column names in the leaderboard queries, so they're resolved here to make sure they exist
+            String invalidStat = invalidNumberStat(profile, mainStat, extraStats.values());
+            if (invalidStat != null) {
+                ValhallaMMO.logWarning("Stat " + invalidStat + " in leaderboard " + leaderboard + " in leaderboards.yml is not a valid number stat of " + profile.getSimpleName() + "! Skipped this leaderboard");
+                continue;
+            }
             leaderboards.put(leaderboard, new Leaderboard(leaderboard, profile, mainStat, displayName, placeholderDisplay, format, extraStats, lowerLimit));
 
             // placeholder format leaderboard_<leaderboard>_<place>
@@ -71,6 +78,21 @@ public class LeaderboardManager {
         }
     }
 
+    private static String invalidNumberStat(Class<? extends Profile> profile, String mainStat, Collection<String> extraStats){
+        List<String> stats = new ArrayList<>();
+        stats.add(mainStat);
+        stats.addAll(extraStats);
+        for (String stat : stats){
+            if (stat == null) return "null";
+            try {
+                StatKey.ofNumber(profile, stat);
+            } catch (IllegalArgumentException ignored){
+                return stat;
+            }
+        }
+        return null;
+    }
+
     public static Map<String, Map<Integer, LeaderboardEntry>> getCachedLeaderboardsByRank() {
         return cachedLeaderboardsByRank;
     }
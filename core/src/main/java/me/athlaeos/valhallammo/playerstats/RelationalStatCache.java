@@ -0,0 +1,266 @@
+package me.athlaeos.valhallammo.playerstats;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+/**
+ * Caches stats collected between two entities, keyed by the victim and attacker pair and the stat. A victim's defense
+ * against one attacker is therefore never reused against another.<br>
+ * Pairs are kept in a hash table keyed on a long mixed from both UUIDs, with the UUIDs themselves compared to tell pairs
+ * apart should their keys collide. Its buckets hold immutable chains which are replaced whenever a pair is added or
+ * removed, so looking up a cached stat neither allocates nor locks. Adding and removing pairs is done under the cache's
+ * lock.<br>
+ * Each pair holds the values and expiry times of its stats in arrays indexed by stat id. The cache holds a limited amount
+ * of pairs, evicting the pair used least recently among a few sampled ones once it's full. Every pair an entity is part
+ * of is evicted at once when the entity dies or unloads.
+ */
+public class RelationalStatCache {
+    private static final int EVICTION_SAMPLES = 8;
+
+    private final int maxPairs;
+    private final AtomicReferenceArray<Node> buckets;
+    private final Map<UUID, Set<PairStats>> pairsByEntity = new HashMap<>();
+    private int size = 0;
+    private int evictionHand = 0;
+    private int sweepHand = 0;
+
+    /**
+     * @param maxPairs the maximum amount of victim and attacker pairs cached
+     */
+    public RelationalStatCache(int maxPairs){
+        this.maxPairs = Math.max(1, maxPairs);
+        this.buckets = new AtomicReferenceArray<>(Integer.highestOneBit(Math.max(1, this.maxPairs - 1)) << 1);
+    }
+
+    /**
+     * @param victim the entity being attacked
+     * @param attacker the attacking entity
+     * @param stat the id of the stat
+     * @param now the current time in milliseconds
+     * @return the cached value, or NaN if it's not cached or expired
+     */
+    public double get(UUID victim, UUID attacker, int stat, long now){
+        PairStats stats = find(victim, attacker, key(victim, attacker));
+        if (stats == null) return Double.NaN;
+        stats.lastUsed = now;
+        return stats.get(stat, now);
+    }
+
+    /**
+     * Caches a stat of the pair
+     * @param victim the entity being attacked
+     * @param attacker the attacking entity
+     * @param stat the id of the stat
+     * @param value the value to cache
+     * @param expiresAt the time in milliseconds after which the value is no longer valid
+     */
+    public void put(UUID victim, UUID attacker, int stat, double value, long expiresAt){
+        long key = key(victim, attacker);
+        PairStats stats = find(victim, attacker, key);
+        if (stats == null) stats = add(victim, attacker, key);
+        stats.put(stat, value, expiresAt);
+    }
+
+    /**
+     * Expires the stats of all pairs the entity is part of which match the given stat ids
+     * @param entity the entity whose stats changed
+     * @param matches tests whether the stat with the given id should be expired
+     */
+    public synchronized void expire(UUID entity, IntPredicate matches){
+        Set<PairStats> involved = pairsByEntity.get(entity);
+        if (involved == null) return;
+        for (PairStats stats : involved) stats.expire(matches);
+    }
+
+    /**
+     * Evicts all pairs the entity is part of, for when it died or was unloaded
+     * @param entity the entity to evict
+     */
+    public synchronized void evict(UUID entity){
+        Set<PairStats> involved = pairsByEntity.remove(entity);
+        if (involved == null) return;
+        for (PairStats stats : involved){
+            unlink(stats);
+            UUID other = stats.victim.equals(entity) ? stats.attacker : stats.victim;
+            Set<PairStats> otherPairs = pairsByEntity.get(other);
+            if (otherPairs != null && otherPairs.remove(stats) && otherPairs.isEmpty()) pairsByEntity.remove(other);
+        }
+    }
+
+    /**
+     * Evicts the pairs whose stats have all expired, continuing where the previous call left off so all pairs are
+     * checked over multiple calls
+     * @param now the current time in milliseconds
+     * @param max the maximum amount of pairs to check
+     */
+    public synchronized void evictExpired(long now, int max){
+        int checked = 0;
+        for (int scanned = 0; scanned < buckets.length() && checked < max; scanned++){
+            sweepHand = (sweepHand + 1) & (buckets.length() - 1);
+            for (Node node = buckets.get(sweepHand); node != null; node = node.next()){
+                checked++;
+                if (node.stats().isExpired(now)) remove(node.stats());
+            }
+        }
+    }
+
+    public synchronized int size(){
+        return size;
+    }
+
+    private PairStats find(UUID victim, UUID attacker, long key){
+        for (Node node = buckets.get(index(key)); node != null; node = node.next()){
+            PairStats stats = node.stats();
+            if (stats.key == key && stats.victim.equals(victim) && stats.attacker.equals(attacker)) return stats;
+        }
+        return null;
+    }
+
+    private synchronized PairStats add(UUID victim, UUID attacker, long key){
+        PairStats stats = find(victim, attacker, key); // added by another thread in the meantime
+        if (stats != null) return stats;
+        if (size >= maxPairs) evictLeastRecentlyUsed();
+        stats = new PairStats(key, victim, attacker, AccumulativeStatManager.getStatCount());
+        int index = index(key);
+        buckets.set(index, new Node(stats, buckets.get(index)));
+        size++;
+        pairsByEntity.computeIfAbsent(victim, k -> new HashSet<>()).add(stats);
+        pairsByEntity.computeIfAbsent(attacker, k -> new HashSet<>()).add(stats);
+        return stats;
+    }
+
+    /**
+     * Evicts the pair used least recently among the pairs following the eviction hand
+     */
+    private void evictLeastRecentlyUsed(){
+        PairStats oldest = null;
+        int sampled = 0;
+        for (int scanned = 0; scanned < buckets.length() && sampled < EVICTION_SAMPLES; scanned++){
+            evictionHand = (evictionHand + 1) & (buckets.length() - 1);
+            for (Node node = buckets.get(evictionHand); node != null; node = node.next()){
+                if (oldest == null || node.stats().lastUsed < oldest.lastUsed) oldest = node.stats();
+                sampled++;
+            }
+        }
+        if (oldest != null) remove(oldest);
+    }
+
+    private void remove(PairStats stats){
+        if (!unlink(stats)) return;
+        for (UUID entity : new UUID[]{stats.victim, stats.attacker}){
+            Set<PairStats> entityPairs = pairsByEntity.get(entity);
+            if (entityPairs != null && entityPairs.remove(stats) && entityPairs.isEmpty()) pairsByEntity.remove(entity);
+        }
+    }
+
+    /**
+     * Removes the pair from its bucket by replacing the chain in front of it, so lookups going over the old chain
+     * aren't affected
+     * @return true if the pair was in the table
+     */
+    private boolean unlink(PairStats stats){
+        int index = index(stats.key);
+        Node head = buckets.get(index);
+        Node unlinked = without(head, stats);
+        if (unlinked == head) return false;
+        buckets.set(index, unlinked);
+        size--;
+        return true;
+    }
+
+    private static Node without(Node node, PairStats stats){
+        if (node == null) return null;
+        if (node.stats() == stats) return node.next();
+        Node next = without(node.next(), stats);
+        return next == node.next() ? node : new Node(node.stats(), next);
+    }
+
+    private static long key(UUID victim, UUID attacker){
+        return mix(victim.getMostSignificantBits() ^ victim.getLeastSignificantBits()) * 31 +
+                mix(attacker.getMostSignificantBits() ^ attacker.getLeastSignificantBits());
+    }
+
+    private static long mix(long bits){
+        bits = (bits ^ (bits >>> 33)) * 0xff51afd7ed558ccdL;
+        bits = (bits ^ (bits >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return bits ^ (bits >>> 33);
+    }
+
+    private int index(long key){
+        return (int) (key ^ (key >>> 32)) & (buckets.length() - 1);
+    }
+
+    private record Node(PairStats stats, Node next) {}
+
+    /**
+     * The stats of a pair, read without locking the same way as the cached stats of a single entity: the expiry time is
+     * read before and after the value, and the value only returned if both are the same
+     */
+    private static class PairStats {
+        private final long key;
+        private final UUID victim;
+        private final UUID attacker;
+        private volatile Slots slots;
+        private volatile long lastUsed;
+
+        private PairStats(long key, UUID victim, UUID attacker, int size){
+            this.key = key;
+            this.victim = victim;
+            this.attacker = attacker;
+            this.slots = new Slots(new AtomicLongArray(size), new AtomicLongArray(size));
+        }
+
+        private double get(int stat, long now){
+            Slots slots = this.slots;
+            if (stat >= slots.expiresAt.length()) return Double.NaN;
+            long expiresAt = slots.expiresAt.get(stat);
+            if (expiresAt <= now) return Double.NaN;
+            double value = Double.longBitsToDouble(slots.values.get(stat));
+            if (slots.expiresAt.get(stat) != expiresAt) return Double.NaN; // cached again while it was being read
+            return value;
+        }
+
+        private synchronized void put(int stat, double value, long expiresAt){
+            Slots slots = this.slots;
+            if (stat >= slots.expiresAt.length()) {
+                // grown if a stat was registered after this pair was first cached
+                slots = slots.grow(AccumulativeStatManager.getStatCount());
+                this.slots = slots;
+            }
+            slots.expiresAt.set(stat, 0);
+            slots.values.set(stat, Double.doubleToRawLongBits(value));
+            slots.expiresAt.set(stat, expiresAt);
+        }
+
+        private synchronized void expire(IntPredicate matches){
+            AtomicLongArray expiresAt = slots.expiresAt;
+            for (int i = 0; i < expiresAt.length(); i++){
+                if (expiresAt.get(i) != 0 && matches.test(i)) expiresAt.set(i, 0);
+            }
+        }
+
+        private boolean isExpired(long now){
+            AtomicLongArray expiresAt = slots.expiresAt;
+            for (int i = 0; i < expiresAt.length(); i++) if (expiresAt.get(i) > now) return false;
+            return true;
+        }
+
+        /**
+         * @param values the raw long bits of the cached values
+         * @param expiresAt the times the values expire at, 0 if the stat was never cached
+         */
+        private record Slots(AtomicLongArray values, AtomicLongArray expiresAt) {
+            private Slots grow(int size){
+                AtomicLongArray grownValues = new AtomicLongArray(size);
+                AtomicLongArray grownExpiresAt = new AtomicLongArray(size);
+                for (int i = 0; i < expiresAt.length(); i++){
+                    grownValues.set(i, values.get(i));
+                    grownExpiresAt.set(i, expiresAt.get(i));
+                }
+                return new Slots(grownValues, grownExpiresAt);
+            }
+        }
+    }
+}
@@ -2,13 +2,27 @@ package me.athlaeos.valhallammo.playerstats;
 
 import me.athlaeos.valhallammo.playerstats.format.StatFormat;
 
+import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
+/**
+ * Collects a stat from all its sources. The sources are kept frozen in a flat array, so collecting the stat is a plain
+ * loop over them without allocating an iterator. Changing the sources through {@link #getStatSources()} has the array
+ * frozen again the next time the stat is collected.
+ */
 public class StatCollector {
+    private static final AccumulativeStatSource[] NO_SOURCES = new AccumulativeStatSource[0];
+    // company stats may add to any stat
+    private static final FrozenSources NONE = new FrozenSources(NO_SOURCES, new EvEAccumulativeStatSource[0], StatDependency.changeMask(StatDependency.PARTY));
+
     private boolean attackerPossessive = false;
     private StatFormat format = null;
-    private final Collection<AccumulativeStatSource> statSources = new HashSet<>();
+    private final Collection<AccumulativeStatSource> statSources = new SourceSet();
+    private volatile FrozenSources frozenSources = NONE;
+    private volatile boolean frozen = true;
     protected StatCollector(){}
 
     public void setFormat(StatFormat format) {
@@ -30,4 +44,85 @@ public class StatCollector {
     public boolean isAttackerPossessive() {
         return attackerPossessive;
     }
+
+    /**
+     * @return the sources of this stat as they were when last frozen. All of it is published at once, so the arrays
+     * always match each other and the dependency mask, and should be read from the same returned instance
+     */
+    FrozenSources getFrozenSources(){
+        if (!frozen) freeze();
+        return frozenSources;
+    }
+
+    private synchronized void freeze(){
+        if (frozen) return;
+        AccumulativeStatSource[] sources = statSources.toArray(NO_SOURCES);
+        EvEAccumulativeStatSource[] relationalSources = new EvEAccumulativeStatSource[sources.length];
+        long mask = StatDependency.changeMask(StatDependency.PARTY);
+        for (int i = 0; i < sources.length; i++){
+            if (sources[i] instanceof EvEAccumulativeStatSource s) relationalSources[i] = s;
+            mask |= StatDependency.dependencyMask(sources[i].getDependencies());
+        }
+        frozenSources = new FrozenSources(sources, relationalSources, mask);
+        frozen = true;
+    }
+
+    /**
+     * @param sources the sources of this stat in the order they were added. The array must not be modified
+     * @param relationalSources the sources as {@link EvEAccumulativeStatSource}, parallel to the sources, where sources
+     *                          that aren't influenced by a second entity are null. The array must not be modified
+     * @param dependencyMask the inputs the sources depend on as a bit mask, see {@link StatDependency#dependencyMask(Collection)}
+     */
+    record FrozenSources(AccumulativeStatSource[] sources, EvEAccumulativeStatSource[] relationalSources, long dependencyMask){}
+
+    private class SourceSet extends AbstractSet<AccumulativeStatSource> {
+        private final Set<AccumulativeStatSource> sources = new LinkedHashSet<>();
+
+        @Override
+        public boolean add(AccumulativeStatSource source) {
+            synchronized (StatCollector.this) {
+                if (!sources.add(source)) return false;
+                frozen = false;
+                return true;
+            }
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            synchronized (StatCollector.this) {
+                if (!sources.remove(o)) return false;
+                frozen = false;
+                return true;
+            }
+        }
+
+        @Override
+        public Iterator<AccumulativeStatSource> iterator() {
+            Iterator<AccumulativeStatSource> iterator = sources.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public AccumulativeStatSource next() {
+                    return iterator.next();
+                }
+
+                @Override
+                public void remove() {
+                    synchronized (StatCollector.this) {
+                        iterator.remove();
+                        frozen = false;
+                    }
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return sources.size();
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package me.athlaeos.valhallammo.playerstats;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The inputs a stat source may depend on. Each {@link AccumulativeStatSource} declares the inputs it reads, so when one
+ * of them changes only the cached stats with a source depending on it have to be collected again, see
+ * {@link AccumulativeStatManager#updateStats(org.bukkit.entity.Entity, StatDependency...)}
+ */
+public enum StatDependency {
+    /**
+     * The entity's profiles, such as when a perk is unlocked or a skill levels up
+     */
+    PROFILE,
+    /**
+     * The armor worn by the entity
+     */
+    ARMOR,
+    /**
+     * The items held in the entity's main or off hand
+     */
+    HELD_ITEM,
+    /**
+     * The potion effects active on the entity, including custom effects
+     */
+    POTION_EFFECTS,
+    /**
+     * The party the entity is in
+     */
+    PARTY,
+    /**
+     * Global buffs, which apply to all entities
+     */
+    GLOBAL_BUFFS,
+    /**
+     * The time of day or moon phase of the entity's world
+     */
+    WORLD_TIME,
+    /**
+     * The weather in the entity's world
+     */
+    WEATHER,
+    /**
+     * Anything not covered by the other inputs, like the block a player is looking at or an active ability. Sources
+     * depending on this are collected again whenever any input changes
+     */
+    OTHER;
+
+    private static final Set<StatDependency> ALL = Collections.unmodifiableSet(EnumSet.allOf(StatDependency.class));
+
+    /**
+     * @return all inputs, for sources that didn't declare what they depend on
+     */
+    public static Set<StatDependency> all(){
+        return ALL;
+    }
+
+    /**
+     * @return the inputs a source depends on as a bit mask, with a bit set at the ordinal of each input. Depending on
+     * {@link #OTHER} sets all bits, so any change matches it
+     */
+    public static long dependencyMask(Collection<StatDependency> dependencies){
+        long mask = 0;
+        for (StatDependency dependency : dependencies) mask |= 1L << dependency.ordinal();
+        if ((mask & (1L << OTHER.ordinal())) != 0) mask = -1L; // unknown inputs could be affected by any change
+        return mask;
+    }
+
+    /**
+     * @return the changed inputs as a bit mask, with a bit set at the ordinal of each input
+     */
+    public static long changeMask(StatDependency... dependencies){
+        long mask = 0;
+        for (StatDependency dependency : dependencies) mask |= 1L << dependency.ordinal();
+        return mask;
+    }
+}
@@ -0,0 +1,221 @@
+package me.athlaeos.valhallammo.playerstats.profiles;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The set used to hold string set stats. Its members are kept in a sorted array, with each distinct string interned so
+ * that the same perk or material names held by every player's profiles are stored only once. Strings are interned weakly,
+ * so those no longer held by any profile are forgotten.<br>
+ * The array is replaced rather than modified on every change, so a save can read the members while they're being changed.
+ * The members last written to the database are remembered as well, so only the members added or removed since have to
+ * be written. Every change also bumps the set's modification count and that of the profile holding it, so a change made
+ * in place can be noticed without comparing the members.
+ */
+public class CompactStringSet extends AbstractSet<String> {
+    private static final String[] EMPTY = new String[0];
+    private static final Interner<String> interned = Interners.newWeakInterner();
+
+    private volatile String[] members = EMPTY;
+    private volatile String[] persisted = null; // null if it's unknown what's stored, in which case it's written whole
+    private volatile int modifications = 0;
+    private final AtomicLong ownerModifications; // the modification count of the profile holding this set, if any
+
+    public CompactStringSet(){
+        this.ownerModifications = null;
+    }
+
+    /**
+     * @param ownerModifications the modification count of the profile holding this set, bumped along with that of the set
+     */
+    CompactStringSet(AtomicLong ownerModifications){
+        this.ownerModifications = ownerModifications;
+    }
+
+    public CompactStringSet(Collection<String> values){
+        this();
+        setAll(values);
+    }
+
+    private static String intern(String value){
+        return interned.intern(value);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String s && Arrays.binarySearch(members, s) >= 0;
+    }
+
+    @Override
+    public synchronized boolean add(String value) {
+        String[] current = members;
+        int index = Arrays.binarySearch(current, value);
+        if (index >= 0) return false;
+        index = -index - 1;
+        String[] changed = new String[current.length + 1];
+        System.arraycopy(current, 0, changed, 0, index);
+        changed[index] = intern(value);
+        System.arraycopy(current, index, changed, index + 1, current.length - index);
+        members = changed;
+        changed();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends String> values) {
+        int size = members.length;
+        Collection<String> union = new HashSet<>(Arrays.asList(members));
+        union.addAll(values);
+        if (union.size() == size) return false;
+        setAll(union);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(Object o) {
+        if (!(o instanceof String s)) return false;
+        String[] current = members;
+        int index = Arrays.binarySearch(current, s);
+        if (index < 0) return false;
+        String[] changed = new String[current.length - 1];
+        System.arraycopy(current, 0, changed, 0, index);
+        System.arraycopy(current, index + 1, changed, index, current.length - index - 1);
+        members = changed;
+        changed();
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        if (members.length == 0) return;
+        members = EMPTY;
+        changed();
+    }
+
+    @Override
+    public int size() {
+        return members.length;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        String[] snapshot = members;
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public String next() {
+                if (next >= snapshot.length) throw new NoSuchElementException();
+                return snapshot[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (next == 0) throw new IllegalStateException();
+                CompactStringSet.this.remove(snapshot[next - 1]);
+            }
+        };
+    }
+
+    /**
+     * Replaces all members of this set with the given values
+     * @param values the new members
+     */
+    public synchronized void setAll(Collection<String> values){
+        if (values == this) return;
+        String[] changed = values.stream().filter(Objects::nonNull).distinct().sorted().map(CompactStringSet::intern).toArray(String[]::new);
+        members = changed.length == 0 ? EMPTY : changed;
+        changed();
+    }
+
+    /**
+     * Replaces all members of this set with the union of the members of both sets, merging their sorted members in a
+     * single pass. Nothing is allocated if the union holds the same members as this set already does, or if either set
+     * is empty, in which case the members of the other are shared as they're never modified in place.
+     * @param first the first set
+     * @param second the second set
+     */
+    synchronized void setUnion(CompactStringSet first, CompactStringSet second){
+        String[] a = first.members;
+        String[] b = second.members;
+        String[] current = members;
+        if (a.length == 0 || b.length == 0) {
+            String[] union = a.length == 0 ? b : a;
+            if (union == current || Arrays.equals(union, current)) return;
+            members = union;
+            changed();
+            return;
+        }
+        // counts the members of the union, and whether they're the same as the current members
+        int size = 0;
+        boolean same = true;
+        for (int i = 0, j = 0; i < a.length || j < b.length; size++){
+            int comparison = i == a.length ? 1 : j == b.length ? -1 : a[i].compareTo(b[j]);
+            String next = comparison <= 0 ? a[i] : b[j];
+            if (comparison <= 0) i++;
+            if (comparison >= 0) j++;
+            if (same && (size >= current.length || !next.equals(current[size]))) same = false;
+        }
+        if (same && size == current.length) return;
+        String[] union = new String[size];
+        for (int i = 0, j = 0, k = 0; k < size; k++){
+            int comparison = i == a.length ? 1 : j == b.length ? -1 : a[i].compareTo(b[j]);
+            union[k] = comparison <= 0 ? a[i] : b[j];
+            if (comparison <= 0) i++;
+            if (comparison >= 0) j++;
+        }
+        members = union;
+        changed();
+    }
+
+    /**
+     * Replaces all members of this set with the values as they're stored in the database
+     * @param values the stored members
+     */
+    public synchronized void load(Collection<String> values){
+        setAll(values);
+        persisted = members;
+    }
+
+    private void changed(){
+        modifications++;
+        if (ownerModifications != null) ownerModifications.incrementAndGet();
+    }
+
+    /**
+     * @return the amount of times the members of this set were changed, which only ever goes up
+     */
+    public int getModificationCount(){
+        return modifications;
+    }
+
+    /**
+     * @return the current members in sorted order. The array must not be modified
+     */
+    public String[] members(){
+        return members;
+    }
+
+    /**
+     * @return the members as they were last written to the database in sorted order, or null if it's unknown what's stored
+     */
+    public String[] getPersisted(){
+        return persisted;
+    }
+
+    /**
+     * @param persisted the members (as returned by {@link #members()}) that were written to the database, or null to
+     *                  have the set written whole next time
+     */
+    public void setPersisted(String[] persisted){
+        this.persisted = persisted;
+    }
+}
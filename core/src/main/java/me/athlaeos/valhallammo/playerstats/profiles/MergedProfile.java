@@ -0,0 +1,123 @@
+package me.athlaeos.valhallammo.playerstats.profiles;
+
+import org.bukkit.entity.Player;
+
+/**
+ * A player's merged profile of one type, the combination of their skill and persistent profile as made by
+ * {@link Profile#merge(Profile, Player)}, kept up to date as either of them changes.<br>
+ * The view is built once, after which both profiles it's made of merge only the stat that changed into it whenever one
+ * of their stats is set, so reading it doesn't allocate anything. The view remembers the modification counts of both
+ * profiles (see {@link Profile#getModificationCount()}) it was last brought up to date with, so reading it while neither
+ * changed is just a comparison of those counts. If they did change, string sets modified in place are merged again as
+ * well. If either profile is replaced the view is rebound to the new one and merged again in full. The view should only
+ * be read from, as changes made to it are overwritten by those of the profiles it's made of.
+ */
+public class MergedProfile {
+    private final Profile view;
+    private final int[] stringSetOrdinals; // the ordinals of the string set stats, by their slot
+    private final int[] skillStringSets; // the modification counts of the string sets last merged, by their slot
+    private final int[] persistentStringSets;
+    private volatile Profile skillProfile = null;
+    private volatile Profile persistentProfile = null;
+    private volatile long skillVersion = -1;
+    private volatile long persistentVersion = -1;
+
+    MergedProfile(Player owner, Profile skillProfile, Profile persistentProfile){
+        this.view = skillProfile.getBlankProfile(owner);
+        StatLayout layout = view.getLayout();
+        this.stringSetOrdinals = new int[layout.stringSetCount];
+        for (int i = 0; i < layout.size(); i++){
+            if (layout.getType(i) == StatLayout.StatType.STRING_SET) stringSetOrdinals[layout.getSlot(i)] = i;
+        }
+        this.skillStringSets = new int[stringSetOrdinals.length];
+        this.persistentStringSets = new int[stringSetOrdinals.length];
+        bind(skillProfile, persistentProfile);
+    }
+
+    /**
+     * @return true if this view is made of exactly these profiles
+     */
+    boolean isBoundTo(Profile skillProfile, Profile persistentProfile){
+        return this.skillProfile == skillProfile && this.persistentProfile == persistentProfile;
+    }
+
+    /**
+     * Makes this view out of the given profiles, no longer following the profiles it was made of before
+     */
+    synchronized void bind(Profile skillProfile, Profile persistentProfile){
+        unbind();
+        this.skillProfile = skillProfile;
+        this.persistentProfile = persistentProfile;
+        skillProfile.setMergedView(this);
+        persistentProfile.setMergedView(this);
+        refresh();
+    }
+
+    /**
+     * Stops following the profiles this view is made of
+     */
+    synchronized void unbind(){
+        if (skillProfile != null && skillProfile.getMergedView() == this) skillProfile.setMergedView(null);
+        if (persistentProfile != null && persistentProfile.getMergedView() == this) persistentProfile.setMergedView(null);
+    }
+
+    /**
+     * Merges all stats into this view again
+     */
+    private void refresh(){
+        // counts are taken before merging, so a change made while merging is caught up with on the next read
+        skillVersion = -1;
+        persistentVersion = -1;
+        for (int i = 0; i < stringSetOrdinals.length; i++) rememberStringSet(i);
+        for (int i = 0; i < view.getLayout().size(); i++) skillProfile.mergeStat(i, persistentProfile, view);
+    }
+
+    /**
+     * Merges a single stat into this view again, after it was changed on either of the profiles it's made of
+     * @param ordinal the ordinal of the changed stat
+     */
+    synchronized void update(int ordinal){
+        StatLayout layout = view.getLayout();
+        if (layout.getType(ordinal) == StatLayout.StatType.STRING_SET) rememberStringSet(layout.getSlot(ordinal));
+        skillProfile.mergeStat(ordinal, persistentProfile, view);
+    }
+
+    /**
+     * @return true if either string set at this slot changed since it was last merged, remembering its current count
+     */
+    private boolean rememberStringSet(int slot){
+        int skill = skillProfile.stringSets[slot].getModificationCount();
+        int persistent = persistentProfile.stringSets[slot].getModificationCount();
+        if (skill == skillStringSets[slot] && persistent == persistentStringSets[slot]) return false;
+        skillStringSets[slot] = skill;
+        persistentStringSets[slot] = persistent;
+        return true;
+    }
+
+    /**
+     * Brings this view up to date with the profiles it's made of, if either changed since it was last read
+     */
+    private synchronized void catchUp(){
+        long skill = skillProfile.getModificationCount();
+        long persistent = persistentProfile.getModificationCount();
+        if (skill == skillVersion && persistent == persistentVersion) return;
+        // set stats were merged as they were set, so only string sets changed in place are left to merge
+        for (int i = 0; i < stringSetOrdinals.length; i++){
+            if (rememberStringSet(i)) skillProfile.mergeStat(stringSetOrdinals[i], persistentProfile, view);
+        }
+        skillVersion = skill;
+        persistentVersion = persistent;
+        view.onCacheRefresh();
+    }
+
+    /**
+     * @return the merged profile, which has been refreshed through {@link Profile#onCacheRefresh()} if either profile
+     * it's made of changed since it was last returned
+     */
+    public Profile get(){
+        Profile skill = skillProfile;
+        Profile persistent = persistentProfile;
+        if (skill.getModificationCount() != skillVersion || persistent.getModificationCount() != persistentVersion) catchUp();
+        return view;
+    }
+}
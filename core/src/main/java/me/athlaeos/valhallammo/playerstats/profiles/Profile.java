@@ -2,7 +2,9 @@ package me.athlaeos.valhallammo.playerstats.profiles;
 
 import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.persistence.Database;
-import me.athlaeos.valhallammo.persistence.ProfilePersistence;
+import me.athlaeos.valhallammo.persistence.ProfileJournal;
+import me.athlaeos.valhallammo.persistence.ProfileBatchWriter;
+import me.athlaeos.valhallammo.persistence.SchemaReconciler;
 import me.athlaeos.valhallammo.playerstats.format.StatFormat;
 import me.athlaeos.valhallammo.playerstats.profiles.properties.PropertyBuilder;
 import me.athlaeos.valhallammo.playerstats.profiles.properties.BooleanProperties;
@@ -11,10 +13,12 @@ import me.athlaeos.valhallammo.skills.skills.Skill;
 import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A profile is used to store data on a player, each registered type of profile will be persisted
@@ -23,16 +27,23 @@ import java.util.*;
 public abstract class Profile {
     protected UUID owner;
 
-    private final Map<String, StatProperties> numberStatProperties = new HashMap<>();
+    // the compiled layout of this profile type if it was registered, otherwise one built up as stats are declared
+    private final StatLayout layout = Objects.requireNonNullElseGet(StatLayout.of(getClass()), StatLayout::new);
 
-    protected Collection<String> tablesToUpdate = new HashSet<>();
-    protected Collection<String> allStatNames = new HashSet<>();
+    private final AtomicLong modifications = new AtomicLong(); // bumped by every setter that changes a stat, and by every string set change
 
-    protected Map<String, NumberHolder<Integer>> ints = new HashMap<>();
-    protected Map<String, NumberHolder<Float>> floats = new HashMap<>();
-    protected Map<String, NumberHolder<Double>> doubles = new HashMap<>();
-    protected Map<String, Collection<String>> stringSets = new HashMap<>();
-    protected Map<String, BooleanHolder> booleans = new HashMap<>();
+    // stat values by their slot in the layout
+    protected int[] ints = layout.intDefaults.clone();
+    protected float[] floats = layout.floatDefaults.clone();
+    protected double[] doubles = layout.doubleDefaults.clone();
+    protected CompactStringSet[] stringSets = newStringSets(layout.stringSetCount);
+    protected boolean[] booleans = layout.booleanDefaults.clone();
+
+    private final BitSet dirtyStats = new BitSet(); // ordinals of the stats changed since this profile was last saved
+    private volatile boolean persisted = false; // whether this profile is known to have a row in the database
+    private ProfileJournal journal = null; // only set on persistent profiles, which have their changes journaled
+    private ProfileSchema schema = null;
+    private volatile MergedProfile mergedView = null; // the merged view this profile's changes are merged into, if any
 
     public abstract String getTableName();
 
@@ -90,99 +101,319 @@ public abstract class Profile {
 
     public abstract Class<? extends Skill> getSkillType();
 
+    /**
+     * Returns the ordinal of the given stat, which can be used to read and write it without looking up its name again
+     * @param stat the name of the stat
+     * @param type the type of the stat
+     * @return the ordinal of the stat
+     * @throws IllegalArgumentException if no stat of this type with this name is registered under this profile type
+     */
+    public int getOrdinal(String stat, StatLayout.StatType type){
+        int ordinal = layout.getOrdinal(stat);
+        if (ordinal < 0 || layout.getType(ordinal) != type) throw new IllegalArgumentException("No " + type.toString().toLowerCase(java.util.Locale.US) + " stat with this name " + stat + " is registered under " + getClass().getSimpleName());
+        return ordinal;
+    }
+
     public int getInt(String stat) {
-        if (!ints.containsKey(stat)) throw new IllegalArgumentException("No int stat with this name is registered under " + getClass().getSimpleName());
-        return ints.get(stat).getValue();
+        return getInt(getOrdinal(stat, StatLayout.StatType.INT));
+    }
+    public int getInt(int ordinal) {
+        return ints[layout.getSlot(ordinal)];
     }
     public int getDefaultInt(String stat) {
-        if (!ints.containsKey(stat)) throw new IllegalArgumentException("No int stat with this name is registered under " + getClass().getSimpleName());
-        return ints.get(stat).getDefault();
+        return layout.intDefaults[layout.getSlot(getOrdinal(stat, StatLayout.StatType.INT))];
     }
     public void setInt(String stat, int value){
-        if (!ints.containsKey(stat)) throw new IllegalArgumentException("No int stat with this name is registered under " + getClass().getSimpleName());
-        if (numberStatProperties.containsKey(stat) && !Double.isNaN(numberStatProperties.get(stat).getMin())) value = (int) Math.max(numberStatProperties.get(stat).getMin(), value);
-        if (numberStatProperties.containsKey(stat) && !Double.isNaN(numberStatProperties.get(stat).getMax())) value = (int) Math.min(numberStatProperties.get(stat).getMax(), value);
-        ints.get(stat).setValue(value);
+        setInt(getOrdinal(stat, StatLayout.StatType.INT), value);
+    }
+    public void setInt(int ordinal, int value){
+        int slot = layout.getSlot(ordinal);
+        value = (int) Math.max(layout.intMin[slot], value);
+        value = (int) Math.min(layout.intMax[slot], value);
+        if (ints[slot] == value) return;
+        ints[slot] = value;
+        markDirty(ordinal);
     }
 
     public float getFloat(String stat) {
-        if (!floats.containsKey(stat)) throw new IllegalArgumentException("No float stat with this name is registered under " + getClass().getSimpleName());
-        return floats.get(stat).getValue();
+        return getFloat(getOrdinal(stat, StatLayout.StatType.FLOAT));
+    }
+    public float getFloat(int ordinal) {
+        return floats[layout.getSlot(ordinal)];
     }
     public float getDefaultFloat(String stat) {
-        if (!floats.containsKey(stat)) throw new IllegalArgumentException("No float stat with this name is registered under " + getClass().getSimpleName());
-        return floats.get(stat).getDefault();
+        return layout.floatDefaults[layout.getSlot(getOrdinal(stat, StatLayout.StatType.FLOAT))];
     }
     public void setFloat(String stat, float value){
-        if (!floats.containsKey(stat)) throw new IllegalArgumentException("No float stat with this name is registered under " + getClass().getSimpleName());
-        if (numberStatProperties.containsKey(stat) && !Double.isNaN(numberStatProperties.get(stat).getMin())) value = (float) Math.max(numberStatProperties.get(stat).getMin(), value);
-        if (numberStatProperties.containsKey(stat) && !Double.isNaN(numberStatProperties.get(stat).getMax())) value = (float) Math.min(numberStatProperties.get(stat).getMax(), value);
-        floats.get(stat).setValue(value);
+        setFloat(getOrdinal(stat, StatLayout.StatType.FLOAT), value);
+    }
+    public void setFloat(int ordinal, float value){
+        int slot = layout.getSlot(ordinal);
+        value = (float) Math.max(layout.floatMin[slot], value);
+        value = (float) Math.min(layout.floatMax[slot], value);
+        if (floats[slot] == value) return;
+        floats[slot] = value;
+        markDirty(ordinal);
     }
 
     public double getDouble(String stat) {
-        if (!doubles.containsKey(stat)) throw new IllegalArgumentException("No double stat with this name " + stat + " is registered under " + getClass().getSimpleName());
-        return doubles.get(stat).getValue();
+        return getDouble(getOrdinal(stat, StatLayout.StatType.DOUBLE));
+    }
+    public double getDouble(int ordinal) {
+        return doubles[layout.getSlot(ordinal)];
     }
     public double getDefaultDouble(String stat) {
-        if (!doubles.containsKey(stat)) throw new IllegalArgumentException("No double stat with this name " + stat + " is registered under " + getClass().getSimpleName());
-        return doubles.get(stat).getDefault();
+        return layout.doubleDefaults[layout.getSlot(getOrdinal(stat, StatLayout.StatType.DOUBLE))];
     }
     public void setDouble(String stat, double value){
-        if (!doubles.containsKey(stat)) throw new IllegalArgumentException("No double stat with this name " + stat + " is registered under " + getClass().getSimpleName());
-        if (numberStatProperties.containsKey(stat) && !Double.isNaN(numberStatProperties.get(stat).getMin())) value = Math.max(numberStatProperties.get(stat).getMin(), value);
-        if (numberStatProperties.containsKey(stat) && !Double.isNaN(numberStatProperties.get(stat).getMax())) value = Math.min(numberStatProperties.get(stat).getMax(), value);
-        doubles.get(stat).setValue(value);
+        setDouble(getOrdinal(stat, StatLayout.StatType.DOUBLE), value);
+    }
+    public void setDouble(int ordinal, double value){
+        int slot = layout.getSlot(ordinal);
+        value = Math.max(layout.doubleMin[slot], value);
+        value = Math.min(layout.doubleMax[slot], value);
+        if (doubles[slot] == value) return;
+        doubles[slot] = value;
+        markDirty(ordinal);
     }
 
     public Collection<String> getStringSet(String stat) {
-        if (!stringSets.containsKey(stat)) throw new IllegalArgumentException("No stringSet stat with this name " + stat + " is registered under " + getClass().getSimpleName());
-        return stringSets.get(stat);
+        return getCompactStringSet(stat);
+    }
+    public CompactStringSet getCompactStringSet(String stat) {
+        return getCompactStringSet(getOrdinal(stat, StatLayout.StatType.STRING_SET));
+    }
+    public CompactStringSet getCompactStringSet(int ordinal) {
+        return stringSets[layout.getSlot(ordinal)];
     }
     public void setStringSet(String stat, Collection<String> value){
-        if (!stringSets.containsKey(stat)) throw new IllegalArgumentException("No stringSet stat with this name " + stat + " is registered under " + getClass().getSimpleName());
-        stringSets.put(stat, value);
+        setStringSet(getOrdinal(stat, StatLayout.StatType.STRING_SET), value);
+    }
+    public void setStringSet(int ordinal, Collection<String> value){
+        stringSets[layout.getSlot(ordinal)].setAll(value); // the same set is kept, so it still knows what was last written to the database
+        markDirty(ordinal); // string sets are usually modified in place before being set again, so they're always considered changed
     }
 
     public boolean getBoolean(String stat) {
-        if (!booleans.containsKey(stat)) throw new IllegalArgumentException("No boolean stat with this name " + stat + " is registered under " + getClass().getSimpleName());
-        return booleans.get(stat).getValue();
+        return getBoolean(getOrdinal(stat, StatLayout.StatType.BOOLEAN));
+    }
+    public boolean getBoolean(int ordinal) {
+        return booleans[layout.getSlot(ordinal)];
     }
     public boolean getDefaultBoolean(String stat) {
-        if (!booleans.containsKey(stat)) throw new IllegalArgumentException("No boolean stat with this name " + stat + " is registered under " + getClass().getSimpleName());
-        return booleans.get(stat).getDefault();
+        return layout.booleanDefaults[layout.getSlot(getOrdinal(stat, StatLayout.StatType.BOOLEAN))];
     }
     public boolean shouldBooleanStatHavePerkReward(String stat){
-        if (!booleans.containsKey(stat) || booleans.get(stat).getProperties() == null) return false;
-        return booleans.get(stat).getProperties().generatePerkReward();
+        int slot = layout.getSlot(stat, StatLayout.StatType.BOOLEAN);
+        if (slot < 0 || layout.booleanProperties[slot] == null) return false;
+        return layout.booleanProperties[slot].generatePerkReward();
     }
     public void setBoolean(String stat, boolean value){
-        if (!booleans.containsKey(stat)) throw new IllegalArgumentException("No boolean stat with this name " + stat + " is registered under " + getClass().getSimpleName());
-        booleans.get(stat).setValue(value);
+        setBoolean(getOrdinal(stat, StatLayout.StatType.BOOLEAN), value);
+    }
+    public void setBoolean(int ordinal, boolean value){
+        int slot = layout.getSlot(ordinal);
+        if (booleans[slot] == value) return;
+        booleans[slot] = value;
+        markDirty(ordinal);
+    }
+
+    public int getInt(StatKey<Integer> key) {
+        return ints[key.slotIn(this)];
+    }
+    public void setInt(StatKey<Integer> key, int value){
+        key.slotIn(this);
+        setInt(key.getOrdinal(), value);
+    }
+
+    public float getFloat(StatKey<Float> key) {
+        return floats[key.slotIn(this)];
+    }
+    public void setFloat(StatKey<Float> key, float value){
+        key.slotIn(this);
+        setFloat(key.getOrdinal(), value);
+    }
+
+    public double getDouble(StatKey<Double> key) {
+        return doubles[key.slotIn(this)];
+    }
+    public void setDouble(StatKey<Double> key, double value){
+        key.slotIn(this);
+        setDouble(key.getOrdinal(), value);
+    }
+
+    /**
+     * @param key the key of an int, float, or double stat
+     * @return the value of the stat, whichever type of number it is
+     */
+    public double getNumber(StatKey<? extends Number> key) {
+        int slot = key.slotIn(this);
+        return switch (key.getType()){
+            case INT -> ints[slot];
+            case FLOAT -> floats[slot];
+            case DOUBLE -> doubles[slot];
+            default -> throw new IllegalArgumentException("Stat " + key + " is not a number");
+        };
+    }
+
+    public CompactStringSet getStringSet(StatKey<Collection<String>> key) {
+        return stringSets[key.slotIn(this)];
+    }
+    public void setStringSet(StatKey<Collection<String>> key, Collection<String> value){
+        key.slotIn(this);
+        setStringSet(key.getOrdinal(), value);
+    }
+
+    public boolean getBoolean(StatKey<Boolean> key) {
+        return booleans[key.slotIn(this)];
+    }
+    public void setBoolean(StatKey<Boolean> key, boolean value){
+        key.slotIn(this);
+        setBoolean(key.getOrdinal(), value);
     }
 
     public Collection<String> intStatNames() {
-        return ints.keySet();
+        return layout.getStatNames(StatLayout.StatType.INT);
     }
 
     public Collection<String> floatStatNames() {
-        return floats.keySet();
+        return layout.getStatNames(StatLayout.StatType.FLOAT);
     }
 
     public Collection<String> doubleStatNames() {
-        return doubles.keySet();
+        return layout.getStatNames(StatLayout.StatType.DOUBLE);
     }
 
     public Collection<String> stringSetStatNames() {
-        return stringSets.keySet();
+        return layout.getStatNames(StatLayout.StatType.STRING_SET);
     }
 
     public Collection<String> booleanStatNames() {
-        return booleans.keySet();
+        return layout.getStatNames(StatLayout.StatType.BOOLEAN);
     }
 
     public Collection<String> getAllStatNames() {
-        return allStatNames;
+        return layout.getAllStatNames();
+    }
+
+    /**
+     * @return the layout of this profile's stats, shared by all profiles of this type once it's registered
+     */
+    public StatLayout getLayout() {
+        return layout;
+    }
+
+    private CompactStringSet[] newStringSets(int count){
+        CompactStringSet[] sets = new CompactStringSet[count];
+        for (int i = 0; i < count; i++) sets[i] = new CompactStringSet(modifications);
+        return sets;
+    }
+
+    /**
+     * Marks the given stat as changed, so it will be written to the database on the next save
+     * @param stat the stat that was changed
+     */
+    protected void markDirty(String stat){
+        int ordinal = layout.getOrdinal(stat);
+        if (ordinal >= 0) markDirty(ordinal);
+    }
+
+    private void markDirty(int ordinal){
+        modifications.incrementAndGet();
+        synchronized (dirtyStats){
+            dirtyStats.set(ordinal);
+        }
+        if (journal != null) journal.record(this, layout.getStat(ordinal));
+        MergedProfile view = mergedView;
+        if (view != null) view.update(ordinal);
+    }
+
+    /**
+     * Returns the amount of changes made to this profile's stats. This only ever goes up, so anything derived from the
+     * profile is up to date as long as the count didn't change since it was derived. String sets changed in place
+     * without being set again bump it as well.
+     * @return the modification count of this profile
+     */
+    public long getModificationCount(){
+        return modifications.get();
+    }
+
+    MergedProfile getMergedView() {
+        return mergedView;
+    }
+
+    void setMergedView(MergedProfile mergedView) {
+        this.mergedView = mergedView;
+    }
+
+    /**
+     * Marks all stats as changed, causing the whole profile to be written on the next save
+     */
+    public void markAllDirty(){
+        synchronized (dirtyStats){
+            dirtyStats.set(0, layout.size());
+        }
+        for (CompactStringSet set : stringSets) set.setPersisted(null); // written whole, replacing whatever is stored
+        if (journal != null) for (String stat : layout.getAllStatNames()) journal.record(this, stat);
+    }
+
+    /**
+     * Marks all stats as unchanged, for example after the profile was freshly loaded
+     */
+    public void markClean(){
+        synchronized (dirtyStats){
+            dirtyStats.clear();
+        }
+    }
+
+    /**
+     * @return true if any stat of this profile was changed since the last time it was saved
+     */
+    public boolean isDirty(){
+        synchronized (dirtyStats){
+            return !dirtyStats.isEmpty();
+        }
+    }
+
+    /**
+     * Returns the ordinals of all stats changed since the last save, and marks them as unchanged. If saving these
+     * stats fails, they should be handed back through {@link Profile#restoreDirtyStats(BitSet)}
+     * @return the ordinals of the changed stats
+     */
+    public BitSet takeDirtyStats(){
+        synchronized (dirtyStats){
+            BitSet taken = (BitSet) dirtyStats.clone();
+            dirtyStats.clear();
+            return taken;
+        }
+    }
+
+    /**
+     * Marks the given stats as changed again after saving them failed. They're journaled again too, as the journal
+     * segment they were first recorded in may be discarded by a save of all profiles in the meantime
+     * @param stats the ordinals of the stats that failed to save
+     */
+    public void restoreDirtyStats(BitSet stats){
+        synchronized (dirtyStats){
+            dirtyStats.or(stats);
+        }
+        if (journal != null) stats.stream().forEach(ordinal -> journal.record(this, layout.getStat(ordinal)));
+    }
+
+    public boolean isPersisted() {
+        return persisted;
+    }
+
+    public void setPersisted(boolean persisted) {
+        this.persisted = persisted;
+    }
+
+    /**
+     * Sets the journal this profile's changes are recorded in, should only be done for persistent profiles
+     * @param journal the journal, or null to stop journaling this profile's changes
+     */
+    public void setJournal(ProfileJournal journal) {
+        this.journal = journal;
     }
 
     /**
@@ -192,11 +423,10 @@ public abstract class Profile {
     protected void intStat(String name){ intStat(name, 0, new PropertyBuilder().format(StatFormat.INT).perkReward().create()); }
     protected void intStat(String name, StatProperties properties){ intStat(name, 0, properties); }
     protected void intStat(String name, int def, StatProperties properties){
-        if (allStatNames.contains(name)) throw new IllegalArgumentException("Duplicate stat name " + name);
-        allStatNames.add(name);
-        ints.put(name, new NumberHolder<>(def, def, properties));
-        if (properties != null) this.numberStatProperties.put(name, properties);
-        tablesToUpdate.add(name);
+        if (layout.isCompiled()) return; // the values were already taken from the compiled layout
+        layout.declareInt(name, def, properties);
+        ints = Arrays.copyOf(ints, ints.length + 1);
+        ints[ints.length - 1] = def;
     }
 
     /**
@@ -206,11 +436,10 @@ public abstract class Profile {
     protected void floatStat(String name){ floatStat(name, 0, new PropertyBuilder().format(StatFormat.FLOAT_P2).perkReward().create()); }
     protected void floatStat(String name, StatProperties properties){ floatStat(name, 0, properties); }
     protected void floatStat(String name, float def, StatProperties properties){
-        if (allStatNames.contains(name)) throw new IllegalArgumentException("Duplicate stat name " + name);
-        allStatNames.add(name);
-        floats.put(name, new NumberHolder<>(def, def, properties));
-        if (properties != null) this.numberStatProperties.put(name, properties);
-        tablesToUpdate.add(name);
+        if (layout.isCompiled()) return;
+        layout.declareFloat(name, def, properties);
+        floats = Arrays.copyOf(floats, floats.length + 1);
+        floats[floats.length - 1] = def;
     }
 
     /**
@@ -220,27 +449,26 @@ public abstract class Profile {
     protected void doubleStat(String name){ doubleStat(name, 0, new PropertyBuilder().format(StatFormat.FLOAT_P2).perkReward().create()); }
     protected void doubleStat(String name, StatProperties properties){ doubleStat(name, 0, properties); }
     protected void doubleStat(String name, double def, StatProperties properties){
-        if (allStatNames.contains(name)) throw new IllegalArgumentException("Duplicate stat name " + name);
-        allStatNames.add(name);
-        doubles.put(name, new NumberHolder<>(def, def, properties));
-        if (properties != null) this.numberStatProperties.put(name, properties);
-        tablesToUpdate.add(name);
+        if (layout.isCompiled()) return;
+        layout.declareDouble(name, def, properties);
+        doubles = Arrays.copyOf(doubles, doubles.length + 1);
+        doubles[doubles.length - 1] = def;
     }
 
     protected void stringSetStat(String name){
-        if (allStatNames.contains(name)) throw new IllegalArgumentException("Duplicate stat name " + name);
-        allStatNames.add(name);
-        stringSets.put(name, new HashSet<>());
-        tablesToUpdate.add(name);
+        if (layout.isCompiled()) return;
+        layout.declareStringSet(name);
+        stringSets = Arrays.copyOf(stringSets, stringSets.length + 1);
+        stringSets[stringSets.length - 1] = new CompactStringSet(modifications);
     }
 
     protected void booleanStat(String name){ booleanStat(name, false, new BooleanProperties(true, true)); }
     protected void booleanStat(String name, BooleanProperties properties){ booleanStat(name, false, properties); }
     protected void booleanStat(String name, boolean def, BooleanProperties properties){
-        if (allStatNames.contains(name)) throw new IllegalArgumentException("Duplicate stat name " + name);
-        allStatNames.add(name);
-        booleans.put(name, new BooleanHolder(def, def, properties));
-        tablesToUpdate.add(name);
+        if (layout.isCompiled()) return;
+        layout.declareBoolean(name, def, properties);
+        booleans = Arrays.copyOf(booleans, booleans.length + 1);
+        booleans[booleans.length - 1] = def;
     }
 
     private final NamespacedKey key = new NamespacedKey(ValhallaMMO.getInstance(), "PDC_persistence_" + getClass().getSimpleName().toLowerCase(java.util.Locale.US));
@@ -248,105 +476,183 @@ public abstract class Profile {
         return key;
     }
 
+    /**
+     * @return the compiled database layout of this profile type
+     */
+    public ProfileSchema getSchema() {
+        if (schema == null) schema = ProfileSchema.of(this);
+        return schema;
+    }
+
     public UUID getOwner() {
         return owner;
     }
 
     public Map<String, StatProperties> getNumberStatProperties() {
-        return numberStatProperties;
+        return layout.getNumberStatProperties();
     }
 
     public void createTable(Database conn) throws SQLException {
-        StringBuilder query = new StringBuilder("CREATE TABLE IF NOT EXISTS ");
-        query.append(getTableName()).append(" (");
-        query.append("owner VARCHAR(40) PRIMARY KEY");
-
-        // prepare table with all non-update stat names
-        for (String s : allStatNames){
-            if (tablesToUpdate.contains(s)) continue;
-            String lower = s.toLowerCase(java.util.Locale.US);
-            if (ints.containsKey(s)) query.append(", ").append(lower).append(" INTEGER default ").append(ints.get(s).def);
-            if (doubles.containsKey(s)) query.append(", ").append(lower).append(" DOUBLE(24,12) default ").append(doubles.get(s).def);
-            if (floats.containsKey(s)) query.append(", ").append(lower).append(" FLOAT default ").append(floats.get(s).def);
-            if (stringSets.containsKey(s)) query.append(", ").append(lower).append(" TEXT");
-            if (booleans.containsKey(s)) query.append(", ").append(lower).append(" BOOLEAN default ").append(booleans.get(s));
-        }
-        query.append(");");
-        conn.getConnection().prepareStatement(query.toString()).execute();
+        ProfileSchema schema = getSchema();
+        conn.write(connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(schema.getCreateTableQuery())) {
+                return stmt.execute();
+            }
+        });
 
         // edit table with new columns
-        for (String s : allStatNames){
-            String lower = s.toLowerCase(java.util.Locale.US);
-            if (ints.containsKey(s)) conn.addColumnIfNotExists(getTableName(), lower, "INTEGER default " + ints.get(s).def);
-            if (doubles.containsKey(s)) conn.addColumnIfNotExists(getTableName(), lower, "DOUBLE default " + doubles.get(s).def);
-            if (floats.containsKey(s)) conn.addColumnIfNotExists(getTableName(), lower, "FLOAT default " + floats.get(s).def);
-            if (stringSets.containsKey(s)) conn.addColumnIfNotExists(getTableName(), lower, "TEXT");
-            if (booleans.containsKey(s)) conn.addColumnIfNotExists(getTableName(), lower, "BOOLEAN default " + booleans.get(s).def);
+        SchemaReconciler.reconcile(conn, schema);
+
+        if (schema.hasStringSets()){
+            conn.write(connection -> {
+                try (PreparedStatement stmt = connection.prepareStatement(schema.getCreateStringSetTableQuery())) {
+                    return stmt.execute();
+                }
+            });
+            SchemaReconciler.migrateStringSets(conn, schema);
         }
     }
 
+    /**
+     * Writes this profile's changes to the database. A profile that isn't in the database yet is written whole, otherwise
+     * only the stats changed since the last save are updated.<br>
+     * When saving many profiles at once, {@link ProfileBatchWriter} should be preferred.
+     * @param conn the database to write to
+     * @throws SQLException if the profile could not be written, in which case its changes remain marked for the next save
+     */
     public void insertOrUpdateProfile(Database conn) throws SQLException {
-        StringBuilder query = new StringBuilder("REPLACE INTO ").append(getTableName()).append(" (owner");
-        // stat names
-        Map<Integer, String> indexMap = new HashMap<>();
-        int index = 2;
-        for (String s : allStatNames){
-            query.append(", ").append(s);
-            indexMap.put(index, s);
-            index++;
-        }
-        query.append(") VALUES (?");
-        // param placeholders
-        query.append(", ?".repeat(allStatNames.size()));
-        query.append(");");
-        // populating param placeholders
-        PreparedStatement stmt = conn.getConnection().prepareStatement(query.toString());
+        if (!ProfileBatchWriter.saveProfiles(conn, List.of(this))) throw new SQLException("Profile " + getClass().getSimpleName() + " of " + owner + " could not be saved");
+    }
+
+    /**
+     * @return a query writing a full row of this profile type, to be populated with {@link Profile#bindReplace(PreparedStatement)}
+     */
+    public String replaceQuery(){
+        return getSchema().getReplaceQuery();
+    }
+
+    public void bindReplace(PreparedStatement stmt) throws SQLException {
+        ProfileSchema schema = getSchema();
         stmt.setString(1, owner.toString());
-        for (int i : indexMap.keySet()){
-            String s = indexMap.get(i);
-            if (ints.containsKey(s)) stmt.setInt(i, ints.get(s).value);
-            else if (doubles.containsKey(s)) stmt.setDouble(i, doubles.get(s).value);
-            else if (floats.containsKey(s)) stmt.setFloat(i, floats.get(s).value);
-            else if (stringSets.containsKey(s)) stmt.setString(i, ProfilePersistence.serializeStringSet(stringSets.get(s)));
-            else if (booleans.containsKey(s)) stmt.setBoolean(i, booleans.get(s).getValue());
-            else ValhallaMMO.logWarning("Stat " + s + " from " + this.getClass().getSimpleName() + " did not belong to a valid data type");
+        int index = 2;
+        for (int i : schema.getRowStats()) bindStat(stmt, index++, schema, i);
+    }
+
+    /**
+     * @param stats the ordinals of the stats to update
+     * @return a query updating only the given stats of an existing row of this profile type, to be populated with
+     * {@link Profile#bindUpdate(PreparedStatement, BitSet)}
+     */
+    public String updateQuery(BitSet stats){
+        return getSchema().getUpdateQuery(stats);
+    }
+
+    public void bindUpdate(PreparedStatement stmt, BitSet stats) throws SQLException {
+        ProfileSchema schema = getSchema();
+        int index = 1;
+        for (int i = stats.nextSetBit(0); i >= 0; i = stats.nextSetBit(i + 1)) bindStat(stmt, index++, schema, i);
+        stmt.setString(index, owner.toString());
+    }
+
+    private void bindStat(PreparedStatement stmt, int index, ProfileSchema schema, int ordinal) throws SQLException {
+        int slot = layout.getSlot(ordinal);
+        switch (schema.getType(ordinal)){
+            case INT -> stmt.setInt(index, ints[slot]);
+            case DOUBLE -> stmt.setDouble(index, doubles[slot]);
+            case FLOAT -> stmt.setFloat(index, floats[slot]);
+            case STRING_SET -> throw new IllegalArgumentException("String set stat " + layout.getStat(ordinal) + " has no column to bind to");
+            case BOOLEAN -> stmt.setBoolean(index, booleans[slot]);
         }
-        stmt.execute();
     }
+
     public Profile fetchProfile(Player p, Database conn) throws SQLException{
-        PreparedStatement stmt = conn.getConnection().prepareStatement("SELECT * FROM " + getTableName() + " WHERE owner = ?;");
-        stmt.setString(1, p.getUniqueId().toString());
-        ResultSet result = stmt.executeQuery();
-        if (result.next()){
-            Profile profile = getBlankProfile(p);
-            for (String s : allStatNames){
-                String lower = s.toLowerCase(java.util.Locale.US);
-                if (ints.containsKey(s)) {
-                    profile.ints.get(s).value = result.getInt(lower);
-                    if (result.wasNull()) profile.ints.get(s).value = profile.ints.get(s).def;
+        return fetchProfile(p.getUniqueId(), conn);
+    }
+
+    public Profile fetchProfile(UUID owner, Database conn) throws SQLException{
+        try (Connection connection = conn.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(getSchema().getFetchQuery())) {
+            stmt.setString(1, owner.toString());
+            ResultSet result = stmt.executeQuery();
+            if (!result.next()) return null;
+            Profile profile = readProfile(owner, result, 2);
+            if (!getSchema().hasStringSets()) return profile;
+
+            Map<String, Collection<String>> stringSets = new HashMap<>();
+            try (PreparedStatement sets = connection.prepareStatement(getSchema().getStringSetFetchQuery())) {
+                sets.setString(1, owner.toString());
+                ResultSet members = sets.executeQuery();
+                while (members.next()) stringSets.computeIfAbsent(members.getString(1), k -> new ArrayList<>()).add(members.getString(2));
+            }
+            stringSets.forEach(profile::loadStringSet);
+            return profile;
+        }
+    }
+
+    /**
+     * Creates a profile of this type for the given owner out of the current row of the result set
+     * @param owner the owner of the profile
+     * @param result the result set, positioned at the row to read
+     * @param firstColumn the index of the first stat column, after which all stat columns must follow in the order of
+     *                    {@link ProfileSchema#getRowStats()}
+     * @return the read profile, with empty string sets. Their members are stored separately, and should be set through
+     * {@link Profile#loadStringSet(String, Collection)}
+     */
+    public Profile readProfile(UUID owner, ResultSet result, int firstColumn) throws SQLException {
+        ProfileSchema schema = getSchema();
+        Profile profile = getBlankProfile(owner);
+        int column = firstColumn;
+        for (int i : schema.getRowStats()){
+            int slot = layout.getSlot(i);
+            switch (schema.getType(i)){
+                case INT -> {
+                    profile.ints[slot] = result.getInt(column);
+                    if (result.wasNull()) profile.ints[slot] = layout.intDefaults[slot];
                 }
-                else if (doubles.containsKey(s)) {
-                    profile.doubles.get(s).value = result.getDouble(lower);
-                    if (result.wasNull()) profile.doubles.get(s).value = profile.doubles.get(s).def;
+                case DOUBLE -> {
+                    profile.doubles[slot] = result.getDouble(column);
+                    if (result.wasNull()) profile.doubles[slot] = layout.doubleDefaults[slot];
                 }
-                else if (floats.containsKey(s)) {
-                    profile.floats.get(s).value = result.getFloat(lower);
-                    if (result.wasNull()) profile.floats.get(s).value = profile.floats.get(s).def;
+                case FLOAT -> {
+                    profile.floats[slot] = result.getFloat(column);
+                    if (result.wasNull()) profile.floats[slot] = layout.floatDefaults[slot];
                 }
-                else if (stringSets.containsKey(s)) profile.stringSets.put(s, ProfilePersistence.deserializeStringSet(Objects.requireNonNullElse(result.getString(lower), "")));
-                else if (booleans.containsKey(s)) {
-                    profile.booleans.get(s).value = result.getBoolean(lower);
-                    if (result.wasNull()) profile.booleans.get(s).value = profile.booleans.get(s).def;
+                case STRING_SET -> {} // not stored in the profile's table
+                case BOOLEAN -> {
+                    profile.booleans[slot] = result.getBoolean(column);
+                    if (result.wasNull()) profile.booleans[slot] = layout.booleanDefaults[slot];
                 }
-                else ValhallaMMO.logWarning("Stat " + s + " in " + this.getClass().getSimpleName() + " was not found in database");
             }
-            return profile;
+            column++;
         }
-        return null;
+        for (CompactStringSet set : profile.stringSets) set.load(List.of()); // the row exists, so any members it has are stored
+        profile.persisted = true;
+        return profile;
+    }
+
+    /**
+     * Sets the members of a string set stat as they're stored in the database, without marking the stat as changed
+     * @param stat the string set stat
+     * @param values the stored members
+     */
+    public void loadStringSet(String stat, Collection<String> values){
+        int slot = layout.getSlot(stat, StatLayout.StatType.STRING_SET);
+        if (slot >= 0) stringSets[slot].load(values);
     }
 
     public abstract Profile getBlankProfile(Player owner);
 
+    /**
+     * Creates a blank profile for an owner that may not be online, like when profile changes are recovered on startup
+     * @param owner the UUID of the owner
+     * @return the blank profile
+     */
+    public Profile getBlankProfile(UUID owner){
+        Profile profile = getBlankProfile((Player) null);
+        profile.owner = owner;
+        return profile;
+    }
+
     /**
      * Merges this profile with the given profile, and assigns the new owner.<br>
      * Integers, doubles, and floats will be added together and have one of its default values subtracted.<br>
@@ -359,29 +665,30 @@ public abstract class Profile {
      */
     public Profile merge(Profile profile, Player owner){
         Profile merged = getBlankProfile(owner);
-        for (String s : allStatNames){
-            if (ints.containsKey(s)) {
-                StatProperties mode = this.ints.get(s).getProperties();
-                merged.ints.get(s).value = (int) mergeNumbers(mode, this.ints.get(s).value, profile.ints.get(s).value, profile.ints.get(s).def);
-            } else if (doubles.containsKey(s)) {
-                StatProperties mode = this.doubles.get(s).getProperties();
-                merged.doubles.get(s).value = mergeNumbers(mode, this.doubles.get(s).value, profile.doubles.get(s).value, profile.doubles.get(s).def);
-            } else if (floats.containsKey(s)) {
-                StatProperties mode = this.floats.get(s).getProperties();
-                merged.floats.get(s).value = (float) mergeNumbers(mode, this.floats.get(s).value, profile.floats.get(s).value, profile.floats.get(s).def);
-            } else if (stringSets.containsKey(s)) {
-                Collection<String> sets = new HashSet<>(profile.stringSets.get(s));
-                sets.addAll(this.stringSets.get(s));
-                merged.stringSets.put(s, sets);
-            } else if (booleans.containsKey(s)) {
-                merged.booleans.get(s).setValue(booleans.get(s).getProperties().shouldPrioritizeTrue() ?
-                        (profile.booleans.get(s).getValue() || this.booleans.get(s).getValue()) : // if either are true, put true
-                        (!(!profile.booleans.get(s).getValue() || !this.booleans.get(s).getValue()))); // if either are false, put false
-            } else ValhallaMMO.logWarning("Stat " + s + " in " + this.getClass().getSimpleName() + " was not associated to datatype");
-        }
+        for (int i = 0; i < layout.size(); i++) mergeStat(i, profile, merged);
         return merged;
     }
 
+    /**
+     * Merges a single stat of this profile with the given profile into the target profile, the same way
+     * {@link Profile#merge(Profile, Player)} does
+     * @param ordinal the ordinal of the stat to merge
+     * @param profile the profile to merge with this profile
+     * @param target the profile to write the merged value to
+     */
+    void mergeStat(int ordinal, Profile profile, Profile target){
+        int slot = layout.getSlot(ordinal);
+        switch (layout.getType(ordinal)){
+            case INT -> target.ints[slot] = (int) mergeNumbers(layout.intProperties[slot], this.ints[slot], profile.ints[slot], layout.intDefaults[slot]);
+            case DOUBLE -> target.doubles[slot] = mergeNumbers(layout.doubleProperties[slot], this.doubles[slot], profile.doubles[slot], layout.doubleDefaults[slot]);
+            case FLOAT -> target.floats[slot] = (float) mergeNumbers(layout.floatProperties[slot], this.floats[slot], profile.floats[slot], layout.floatDefaults[slot]);
+            case STRING_SET -> target.stringSets[slot].setUnion(profile.stringSets[slot], this.stringSets[slot]);
+            case BOOLEAN -> target.booleans[slot] = layout.booleanProperties[slot].shouldPrioritizeTrue() ?
+                    (profile.booleans[slot] || this.booleans[slot]) : // if either are true, put true
+                    (profile.booleans[slot] && this.booleans[slot]); // if either are false, put false
+        }
+    }
+
     private double mergeNumbers(StatProperties mode, double n1, double n2, double def){
         if (mode.addWhenMerged()){
             // values of both profiles should be added together in a merge
@@ -397,74 +704,9 @@ public abstract class Profile {
         }
     }
 
-    protected static class NumberHolder<T extends Number> {
-        private T value;
-        private final T def;
-        private final StatProperties properties;
-        public NumberHolder(T value, T def, StatProperties additive){
-            this.value = value;
-            this.def = def;
-            this.properties = additive;
-        }
-
-        public StatProperties getProperties() {
-            return properties;
-        }
-
-        public T getValue() {
-            return value;
-        }
-
-        public void setValue(T value) {
-            this.value = value;
-        }
-
-        public T getDefault() {
-            return def;
-        }
-    }
-
-    protected static class BooleanHolder {
-        private boolean value;
-        private final boolean def;
-        private final BooleanProperties properties;
-        public BooleanHolder(boolean value, boolean def, BooleanProperties additive){
-            this.value = value;
-            this.def = def;
-            this.properties = additive;
-        }
-
-        public BooleanProperties getProperties() {
-            return properties;
-        }
-
-        public boolean getValue() {
-            return value;
-        }
-
-        public void setValue(boolean value) {
-            this.value = value;
-        }
-
-        public boolean getDefault() {
-            return def;
-        }
-    }
-
     public static StatFormat getFormat(Class<? extends Profile> type, String stat){
-        Profile profile = ProfileRegistry.getRegisteredProfiles().get(type);
-        for (String i : profile.intStatNames()){
-            if (!i.equals(stat)) continue;
-            return profile.getNumberStatProperties().get(i).getFormat();
-        }
-        for (String i : profile.floatStatNames()){
-            if (!i.equals(stat)) continue;
-            return profile.getNumberStatProperties().get(i).getFormat();
-        }
-        for (String i : profile.doubleStatNames()){
-            if (!i.equals(stat)) continue;
-            return profile.getNumberStatProperties().get(i).getFormat();
-        }
+        StatProperties properties = ProfileRegistry.getProfileTypes().get(type).getNumberStatProperties().get(stat);
+        if (properties != null) return properties.getFormat();
         return null;
     }
 }
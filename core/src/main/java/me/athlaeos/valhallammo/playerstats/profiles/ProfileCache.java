@@ -1,23 +1,23 @@
 package me.athlaeos.valhallammo.playerstats.profiles;
 
-import me.athlaeos.valhallammo.ValhallaMMO;
+import me.athlaeos.valhallammo.persistence.ProfilePersistence;
 
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Holds the merged profiles of online players, as {@link MergedProfile} views which are kept up to date as their skill
+ * and persistent profiles change. Views don't expire: a view is only brought up to date when the modification count of
+ * either profile it's made of changed, so idle players' views are never merged again and changes are seen right away.
+ */
 public class ProfileCache {
-    private static final Map<UUID, Map<Class<? extends Profile>, CacheEntry>> cache = new ConcurrentHashMap<>();
-    private static long cacheDuration = 10000L;
-
-    public static void resetCacheDuration(){
-        cacheDuration = ValhallaMMO.getPluginConfig().getLong("profile_caching", 10000L);
-    }
+    private static final Map<UUID, MergedProfile[]> cache = new ConcurrentHashMap<>(); // indexed by profile type ordinal
 
     /**
      * Used to reset the cache of a player. Use this in case you make changes to a player's profile so that the cached
@@ -25,26 +25,43 @@ public class ProfileCache {
      * @param player the player to reset their cached profiles for
      */
     public static void resetCache(Player player) {
-        cache.remove(player.getUniqueId());
+        remove(player.getUniqueId());
     }
 
     /**
-     * Fetches a cached profile, or caches the player's merged profile if the previous is expired or doesn't exist
+     * Fetches the player's merged profile of the given type, building its view if it doesn't exist yet. If the player's
+     * profiles aren't loaded, a merged profile of blank profiles is returned without being cached
      * @param player the player to fetch the cached merged profile from
      * @param type the type of profile to fetch
-     * @return the cached profile
+     * @return the merged profile, which should only be read from
      */
     @SuppressWarnings("unchecked")
     public static <T extends Profile> T getOrCache(Player player, Class<T> type){
-        Map<Class<? extends Profile>, CacheEntry> profiles = cache.getOrDefault(player.getUniqueId(), new HashMap<>());
-        CacheEntry entry = profiles.get(type);
-        if (entry == null || entry.getCacheUntil() < System.currentTimeMillis()) {
-            entry = new CacheEntry(ProfileRegistry.getMergedProfile(player, type), cacheDuration);
-            profiles.put(type, entry);
-            entry.getCachedProfile().onCacheRefresh();
-            cache.put(player.getUniqueId(), profiles);
+        ProfilePersistence persistence = ProfileRegistry.getPersistence();
+        Profile skillProfile = persistence.getSkillProfile(player, type);
+        Profile persistentProfile = persistence.getPersistentProfile(player, type);
+        if (skillProfile == null || persistentProfile == null) {
+            // not loaded (yet), so there's nothing to keep a view of
+            Profile skill = skillProfile == null ? ProfileRegistry.getBlankProfile(player, type) : skillProfile;
+            return (T) skill.merge(persistentProfile == null ? ProfileRegistry.getBlankProfile(player, type) : persistentProfile, player);
         }
-        return (T) entry.getCachedProfile();
+
+        int ordinal = ProfileRegistry.getOrdinal(type);
+        if (ordinal < 0) throw new IllegalArgumentException("Profile type " + type.getSimpleName() + " was not yet registered for usage");
+        MergedProfile[] views = cache.get(player.getUniqueId());
+        if (views == null || ordinal >= views.length) views = cache.compute(player.getUniqueId(), (k, v) -> {
+            int size = ProfileRegistry.getProfileTypes().size();
+            return v == null ? new MergedProfile[size] : v.length >= size ? v : Arrays.copyOf(v, size); // grows if a type was registered since
+        });
+        MergedProfile view = views[ordinal];
+        if (view == null) {
+            synchronized (views) {
+                view = views[ordinal];
+                if (view == null) views[ordinal] = view = new MergedProfile(player, skillProfile, persistentProfile);
+            }
+        }
+        if (!view.isBoundTo(skillProfile, persistentProfile)) view.bind(skillProfile, persistentProfile); // either profile was replaced
+        return (T) view.get();
     }
 
     /**
@@ -53,25 +70,15 @@ public class ProfileCache {
     public static void cleanCache(){
         for (UUID uuid : new HashSet<>(cache.keySet())){
             Player p = Bukkit.getPlayer(uuid);
-            if (p == null || !p.isOnline()) cache.remove(uuid);
+            if (p == null || !p.isOnline()) remove(uuid);
         }
     }
 
-    private static class CacheEntry {
-        private final long cacheUntil;
-        private final Profile cachedProfile;
-
-        public CacheEntry(Profile profile, long cacheFor) {
-            this.cachedProfile = profile;
-            this.cacheUntil = System.currentTimeMillis() + cacheFor;
-        }
-
-        public Profile getCachedProfile() {
-            return cachedProfile;
-        }
-
-        public long getCacheUntil() {
-            return cacheUntil;
+    private static void remove(UUID uuid){
+        MergedProfile[] views = cache.remove(uuid);
+        if (views == null) return;
+        for (MergedProfile view : views) {
+            if (view != null) view.unbind();
         }
     }
 }
@@ -11,17 +11,20 @@ import me.athlaeos.valhallammo.playerstats.profiles.implementations.*;
 import me.athlaeos.valhallammo.skills.skills.Skill;
 
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 
 public class ProfileRegistry {
     private static ProfilePersistence persistence = null;
     private static final int delay_profile_saving = ConfigManager.getConfig("config.yml").reload().get().getInt("db_persist_delay");
-    private static Map<Class<? extends Profile>, Profile> registeredProfiles = Collections.unmodifiableMap(new HashMap<>());
+    private static ProfileJournal journal = null;
+    private static ProfileSaveScheduler saveScheduler = null;
+    private static volatile ProfileTypes registeredProfiles = ProfileTypes.EMPTY;
 
     static {
         registerProfileType(new PowerProfile(null));
@@ -42,22 +45,25 @@ public class ProfileRegistry {
 
     /**
      * Registers a new type of profile, this profile will be persisted in whatever storage method is used.
+     * The profile type is given the next ordinal, see {@link ProfileTypes}.
      * @param p the profile to persist. Any profile properties or owner is not relevant here and may be null.
      */
-    public static void registerProfileType(Profile p){
-        Map<Class<? extends Profile>, Profile> profiles = new HashMap<>(registeredProfiles);
-        profiles.put(p.getClass(), p);
-        registeredProfiles = Collections.unmodifiableMap(profiles);
+    public static synchronized void registerProfileType(Profile p){
+        StatLayout.compile(p); // profiles of this type created from now on share its stat layout
+        ProfileSchema.of(p); // compiles the statements of this profile type up front
+        registeredProfiles = registeredProfiles.with(p);
     }
 
     public static void setupDatabase(){
         if (persistence != null) return;
-        persistence = new SQL();
-        if (((Database) persistence).getConnection() == null) persistence = new SQLite(); // if SQL connection fails, choose SQLite
-        if (((Database) persistence).getConnection() == null) persistence = new PDC(); // if SQLite fails, choose PDC
+        // connection settings are captured once here, so borrowing a connection never needs to re-read the config
+        ConnectionSettings settings = ConnectionSettings.fromConfig(ConfigManager.getConfig("config.yml").reload().get());
+        persistence = new SQL(settings);
+        if (((Database) persistence).getPool() == null) persistence = new SQLite(settings); // if SQL connection fails, choose SQLite
+        if (((Database) persistence).getPool() == null) persistence = new PDC(); // if SQLite fails, choose PDC
 
         if (persistence instanceof Database){
-            for (Profile s : registeredProfiles.values()){
+            for (Profile s : registeredProfiles.profiles()){
                 try {
                     s.createTable((Database) persistence);
                 } catch (SQLException e){
@@ -65,14 +71,67 @@ public class ProfileRegistry {
                     e.printStackTrace();
                 }
             }
+            setupJournal((Database) persistence);
         }
 
+        YamlConfiguration config = ConfigManager.getConfig("config.yml").get();
+        saveScheduler = new ProfileSaveScheduler(persistence, delay_profile_saving,
+                config.getInt("profile_save_rate", 20), config.getInt("profile_save_queue_size", 64));
+        saveScheduler.start();
         Bukkit.getScheduler().runTaskTimerAsynchronously(ValhallaMMO.getInstance(), () -> {
-            ProfileRegistry.saveAll();
+            ProfileCache.cleanCache();
             LeaderboardManager.refreshLeaderboards();
         }, delay_profile_saving, delay_profile_saving);
     }
 
+    /**
+     * @return the scheduler saving profiles in the background, or null if the database wasn't set up yet
+     */
+    public static ProfileSaveScheduler getSaveScheduler() {
+        return saveScheduler;
+    }
+
+    /**
+     * Stops saving profiles in the background, so they may all be saved at once on shutdown
+     */
+    public static void stopSaveScheduler(){
+        if (saveScheduler == null) return;
+        saveScheduler.stop();
+        saveScheduler = null;
+    }
+
+    private static void setupJournal(Database database){
+        YamlConfiguration config = ConfigManager.getConfig("config.yml").get();
+        if (!config.getBoolean("profile_journal", true)) return;
+        try {
+            journal = new ProfileJournal(new File(ValhallaMMO.getInstance().getDataFolder(), "journal"));
+        } catch (IOException e){
+            ValhallaMMO.logSevere("Could not open the profile journal, profile changes made since the last save will be lost on a crash. ");
+            e.printStackTrace();
+            return;
+        }
+        journal.replay(database);
+        int flushDelay = Math.max(1, config.getInt("profile_journal_flush_delay", 20));
+        Bukkit.getScheduler().runTaskTimerAsynchronously(ValhallaMMO.getInstance(), journal::flush, flushDelay, flushDelay);
+    }
+
+    /**
+     * @return the journal persistent profile changes are recorded in between saves, or null if journaling is disabled
+     * or not supported by the persistence implementation
+     */
+    public static ProfileJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Closes the profile journal, should only be done after all profiles were saved on shutdown
+     */
+    public static void closeJournal(){
+        if (journal == null) return;
+        journal.close();
+        journal = null;
+    }
+
     public static void saveAll(){
         persistence.saveAllProfiles();
         ProfileCache.cleanCache();
@@ -137,6 +196,13 @@ public class ProfileRegistry {
         return profile == null ? getBlankProfile(p, type) : profile;
     }
 
+    /**
+     * Returns a copy of the player's skill and persistent profile merged together, which may be changed freely. Use
+     * {@link ProfileRegistry#getMergedProfileView(Player, Class)} instead if the merged profile only has to be read from.
+     * @param p the player to get the merged profile of
+     * @param type the type of profile
+     * @return a merged copy of the profiles
+     */
     @SuppressWarnings("unchecked")
     public static <T extends Profile> T getMergedProfile(Player p, Class<T> type) {
         Profile p1 = getPersistentProfile(p, type);
@@ -145,18 +211,46 @@ public class ProfileRegistry {
     }
 
     /**
-     * Returns a map with all the registered profiles. Modifying this map will not remove or create any new registered profile types.
+     * Returns the player's skill and persistent profile merged together as a view kept up to date as either of them
+     * changes, without copying them. The view is shared, so it should only be read from.
+     * @param p the player to get the merged profile of
+     * @param type the type of profile
+     * @return the merged profile view
+     */
+    public static <T extends Profile> T getMergedProfileView(Player p, Class<T> type) {
+        return ProfileCache.getOrCache(p, type);
+    }
+
+    /**
+     * Returns an unmodifiable map with all the registered profiles, in the order they were registered. The map is part
+     * of the current snapshot of registered profile types and isn't copied, so it doesn't change as more are registered.
      * Registering profile types may only be done through {@link ProfileRegistry#registerProfileType(Profile)}
-     * @return a new map containing all registered profiles
+     * @return an unmodifiable map containing all registered profiles
      */
     public static Map<Class<? extends Profile>, Profile> getRegisteredProfiles() {
-        return new HashMap<>(registeredProfiles);
+        return registeredProfiles.asMap();
+    }
+
+    /**
+     * @return the current snapshot of registered profile types, which doesn't change as more are registered
+     */
+    public static ProfileTypes getProfileTypes() {
+        return registeredProfiles;
+    }
+
+    /**
+     * @param type the profile type
+     * @return the stable ordinal of the registered profile type, or -1 if it isn't registered
+     */
+    public static int getOrdinal(Class<? extends Profile> type) {
+        return registeredProfiles.getOrdinal(type);
     }
 
     @SuppressWarnings("unchecked") // Registered profiles will always match the class type given how registerProfileType() works
     public static <T extends Profile> T getBlankProfile(Player owner, Class<T> type){
-        if (!registeredProfiles.containsKey(type)) throw new IllegalArgumentException("Profile type " + type.getSimpleName() + " was not yet registered for usage");
-        return (T) registeredProfiles.get(type).getBlankProfile(owner);
+        Profile profile = registeredProfiles.get(type);
+        if (profile == null) throw new IllegalArgumentException("Profile type " + type.getSimpleName() + " was not yet registered for usage");
+        return (T) profile.getBlankProfile(owner);
     }
 
     public static void reset(Player p, ResetType type) {
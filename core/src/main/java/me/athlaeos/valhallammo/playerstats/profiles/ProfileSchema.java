@@ -0,0 +1,258 @@
+package me.athlaeos.valhallammo.playerstats.profiles;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The database layout of a profile type, compiled once per profile class when it's registered.<br>
+ * Each stat is given a column at its ordinal, along with the type used to bind and read its value. The statements to
+ * create, fetch, and replace rows are built up front, and so statements updating only some columns are built once per
+ * combination of columns, so saving and loading a profile only has to bind its values.<br>
+ * String set stats aren't stored in the profile's table, but as one row per member in a separate table named after it
+ * (suffixed with _sets), so members can be added and removed without rewriting the whole set. Those rows are keyed on
+ * a hash of the member rather than the member itself, which keeps the key short enough for any MySQL row format while
+ * allowing members of any length.
+ */
+public class ProfileSchema {
+    private static final Map<Class<? extends Profile>, ProfileSchema> schemas = new ConcurrentHashMap<>();
+    private static final int MAX_CACHED_UPDATE_QUERIES = 512;
+
+    private final String tableName;
+    private final String[] stats;
+    private final String[] columns;
+    private final ColumnType[] types;
+    private final String[] columnDefinitions;
+    private final int[] rowStats;
+    private final BitSet stringSetStats = new BitSet();
+    private final String createTableQuery;
+    private final String fetchQuery;
+    private final String replaceQuery;
+    private final String stringSetTableName;
+    private final String createStringSetTableQuery;
+    private final String stringSetFetchQuery;
+    private final String stringSetInsertQuery;
+    private final String stringSetDeleteQuery;
+    private final String stringSetClearQuery;
+    private final Map<BitSet, String> updateQueries = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the schema of the given profile's type, compiling it if this is the first time it's requested
+     * @param profile any profile of the type to get the schema of
+     * @return the schema of the profile type
+     */
+    public static ProfileSchema of(Profile profile){
+        return schemas.computeIfAbsent(profile.getClass(), k -> new ProfileSchema(profile));
+    }
+
+    private ProfileSchema(Profile profile){
+        this.tableName = profile.getTableName();
+        StatLayout layout = profile.getLayout();
+        int size = layout.size();
+        this.stats = layout.getAllStatNames().toArray(new String[0]);
+        this.columns = new String[size];
+        this.types = new ColumnType[size];
+        this.columnDefinitions = new String[size];
+        this.stringSetTableName = tableName + "_sets";
+        this.createStringSetTableQuery = "CREATE TABLE IF NOT EXISTS " + stringSetTableName + " (owner VARCHAR(40) NOT NULL, " +
+                "stat VARCHAR(64) NOT NULL, value_hash CHAR(40) NOT NULL, value TEXT NOT NULL, PRIMARY KEY (owner, stat, value_hash));";
+        this.stringSetFetchQuery = "SELECT stat, value FROM " + stringSetTableName + " WHERE owner = ?;";
+        this.stringSetInsertQuery = "REPLACE INTO " + stringSetTableName + " (owner, stat, value_hash, value) VALUES (?, ?, ?, ?);";
+        this.stringSetDeleteQuery = "DELETE FROM " + stringSetTableName + " WHERE owner = ? AND stat = ? AND value_hash = ?;";
+        this.stringSetClearQuery = "DELETE FROM " + stringSetTableName + " WHERE owner = ? AND stat = ?;";
+        int[] rowStats = new int[size];
+        int rowColumns = 0;
+
+        StringBuilder create = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(tableName).append(" (owner VARCHAR(40) PRIMARY KEY");
+        StringBuilder fetch = new StringBuilder("SELECT owner");
+        StringBuilder replace = new StringBuilder("REPLACE INTO ").append(tableName).append(" (owner");
+        for (int i = 0; i < size; i++){
+            String stat = stats[i];
+            columns[i] = stat.toLowerCase(Locale.US);
+            switch (layout.getType(i)){
+                case INT -> {
+                    types[i] = ColumnType.INT;
+                    columnDefinitions[i] = "INTEGER default " + profile.getDefaultInt(stat);
+                }
+                case DOUBLE -> {
+                    types[i] = ColumnType.DOUBLE;
+                    columnDefinitions[i] = "DOUBLE default " + profile.getDefaultDouble(stat);
+                }
+                case FLOAT -> {
+                    types[i] = ColumnType.FLOAT;
+                    columnDefinitions[i] = "FLOAT default " + profile.getDefaultFloat(stat);
+                }
+                case STRING_SET -> {
+                    types[i] = ColumnType.STRING_SET;
+                    columnDefinitions[i] = "TEXT";
+                    stringSetStats.set(i);
+                }
+                case BOOLEAN -> {
+                    types[i] = ColumnType.BOOLEAN;
+                    columnDefinitions[i] = "BOOLEAN default " + profile.getDefaultBoolean(stat);
+                }
+            }
+            if (types[i] == ColumnType.STRING_SET) continue; // stored in the string set table instead
+            rowStats[rowColumns++] = i;
+            // new tables get doubles with a fixed precision, columns added to existing tables later are plain doubles
+            String createDefinition = types[i] == ColumnType.DOUBLE ? "DOUBLE(24,12) default " + profile.getDefaultDouble(stat) : columnDefinitions[i];
+            create.append(", ").append(columns[i]).append(" ").append(createDefinition);
+            fetch.append(", ").append(columns[i]);
+            replace.append(", ").append(columns[i]);
+        }
+        this.rowStats = Arrays.copyOf(rowStats, rowColumns);
+        this.createTableQuery = create.append(");").toString();
+        this.fetchQuery = fetch.append(" FROM ").append(tableName).append(" WHERE owner = ?;").toString();
+        this.replaceQuery = replace.append(") VALUES (?").append(", ?".repeat(rowColumns)).append(");").toString();
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return the amount of stats, including string set stats which have no column in the profile's table
+     */
+    public int size(){
+        return stats.length;
+    }
+
+    /**
+     * @return the ordinals of the stats stored as columns of the profile's table, in the order their columns are
+     * fetched and replaced. The array must not be modified
+     */
+    public int[] getRowStats(){
+        return rowStats;
+    }
+
+    /**
+     * @return the ordinals of the string set stats, which are stored in the string set table. The set must not be modified
+     */
+    public BitSet getStringSetStats(){
+        return stringSetStats;
+    }
+
+    public boolean hasStringSets(){
+        return !stringSetStats.isEmpty();
+    }
+
+    public String getStat(int ordinal){
+        return stats[ordinal];
+    }
+
+    public String getColumn(int ordinal){
+        return columns[ordinal];
+    }
+
+    public ColumnType getType(int ordinal){
+        return types[ordinal];
+    }
+
+    /**
+     * @return the SQL type and default of the column at this ordinal, as used to add it to an existing table
+     */
+    public String getColumnDefinition(int ordinal){
+        return columnDefinitions[ordinal];
+    }
+
+    public String getCreateTableQuery() {
+        return createTableQuery;
+    }
+
+    /**
+     * @return a query selecting the owner column followed by every column of {@link #getRowStats()}, for a single owner
+     */
+    public String getFetchQuery() {
+        return fetchQuery;
+    }
+
+    /**
+     * @return a query writing a full row, with the owner as first parameter followed by every stat of {@link #getRowStats()}
+     */
+    public String getReplaceQuery() {
+        return replaceQuery;
+    }
+
+    public String getStringSetTableName() {
+        return stringSetTableName;
+    }
+
+    public String getCreateStringSetTableQuery() {
+        return createStringSetTableQuery;
+    }
+
+    /**
+     * @return a query selecting the stat and value of every string set member of a single owner
+     */
+    public String getStringSetFetchQuery() {
+        return stringSetFetchQuery;
+    }
+
+    /**
+     * @return a query adding a member to a string set, with the owner, stat, hash of the value (see
+     * {@link #hashStringSetMember(String)}), and value as parameters
+     */
+    public String getStringSetInsertQuery() {
+        return stringSetInsertQuery;
+    }
+
+    /**
+     * @return a query removing a member from a string set, with the owner, stat, and hash of the value as parameters
+     */
+    public String getStringSetDeleteQuery() {
+        return stringSetDeleteQuery;
+    }
+
+    /**
+     * @param value a member of a string set
+     * @return the hash the member's row in the string set table is keyed on, a 40 character hex string
+     */
+    public static String hashStringSetMember(String value){
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException("SHA-1 is not available", e); // every Java platform is required to support it
+        }
+    }
+
+    /**
+     * @return a query removing all members of a string set, with the owner and stat as parameters
+     */
+    public String getStringSetClearQuery() {
+        return stringSetClearQuery;
+    }
+
+    /**
+     * @param stats the ordinals of the stats to update, none of which may be string set stats
+     * @return a query updating only the given stats of an existing row, with the stats as parameters in ordinal order
+     * followed by the owner
+     */
+    public String getUpdateQuery(BitSet stats){
+        String query = updateQueries.get(stats);
+        if (query != null) return query;
+        StringBuilder builder = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+        int first = stats.nextSetBit(0);
+        for (int i = first; i >= 0; i = stats.nextSetBit(i + 1)){
+            if (i != first) builder.append(", ");
+            builder.append(columns[i]).append(" = ?");
+        }
+        query = builder.append(" WHERE owner = ?;").toString();
+        // the combinations of changed stats seen in practice are few, but they're not cached without limit just in case
+        if (updateQueries.size() < MAX_CACHED_UPDATE_QUERIES) updateQueries.put((BitSet) stats.clone(), query);
+        return query;
+    }
+
+    public enum ColumnType {
+        INT,
+        FLOAT,
+        DOUBLE,
+        STRING_SET,
+        BOOLEAN
+    }
+}
@@ -0,0 +1,95 @@
+package me.athlaeos.valhallammo.playerstats.profiles;
+
+import java.util.*;
+
+/**
+ * An immutable snapshot of the registered profile types, in the order they were registered.<br>
+ * Each profile type has a stable ordinal, its index in this snapshot, which stays the same as more types are registered.
+ * Per-player storage of all profile types can therefore be an array indexed by this ordinal instead of a map. A new
+ * snapshot is published by {@link ProfileRegistry} whenever a type is registered, so a snapshot can be iterated any
+ * number of times without copying it.
+ */
+public final class ProfileTypes {
+    static final ProfileTypes EMPTY = new ProfileTypes(new Profile[0]);
+
+    private final Profile[] profiles;
+    private final Map<Class<? extends Profile>, Integer> ordinals = new IdentityHashMap<>();
+    private final List<Profile> list;
+    private final Map<Class<? extends Profile>, Profile> map;
+
+    private ProfileTypes(Profile[] profiles){
+        this.profiles = profiles;
+        Map<Class<? extends Profile>, Profile> map = new LinkedHashMap<>();
+        for (int i = 0; i < profiles.length; i++) {
+            ordinals.put(profiles[i].getClass(), i);
+            map.put(profiles[i].getClass(), profiles[i]);
+        }
+        this.list = List.of(profiles);
+        this.map = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @return a new snapshot with the given profile type added, or replaced if a profile of its type was already
+     * registered, in which case it keeps its ordinal
+     */
+    ProfileTypes with(Profile profile){
+        Integer existing = ordinals.get(profile.getClass());
+        Profile[] profiles;
+        if (existing != null) {
+            profiles = this.profiles.clone();
+            profiles[existing] = profile;
+        } else {
+            profiles = Arrays.copyOf(this.profiles, this.profiles.length + 1);
+            profiles[this.profiles.length] = profile;
+        }
+        return new ProfileTypes(profiles);
+    }
+
+    /**
+     * @return the amount of registered profile types
+     */
+    public int size(){
+        return profiles.length;
+    }
+
+    /**
+     * @return the registered profile at the given ordinal
+     */
+    public Profile get(int ordinal){
+        return profiles[ordinal];
+    }
+
+    /**
+     * @return the registered profile of the given type, or null if it isn't registered
+     */
+    public Profile get(Class<? extends Profile> type){
+        Integer ordinal = ordinals.get(type);
+        return ordinal == null ? null : profiles[ordinal];
+    }
+
+    /**
+     * @return the ordinal of the profile type, or -1 if it isn't registered
+     */
+    public int getOrdinal(Class<? extends Profile> type){
+        Integer ordinal = ordinals.get(type);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public boolean contains(Class<? extends Profile> type){
+        return ordinals.containsKey(type);
+    }
+
+    /**
+     * @return the registered profiles, in order of their ordinal
+     */
+    public List<Profile> profiles(){
+        return list;
+    }
+
+    /**
+     * @return the registered profiles mapped by their type, in order of their ordinal
+     */
+    public Map<Class<? extends Profile>, Profile> asMap(){
+        return map;
+    }
+}
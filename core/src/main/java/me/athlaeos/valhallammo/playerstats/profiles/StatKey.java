@@ -0,0 +1,147 @@
+package me.athlaeos.valhallammo.playerstats.profiles;
+
+import me.athlaeos.valhallammo.playerstats.format.StatFormat;
+import me.athlaeos.valhallammo.playerstats.profiles.properties.StatProperties;
+
+import java.util.Collection;
+
+/**
+ * A handle to a stat of a registered profile type, resolved once against the type's {@link StatLayout}. Profiles read
+ * and write a stat through its key by going straight to its slot, without looking up its name.<br>
+ * Keys should be resolved when whatever uses them is created or loaded from config, so a stat name that doesn't exist
+ * or isn't of the expected type is reported right away instead of whenever the stat is first used.
+ * @param <T> the type of the stat's value
+ */
+public final class StatKey<T> {
+    private final Class<? extends Profile> profileType;
+    private final StatLayout layout;
+    private final String name;
+    private final StatLayout.StatType type;
+    private final int ordinal;
+    private final int slot;
+
+    private StatKey(Class<? extends Profile> profileType, StatLayout layout, String name, int ordinal){
+        this.profileType = profileType;
+        this.layout = layout;
+        this.name = name;
+        this.type = layout.getType(ordinal);
+        this.ordinal = ordinal;
+        this.slot = layout.getSlot(ordinal);
+    }
+
+    public static StatKey<Integer> ofInt(Class<? extends Profile> profileType, String stat){
+        return resolve(profileType, stat, StatLayout.StatType.INT);
+    }
+
+    public static StatKey<Float> ofFloat(Class<? extends Profile> profileType, String stat){
+        return resolve(profileType, stat, StatLayout.StatType.FLOAT);
+    }
+
+    public static StatKey<Double> ofDouble(Class<? extends Profile> profileType, String stat){
+        return resolve(profileType, stat, StatLayout.StatType.DOUBLE);
+    }
+
+    public static StatKey<Collection<String>> ofStringSet(Class<? extends Profile> profileType, String stat){
+        return resolve(profileType, stat, StatLayout.StatType.STRING_SET);
+    }
+
+    public static StatKey<Boolean> ofBoolean(Class<? extends Profile> profileType, String stat){
+        return resolve(profileType, stat, StatLayout.StatType.BOOLEAN);
+    }
+
+    /**
+     * Resolves a stat that may be an int, float, or double stat
+     * @param profileType the registered profile type the stat belongs to
+     * @param stat the name of the stat
+     * @return the key of the stat
+     * @throws IllegalArgumentException if the profile type isn't registered, or has no number stat with this name
+     */
+    public static StatKey<? extends Number> ofNumber(Class<? extends Profile> profileType, String stat){
+        StatLayout layout = layoutOf(profileType);
+        int ordinal = layout.getOrdinal(stat);
+        if (ordinal < 0) throw new IllegalArgumentException("No stat with this name " + stat + " is registered under " + profileType.getSimpleName());
+        return switch (layout.getType(ordinal)){
+            case INT, FLOAT, DOUBLE -> new StatKey<>(profileType, layout, stat, ordinal);
+            default -> throw new IllegalArgumentException("Stat " + stat + " of " + profileType.getSimpleName() + " is not a number");
+        };
+    }
+
+    private static <T> StatKey<T> resolve(Class<? extends Profile> profileType, String stat, StatLayout.StatType type){
+        StatLayout layout = layoutOf(profileType);
+        int ordinal = layout.getOrdinal(stat);
+        if (ordinal < 0 || layout.getType(ordinal) != type) throw new IllegalArgumentException("No " + type.toString().toLowerCase(java.util.Locale.US) + " stat with this name " + stat + " is registered under " + profileType.getSimpleName());
+        return new StatKey<>(profileType, layout, stat, ordinal);
+    }
+
+    private static StatLayout layoutOf(Class<? extends Profile> profileType){
+        StatLayout layout = StatLayout.of(profileType);
+        if (layout == null) {
+            // the built-in profile types are registered once the registry is first used, which may not have happened yet
+            ProfileRegistry.getProfileTypes();
+            layout = StatLayout.of(profileType);
+        }
+        if (layout == null) throw new IllegalArgumentException("Profile type " + profileType.getSimpleName() + " was not yet registered for usage");
+        return layout;
+    }
+
+    public Class<? extends Profile> getProfileType() {
+        return profileType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public StatLayout.StatType getType() {
+        return type;
+    }
+
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * @return the slot of the stat in its profile's array of this stat's type
+     */
+    int slotIn(Profile profile){
+        if (profile.getLayout() != layout) throw new IllegalArgumentException("Stat key " + name + " of " + profileType.getSimpleName() + " used on a " + profile.getClass().getSimpleName());
+        return slot;
+    }
+
+    /**
+     * @return the number properties of this stat, or null if it isn't a number stat or has none
+     */
+    public StatProperties getProperties(){
+        return switch (type){
+            case INT -> layout.intProperties[slot];
+            case FLOAT -> layout.floatProperties[slot];
+            case DOUBLE -> layout.doubleProperties[slot];
+            default -> null;
+        };
+    }
+
+    /**
+     * @return the default value of this stat if it's a number stat, otherwise 0
+     */
+    public double getDefaultNumber(){
+        return switch (type){
+            case INT -> layout.intDefaults[slot];
+            case FLOAT -> layout.floatDefaults[slot];
+            case DOUBLE -> layout.doubleDefaults[slot];
+            default -> 0;
+        };
+    }
+
+    /**
+     * @return the format of this stat, or null if it isn't a number stat or has no format
+     */
+    public StatFormat getFormat(){
+        StatProperties properties = getProperties();
+        return properties == null ? null : properties.getFormat();
+    }
+
+    @Override
+    public String toString() {
+        return profileType.getSimpleName() + "." + name;
+    }
+}
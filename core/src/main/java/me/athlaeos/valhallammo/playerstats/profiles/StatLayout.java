@@ -0,0 +1,231 @@
+package me.athlaeos.valhallammo.playerstats.profiles;
+
+import me.athlaeos.valhallammo.playerstats.profiles.properties.BooleanProperties;
+import me.athlaeos.valhallammo.playerstats.profiles.properties.StatProperties;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The stats of a profile type, compiled once per profile class when it's registered.<br>
+ * Each stat is given an ordinal in the order it was declared, and a slot in the array of its type, so profiles can hold
+ * their values in plain int, float, double, and boolean arrays instead of maps of boxed values. The defaults of each type
+ * and the bounds its values are clamped to are kept in arrays parallel to those, and stats of a missing bound are given
+ * an infinite one so clamping doesn't need to check for it.<br>
+ * Until the profile class is registered, every profile of it builds up its own layout as its stats are declared. After
+ * that, new profiles share the compiled layout and skip declaring their stats altogether.
+ */
+public class StatLayout {
+    private static final Map<Class<? extends Profile>, StatLayout> layouts = new ConcurrentHashMap<>();
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private String[] stats = new String[0];
+    private StatType[] types = new StatType[0];
+    private int[] slots = new int[0];
+    private final List<String> allStatNames = new ArrayList<>();
+    private final Map<StatType, Set<String>> statNames = new EnumMap<>(StatType.class);
+    private final Map<StatType, Set<String>> statNameViews = new EnumMap<>(StatType.class);
+    private final Map<String, StatProperties> numberStatProperties = new HashMap<>();
+    private boolean compiled = false;
+
+    int[] intDefaults = new int[0];
+    double[] intMin = new double[0];
+    double[] intMax = new double[0];
+    StatProperties[] intProperties = new StatProperties[0];
+
+    float[] floatDefaults = new float[0];
+    double[] floatMin = new double[0];
+    double[] floatMax = new double[0];
+    StatProperties[] floatProperties = new StatProperties[0];
+
+    double[] doubleDefaults = new double[0];
+    double[] doubleMin = new double[0];
+    double[] doubleMax = new double[0];
+    StatProperties[] doubleProperties = new StatProperties[0];
+
+    int stringSetCount = 0;
+
+    boolean[] booleanDefaults = new boolean[0];
+    BooleanProperties[] booleanProperties = new BooleanProperties[0];
+
+    StatLayout(){
+        for (StatType type : StatType.values()) {
+            Set<String> names = new LinkedHashSet<>();
+            statNames.put(type, names);
+            statNameViews.put(type, Collections.unmodifiableSet(names));
+        }
+    }
+
+    /**
+     * @param type the profile class
+     * @return the compiled layout of the profile class, or null if it wasn't registered yet
+     */
+    public static StatLayout of(Class<? extends Profile> type){
+        return layouts.get(type);
+    }
+
+    /**
+     * Compiles the layout of the given profile's class, after which no stats can be declared on it anymore. Profiles of
+     * the class created afterwards share this layout
+     * @param profile the profile whose stats are all declared
+     * @return the compiled layout of the profile class
+     */
+    static StatLayout compile(Profile profile){
+        return layouts.computeIfAbsent(profile.getClass(), k -> {
+            StatLayout layout = profile.getLayout();
+            layout.compiled = true;
+            return layout;
+        });
+    }
+
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Adds a stat to this layout
+     * @return the slot of the stat in the array of its type
+     */
+    int declare(String name, StatType type){
+        if (compiled) throw new IllegalStateException("Stat " + name + " can't be declared after its profile type was registered");
+        if (ordinals.containsKey(name)) throw new IllegalArgumentException("Duplicate stat name " + name);
+        Set<String> names = statNames.get(type);
+        int slot = names.size();
+        int ordinal = stats.length;
+        ordinals.put(name, ordinal);
+        names.add(name);
+        allStatNames.add(name);
+        stats = Arrays.copyOf(stats, ordinal + 1);
+        stats[ordinal] = name;
+        types = Arrays.copyOf(types, ordinal + 1);
+        types[ordinal] = type;
+        slots = Arrays.copyOf(slots, ordinal + 1);
+        slots[ordinal] = slot;
+        return slot;
+    }
+
+    void declareInt(String name, int def, StatProperties properties){
+        int slot = declare(name, StatType.INT);
+        intDefaults = Arrays.copyOf(intDefaults, slot + 1);
+        intDefaults[slot] = def;
+        intMin = Arrays.copyOf(intMin, slot + 1);
+        intMin[slot] = min(properties);
+        intMax = Arrays.copyOf(intMax, slot + 1);
+        intMax[slot] = max(properties);
+        intProperties = Arrays.copyOf(intProperties, slot + 1);
+        intProperties[slot] = properties;
+        if (properties != null) numberStatProperties.put(name, properties);
+    }
+
+    void declareFloat(String name, float def, StatProperties properties){
+        int slot = declare(name, StatType.FLOAT);
+        floatDefaults = Arrays.copyOf(floatDefaults, slot + 1);
+        floatDefaults[slot] = def;
+        floatMin = Arrays.copyOf(floatMin, slot + 1);
+        floatMin[slot] = min(properties);
+        floatMax = Arrays.copyOf(floatMax, slot + 1);
+        floatMax[slot] = max(properties);
+        floatProperties = Arrays.copyOf(floatProperties, slot + 1);
+        floatProperties[slot] = properties;
+        if (properties != null) numberStatProperties.put(name, properties);
+    }
+
+    void declareDouble(String name, double def, StatProperties properties){
+        int slot = declare(name, StatType.DOUBLE);
+        doubleDefaults = Arrays.copyOf(doubleDefaults, slot + 1);
+        doubleDefaults[slot] = def;
+        doubleMin = Arrays.copyOf(doubleMin, slot + 1);
+        doubleMin[slot] = min(properties);
+        doubleMax = Arrays.copyOf(doubleMax, slot + 1);
+        doubleMax[slot] = max(properties);
+        doubleProperties = Arrays.copyOf(doubleProperties, slot + 1);
+        doubleProperties[slot] = properties;
+        if (properties != null) numberStatProperties.put(name, properties);
+    }
+
+    void declareStringSet(String name){
+        declare(name, StatType.STRING_SET);
+        stringSetCount++;
+    }
+
+    void declareBoolean(String name, boolean def, BooleanProperties properties){
+        int slot = declare(name, StatType.BOOLEAN);
+        booleanDefaults = Arrays.copyOf(booleanDefaults, slot + 1);
+        booleanDefaults[slot] = def;
+        booleanProperties = Arrays.copyOf(booleanProperties, slot + 1);
+        booleanProperties[slot] = properties;
+    }
+
+    private static double min(StatProperties properties){
+        return properties == null || Double.isNaN(properties.getMin()) ? Double.NEGATIVE_INFINITY : properties.getMin();
+    }
+
+    private static double max(StatProperties properties){
+        return properties == null || Double.isNaN(properties.getMax()) ? Double.POSITIVE_INFINITY : properties.getMax();
+    }
+
+    /**
+     * @return the ordinal of the stat, or -1 if there's no stat with this name
+     */
+    public int getOrdinal(String stat){
+        Integer ordinal = ordinals.get(stat);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * @return the slot of the stat in the array of the given type, or -1 if there's no stat of this type with this name
+     */
+    public int getSlot(String stat, StatType type){
+        Integer ordinal = ordinals.get(stat);
+        if (ordinal == null || types[ordinal] != type) return -1;
+        return slots[ordinal];
+    }
+
+    /**
+     * @return the amount of stats of all types
+     */
+    public int size(){
+        return stats.length;
+    }
+
+    public String getStat(int ordinal){
+        return stats[ordinal];
+    }
+
+    public StatType getType(int ordinal){
+        return types[ordinal];
+    }
+
+    /**
+     * @return the slot of the stat at this ordinal in the array of its type
+     */
+    public int getSlot(int ordinal){
+        return slots[ordinal];
+    }
+
+    /**
+     * @return the names of the stats of the given type, in the order they were declared
+     */
+    public Set<String> getStatNames(StatType type){
+        return statNameViews.get(type);
+    }
+
+    /**
+     * @return the names of all stats, in the order they were declared
+     */
+    public List<String> getAllStatNames(){
+        return Collections.unmodifiableList(allStatNames);
+    }
+
+    public Map<String, StatProperties> getNumberStatProperties() {
+        return Collections.unmodifiableMap(numberStatProperties);
+    }
+
+    public enum StatType {
+        INT,
+        FLOAT,
+        DOUBLE,
+        STRING_SET,
+        BOOLEAN
+    }
+}
@@ -5,6 +5,7 @@ import me.athlaeos.valhallammo.item.item_attributes.AttributeWrapper;
 import me.athlaeos.valhallammo.listeners.InteractListener;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EvEAccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.utility.EntityUtils;
 import me.athlaeos.valhallammo.utility.ItemUtils;
 import org.bukkit.entity.Entity;
@@ -13,6 +14,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.entity.Projectile;
 
 import java.util.Collection;
+import java.util.Set;
 
 public class AttributeAttackerSource implements AccumulativeStatSource, EvEAccumulativeStatSource {
     private final String attribute;
@@ -83,4 +85,9 @@ public class AttributeAttackerSource implements AccumulativeStatSource, EvEAccum
     public double fetch(Entity statPossessor, boolean use) {
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.ARMOR, StatDependency.HELD_ITEM, StatDependency.PROFILE);
+    }
 }
@@ -5,11 +5,13 @@ import me.athlaeos.valhallammo.item.ArmorSetRegistry;
 import me.athlaeos.valhallammo.item.WeightClass;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EvEAccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.utility.EntityUtils;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 
 import java.util.Collection;
+import java.util.Set;
 
 public class AttributeDefenderSource implements AccumulativeStatSource, EvEAccumulativeStatSource {
     private final String attribute;
@@ -60,4 +62,9 @@ public class AttributeDefenderSource implements AccumulativeStatSource, EvEAccum
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.ARMOR, StatDependency.HELD_ITEM, StatDependency.PROFILE);
+    }
 }
@@ -4,11 +4,13 @@ import me.athlaeos.valhallammo.item.ArmorSet;
 import me.athlaeos.valhallammo.item.ArmorSetRegistry;
 import me.athlaeos.valhallammo.item.WeightClass;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.utility.EntityUtils;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 
 import java.util.Collection;
+import java.util.Set;
 
 public class AttributeSource implements AccumulativeStatSource {
     private final String attribute;
@@ -47,4 +49,9 @@ public class AttributeSource implements AccumulativeStatSource {
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.ARMOR, StatDependency.HELD_ITEM, StatDependency.PROFILE);
+    }
 }
@@ -4,10 +4,13 @@ import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EntityCache;
 import me.athlaeos.valhallammo.playerstats.EntityProperties;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.version.EnchantmentMappings;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 
+import java.util.Set;
+
 public class FishingLuckLotSSource implements AccumulativeStatSource {
     private final double fishingLuckLotS = ValhallaMMO.getPluginConfig().getDouble("fishing_luck_lots");
 
@@ -19,4 +22,9 @@ public class FishingLuckLotSSource implements AccumulativeStatSource {
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.HELD_ITEM);
+    }
 }
@@ -4,8 +4,11 @@ import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.dom.DayTime;
 import me.athlaeos.valhallammo.dom.MoonPhase;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import org.bukkit.entity.Entity;
 
+import java.util.Set;
+
 public class FishingLuckNewMoonSource implements AccumulativeStatSource {
     private final double fishingLuckFullMoon = ValhallaMMO.getPluginConfig().getDouble("fishing_luck_newmoon");
 
@@ -17,4 +20,9 @@ public class FishingLuckNewMoonSource implements AccumulativeStatSource {
         if (phase == MoonPhase.NEW && !time.isDay()) return fishingLuckFullMoon;
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.WORLD_TIME);
+    }
 }
@@ -2,8 +2,11 @@ package me.athlaeos.valhallammo.playerstats.statsources;
 
 import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import org.bukkit.entity.Entity;
 
+import java.util.Set;
+
 public class FishingLuckRainSource implements AccumulativeStatSource {
     private final double fishingLuckRain = ValhallaMMO.getPluginConfig().getDouble("fishing_luck_rain");
 
@@ -14,4 +17,9 @@ public class FishingLuckRainSource implements AccumulativeStatSource {
         && statPossessor.getLocation().getBlock().getLightFromSky() > 14) return fishingLuckRain;
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.WEATHER);
+    }
 }
@@ -1,9 +1,12 @@
 package me.athlaeos.valhallammo.playerstats.statsources;
 
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.utility.GlobalEffect;
 import org.bukkit.entity.Entity;
 
+import java.util.Set;
+
 public class GlobalBuffSource implements AccumulativeStatSource {
     private final String buff;
     public GlobalBuffSource(String buff){
@@ -16,4 +19,9 @@ public class GlobalBuffSource implements AccumulativeStatSource {
         if (GlobalEffect.isActive(buff)) return GlobalEffect.getAmplifier(buff);
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.GLOBAL_BUFFS);
+    }
 }
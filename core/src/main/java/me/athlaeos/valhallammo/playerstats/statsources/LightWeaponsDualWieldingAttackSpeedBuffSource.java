@@ -5,10 +5,13 @@ import me.athlaeos.valhallammo.item.WeightClass;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EntityCache;
 import me.athlaeos.valhallammo.playerstats.EntityProperties;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 
+import java.util.Set;
+
 public class LightWeaponsDualWieldingAttackSpeedBuffSource implements AccumulativeStatSource {
     private final boolean enabled;
     private final double attackSpeedBuff;
@@ -29,4 +32,9 @@ public class LightWeaponsDualWieldingAttackSpeedBuffSource implements Accumulati
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.HELD_ITEM);
+    }
 }
@@ -6,10 +6,13 @@ import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EntityCache;
 import me.athlaeos.valhallammo.playerstats.EntityProperties;
 import me.athlaeos.valhallammo.playerstats.EvEAccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 
+import java.util.Set;
+
 public class LightWeaponsDualWieldingImmunityReductionBuffSource implements AccumulativeStatSource, EvEAccumulativeStatSource {
     private final boolean enabled;
     private final double immunityReductionBuff;
@@ -35,4 +38,9 @@ public class LightWeaponsDualWieldingImmunityReductionBuffSource implements Accu
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.HELD_ITEM);
+    }
 }
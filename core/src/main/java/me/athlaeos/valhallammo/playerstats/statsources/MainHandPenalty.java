@@ -3,10 +3,13 @@ package me.athlaeos.valhallammo.playerstats.statsources;
 import me.athlaeos.valhallammo.item.ItemBuilder;
 import me.athlaeos.valhallammo.item.ItemSkillRequirements;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.utility.ItemUtils;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 
+import java.util.Set;
+
 public class MainHandPenalty implements AccumulativeStatSource {
     private final String statPenalty;
 
@@ -25,4 +28,9 @@ public class MainHandPenalty implements AccumulativeStatSource {
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.HELD_ITEM, StatDependency.PROFILE);
+    }
 }
@@ -1,12 +1,15 @@
 package me.athlaeos.valhallammo.playerstats.statsources;
 
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileCache;
 import me.athlaeos.valhallammo.playerstats.profiles.implementations.MiningProfile;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 
+import java.util.Set;
+
 /**
  * Reduces mining speed by a great amount if looking at a block the player can't mine
  */
@@ -21,4 +24,9 @@ public class MiningUnbreakableBlocksSource implements AccumulativeStatSource {
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.PROFILE, StatDependency.OTHER); // reads the block the player is looking at
+    }
 }
@@ -4,10 +4,13 @@ import me.athlaeos.valhallammo.playerstats.EntityProperties;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EntityCache;
 import me.athlaeos.valhallammo.playerstats.EvEAccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.potioneffects.CustomPotionEffect;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 
+import java.util.Set;
+
 public class PotionEffectAttackerSource implements AccumulativeStatSource, EvEAccumulativeStatSource {
     private final String potionEffect;
     private final boolean negative;
@@ -36,4 +39,9 @@ public class PotionEffectAttackerSource implements AccumulativeStatSource, EvEAc
     public double fetch(Entity statPossessor, boolean use) {
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.POTION_EFFECTS);
+    }
 }
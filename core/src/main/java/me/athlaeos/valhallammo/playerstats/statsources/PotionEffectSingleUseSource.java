@@ -5,6 +5,7 @@ import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
 import me.athlaeos.valhallammo.playerstats.EntityProperties;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EntityCache;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.potioneffects.CustomPotionEffect;
 import me.athlaeos.valhallammo.potioneffects.PotionEffectRegistry;
 
@@ -13,6 +14,8 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.event.entity.EntityPotionEffectEvent;
 
+import java.util.Set;
+
 public class PotionEffectSingleUseSource implements AccumulativeStatSource {
     private final String potionEffect;
     private final boolean negative;
@@ -37,9 +40,14 @@ public class PotionEffectSingleUseSource implements AccumulativeStatSource {
                 effect.setEffectiveUntil(0);
                 PotionEffectRegistry.addEffect(l, null, effect, true, 1, EntityPotionEffectEvent.Cause.EXPIRATION, EntityPotionEffectEvent.Action.REMOVED);
             }
-            Bukkit.getScheduler().runTaskLater(ValhallaMMO.getInstance(), () -> AccumulativeStatManager.resetCache(l), 1L);
+            Bukkit.getScheduler().runTaskLater(ValhallaMMO.getInstance(), () -> AccumulativeStatManager.updateStats(l, StatDependency.POTION_EFFECTS), 1L);
             return amplifier;
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.POTION_EFFECTS);
+    }
 }
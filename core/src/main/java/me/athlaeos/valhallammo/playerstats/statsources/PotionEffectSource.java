@@ -3,10 +3,13 @@ package me.athlaeos.valhallammo.playerstats.statsources;
 import me.athlaeos.valhallammo.playerstats.EntityProperties;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EntityCache;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.potioneffects.CustomPotionEffect;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 
+import java.util.Set;
+
 public class PotionEffectSource implements AccumulativeStatSource {
     private final String potionEffect;
     private final boolean negative;
@@ -30,4 +33,9 @@ public class PotionEffectSource implements AccumulativeStatSource {
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.POTION_EFFECTS);
+    }
 }
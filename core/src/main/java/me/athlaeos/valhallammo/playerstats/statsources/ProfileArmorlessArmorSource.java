@@ -4,11 +4,14 @@ import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EntityCache;
 import me.athlaeos.valhallammo.playerstats.EntityProperties;
 import me.athlaeos.valhallammo.playerstats.EvEAccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileCache;
 import me.athlaeos.valhallammo.playerstats.profiles.implementations.PowerProfile;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 
+import java.util.Set;
+
 public class ProfileArmorlessArmorSource implements AccumulativeStatSource, EvEAccumulativeStatSource {
 
     @Override
@@ -26,4 +29,9 @@ public class ProfileArmorlessArmorSource implements AccumulativeStatSource, EvEA
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.PROFILE, StatDependency.ARMOR);
+    }
 }
@@ -2,47 +2,29 @@ package me.athlaeos.valhallammo.playerstats.statsources;
 
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EvEAccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.playerstats.format.StatFormat;
 import me.athlaeos.valhallammo.playerstats.profiles.Profile;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileCache;
-import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
+import me.athlaeos.valhallammo.playerstats.profiles.StatKey;
 import me.athlaeos.valhallammo.skills.skills.SkillRegistry;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Projectile;
 
+import java.util.Set;
+
 public class ProfileStatAttackerSource implements AccumulativeStatSource, EvEAccumulativeStatSource {
     private final Class<? extends Profile> type;
-    private final String stat;
-    private final Class<? extends Number> numberType;
-    private final Profile baseProfile;
+    private final StatKey<? extends Number> stat;
     private final double def;
     private boolean negative = false;
 
     public ProfileStatAttackerSource(Class<? extends Profile> type, String stat){
         this.type = type;
-        this.stat = stat;
-        baseProfile = ProfileRegistry.getBlankProfile(null, type);
-
-        if (baseProfile.intStatNames().contains(stat)) {
-            def = baseProfile.getDefaultInt(stat);
-            numberType = Integer.class;
-        } else if (baseProfile.floatStatNames().contains(stat)) {
-            def = baseProfile.getDefaultFloat(stat);
-            numberType = Float.class;
-        } else if (baseProfile.doubleStatNames().contains(stat)) {
-            def = baseProfile.getDefaultDouble(stat);
-            numberType = Double.class;
-        } else {
-            def = 0;
-            numberType = null;
-        }
-
-        if (numberType == null) {
-            throw new IllegalArgumentException("ProfileStatAttackerSource:" + type.getSimpleName() + " with stat " + stat +
-                    " was initialized, but this profile type does not have such a stat");
-        }
+        this.stat = StatKey.ofNumber(type, stat);
+        this.def = this.stat.getDefaultNumber();
     }
 
     public ProfileStatAttackerSource n(){
@@ -56,7 +38,7 @@ public class ProfileStatAttackerSource implements AccumulativeStatSource, EvEAcc
     }
 
     public StatFormat getFormat(){
-        return baseProfile.getNumberStatProperties().get(stat).getFormat();
+        return stat.getFormat();
     }
 
     @Override
@@ -68,10 +50,13 @@ public class ProfileStatAttackerSource implements AccumulativeStatSource, EvEAcc
             Profile profile = ProfileCache.getOrCache(pl, type);
             String requiredPermission = SkillRegistry.isRegistered(profile.getSkillType()) ? SkillRegistry.getSkill(profile.getSkillType()).getRequiredPermission() : null;
             if (requiredPermission != null && !pl.hasPermission(requiredPermission)) return def;
-            if (numberType.equals(Integer.class)) return (negative ? -1 : 1) * profile.getInt(stat);
-            if (numberType.equals(Float.class)) return (negative ? -1 : 1) * profile.getFloat(stat);
-            return (negative ? -1 : 1) * profile.getDouble(stat);
+            return (negative ? -1 : 1) * profile.getNumber(stat);
         }
         return def;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.PROFILE);
+    }
 }
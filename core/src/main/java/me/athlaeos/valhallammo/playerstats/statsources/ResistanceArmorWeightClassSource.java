@@ -5,9 +5,12 @@ import me.athlaeos.valhallammo.playerstats.EntityProperties;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EntityCache;
 import me.athlaeos.valhallammo.playerstats.EvEAccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 
+import java.util.Set;
+
 public class ResistanceArmorWeightClassSource implements AccumulativeStatSource, EvEAccumulativeStatSource {
     private final String key;
 
@@ -33,4 +36,9 @@ public class ResistanceArmorWeightClassSource implements AccumulativeStatSource,
     public double fetch(Entity victim, Entity attackedBy, boolean use) {
         return fetch(victim, use);
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.ARMOR);
+    }
 }
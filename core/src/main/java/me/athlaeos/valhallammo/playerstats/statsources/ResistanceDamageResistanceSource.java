@@ -2,11 +2,14 @@ package me.athlaeos.valhallammo.playerstats.statsources;
 
 import me.athlaeos.valhallammo.ValhallaMMO;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.version.PotionEffectMappings;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.potion.PotionEffect;
 
+import java.util.Set;
+
 public class ResistanceDamageResistanceSource implements AccumulativeStatSource {
     @Override
     public double fetch(Entity statPossessor, boolean use) {
@@ -17,4 +20,9 @@ public class ResistanceDamageResistanceSource implements AccumulativeStatSource
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.POTION_EFFECTS);
+    }
 }
@@ -3,10 +3,12 @@ package me.athlaeos.valhallammo.playerstats.statsources;
 import me.athlaeos.valhallammo.item.ArmorSet;
 import me.athlaeos.valhallammo.item.ArmorSetRegistry;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 
 import java.util.Collection;
+import java.util.Set;
 
 public class SetBonusSource implements AccumulativeStatSource {
     private final String attribute;
@@ -42,4 +44,9 @@ public class SetBonusSource implements AccumulativeStatSource {
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.ARMOR, StatDependency.HELD_ITEM);
+    }
 }
@@ -5,6 +5,7 @@ import me.athlaeos.valhallammo.item.ArmorSetRegistry;
 import me.athlaeos.valhallammo.item.WeightClass;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatSource;
 import me.athlaeos.valhallammo.playerstats.EvEAccumulativeStatSource;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.utility.EntityUtils;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.attribute.AttributeModifier;
@@ -12,6 +13,7 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 
 import java.util.Collection;
+import java.util.Set;
 
 public class VanillaAttributeDefenderSource implements AccumulativeStatSource, EvEAccumulativeStatSource {
     private final Attribute attribute;
@@ -59,4 +61,9 @@ public class VanillaAttributeDefenderSource implements AccumulativeStatSource, E
         }
         return 0;
     }
+
+    @Override
+    public Set<StatDependency> getDependencies() {
+        return Set.of(StatDependency.ARMOR, StatDependency.HELD_ITEM, StatDependency.PROFILE);
+    }
 }
@@ -8,7 +8,9 @@ import me.athlaeos.valhallammo.potioneffects.implementations.*;
 import me.athlaeos.valhallammo.utility.*;
 import me.athlaeos.valhallammo.event.EntityCustomPotionEffectEvent;
 import me.athlaeos.valhallammo.localization.TranslationManager;
+import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
 import me.athlaeos.valhallammo.playerstats.EntityCache;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.playerstats.format.StatFormat;
 import me.athlaeos.valhallammo.version.PotionEffectMappings;
 
@@ -619,6 +621,7 @@ public class PotionEffectRegistry {
             p.getPersistentDataContainer().set(POTION_EFFECTS, PersistentDataType.STRING, effect);
         }
         EntityCache.resetPotionEffects(p);
+        AccumulativeStatManager.updateStats(p, StatDependency.POTION_EFFECTS);
     }
 
     /**
@@ -26,7 +26,7 @@ public class PerkRewardRegistry {
     private static final Map<String, PerkReward> registry = new HashMap<>();
 
     static {
-        for (Profile profile : ProfileRegistry.getRegisteredProfiles().values()){
+        for (Profile profile : ProfileRegistry.getProfileTypes().profiles()){
             String skill = profile.getSkillType().getSimpleName().toLowerCase(java.util.Locale.US).replace("skill", "");
             if (profile.getSkillType() == null) continue;
             for (String s : profile.getAllStatNames()) {
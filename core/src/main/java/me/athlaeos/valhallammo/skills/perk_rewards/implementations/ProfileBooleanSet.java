@@ -2,19 +2,21 @@ package me.athlaeos.valhallammo.skills.perk_rewards.implementations;
 
 import me.athlaeos.valhallammo.localization.TranslationManager;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.skills.perk_rewards.PerkReward;
 import me.athlaeos.valhallammo.skills.perk_rewards.PerkRewardArgumentType;
 import me.athlaeos.valhallammo.playerstats.profiles.Profile;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
+import me.athlaeos.valhallammo.playerstats.profiles.StatKey;
 import org.bukkit.entity.Player;
 
 public class ProfileBooleanSet extends PerkReward {
     private boolean value;
-    private final String stat;
+    private final StatKey<Boolean> stat;
     private final Class<? extends Profile> type;
     public ProfileBooleanSet(String name, String stat, Class<? extends Profile> type) {
         super(name);
-        this.stat = stat;
+        this.stat = StatKey.ofBoolean(type, stat);
         this.type = type;
     }
 
@@ -27,7 +29,7 @@ public class ProfileBooleanSet extends PerkReward {
         if (isPersistent()) ProfileRegistry.setPersistentProfile(player, profile, type);
         else ProfileRegistry.setSkillProfile(player, profile, type);
 
-        AccumulativeStatManager.updateStats(player);
+        AccumulativeStatManager.updateStats(player, StatDependency.PROFILE);
     }
 
     @Override
@@ -41,7 +43,7 @@ public class ProfileBooleanSet extends PerkReward {
             profile.setBoolean(stat, !value);
             ProfileRegistry.setSkillProfile(player, profile, type);
         }
-        AccumulativeStatManager.updateStats(player);
+        AccumulativeStatManager.updateStats(player, StatDependency.PROFILE);
     }
 
     @Override
@@ -2,18 +2,20 @@ package me.athlaeos.valhallammo.skills.perk_rewards.implementations;
 
 import me.athlaeos.valhallammo.localization.TranslationManager;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.playerstats.profiles.Profile;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
+import me.athlaeos.valhallammo.playerstats.profiles.StatKey;
 import me.athlaeos.valhallammo.skills.perk_rewards.PerkReward;
 import me.athlaeos.valhallammo.skills.perk_rewards.PerkRewardArgumentType;
 import org.bukkit.entity.Player;
 
 public class ProfileBooleanToggle extends PerkReward {
-    private final String stat;
+    private final StatKey<Boolean> stat;
     private final Class<? extends Profile> type;
     public ProfileBooleanToggle(String name, String stat, Class<? extends Profile> type) {
         super(name);
-        this.stat = stat;
+        this.stat = StatKey.ofBoolean(type, stat);
         this.type = type;
     }
 
@@ -26,7 +28,7 @@ public class ProfileBooleanToggle extends PerkReward {
         if (isPersistent()) ProfileRegistry.setPersistentProfile(player, profile, type);
         else ProfileRegistry.setSkillProfile(player, profile, type);
 
-        AccumulativeStatManager.updateStats(player);
+        AccumulativeStatManager.updateStats(player, StatDependency.PROFILE);
     }
 
     @Override
@@ -38,7 +40,7 @@ public class ProfileBooleanToggle extends PerkReward {
         if (isPersistent()) ProfileRegistry.setPersistentProfile(player, profile, type);
         else ProfileRegistry.setSkillProfile(player, profile, type);
 
-        AccumulativeStatManager.updateStats(player);
+        AccumulativeStatManager.updateStats(player, StatDependency.PROFILE);
     }
 
     @Override
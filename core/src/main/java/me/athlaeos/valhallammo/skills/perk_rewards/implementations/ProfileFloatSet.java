@@ -1,21 +1,23 @@
 package me.athlaeos.valhallammo.skills.perk_rewards.implementations;
 
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.playerstats.format.StatFormat;
 import me.athlaeos.valhallammo.skills.perk_rewards.PerkReward;
 import me.athlaeos.valhallammo.skills.perk_rewards.PerkRewardArgumentType;
 import me.athlaeos.valhallammo.playerstats.profiles.Profile;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
+import me.athlaeos.valhallammo.playerstats.profiles.StatKey;
 import me.athlaeos.valhallammo.playerstats.profiles.properties.StatProperties;
 import org.bukkit.entity.Player;
 
 public class ProfileFloatSet extends PerkReward {
     private float value;
-    private final String stat;
+    private final StatKey<Float> stat;
     private final Class<? extends Profile> type;
     public ProfileFloatSet(String name, String stat, Class<? extends Profile> type) {
         super(name);
-        this.stat = stat;
+        this.stat = StatKey.ofFloat(type, stat);
         this.type = type;
     }
 
@@ -27,7 +29,7 @@ public class ProfileFloatSet extends PerkReward {
 
         if (isPersistent()) ProfileRegistry.setPersistentProfile(player, profile, type);
         else ProfileRegistry.setSkillProfile(player, profile, type);
-        AccumulativeStatManager.updateStats(player);
+        AccumulativeStatManager.updateStats(player, StatDependency.PROFILE);
     }
 
     @Override
@@ -40,7 +42,7 @@ public class ProfileFloatSet extends PerkReward {
 
     @Override
     public String rewardPlaceholder() {
-        StatProperties properties = ProfileRegistry.getRegisteredProfiles().get(type).getNumberStatProperties().get(stat);
+        StatProperties properties = stat.getProperties();
         if (properties == null) return StatFormat.FLOAT_P2.format(value);
         return properties.getFormat().format(value);
     }
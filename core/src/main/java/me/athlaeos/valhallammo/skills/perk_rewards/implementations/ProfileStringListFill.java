@@ -1,21 +1,23 @@
 package me.athlaeos.valhallammo.skills.perk_rewards.implementations;
 
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.skills.perk_rewards.PerkReward;
 import me.athlaeos.valhallammo.skills.perk_rewards.PerkRewardArgumentType;
 import me.athlaeos.valhallammo.playerstats.profiles.Profile;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
+import me.athlaeos.valhallammo.playerstats.profiles.StatKey;
 import org.bukkit.entity.Player;
 
 import java.util.Collection;
 
 public class ProfileStringListFill extends PerkReward {
-    private final String stat;
+    private final StatKey<Collection<String>> stat;
     private final Fetcher[] fetchers;
     private final Class<? extends Profile> type;
     public ProfileStringListFill(String name, String stat, Class<? extends Profile> type, Fetcher... fetcher) {
         super(name);
-        this.stat = stat;
+        this.stat = StatKey.ofStringSet(type, stat);
         this.type = type;
         this.fetchers = fetcher;
     }
@@ -29,7 +31,7 @@ public class ProfileStringListFill extends PerkReward {
         if (isPersistent()) ProfileRegistry.setPersistentProfile(player, profile, type);
         else ProfileRegistry.setSkillProfile(player, profile, type);
 
-        AccumulativeStatManager.updateStats(player);
+        AccumulativeStatManager.updateStats(player, StatDependency.PROFILE);
     }
 
     @Override
@@ -2,10 +2,12 @@ package me.athlaeos.valhallammo.skills.perk_rewards.implementations;
 
 import me.athlaeos.valhallammo.dom.BiAction;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.skills.perk_rewards.PerkReward;
 import me.athlaeos.valhallammo.skills.perk_rewards.PerkRewardArgumentType;
 import me.athlaeos.valhallammo.playerstats.profiles.Profile;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileRegistry;
+import me.athlaeos.valhallammo.playerstats.profiles.StatKey;
 import org.bukkit.entity.Player;
 
 import java.util.Collection;
@@ -13,7 +15,7 @@ import java.util.List;
 
 public class ProfileStringListRemove extends PerkReward {
     private List<String> value;
-    private final String stat;
+    private final StatKey<Collection<String>> stat;
     private final Class<? extends Profile> type;
     private BiAction<String, Player> addAction = null;
     private BiAction<String, Player> removeAction = null;
@@ -21,20 +23,20 @@ public class ProfileStringListRemove extends PerkReward {
 
     public ProfileStringListRemove(String name, String stat, Class<? extends Profile> type) {
         super(name);
-        this.stat = stat;
+        this.stat = StatKey.ofStringSet(type, stat);
         this.type = type;
     }
 
     public ProfileStringListRemove(String name, String stat, Class<? extends Profile> type, boolean alwaysPersistent) {
         super(name);
-        this.stat = stat;
+        this.stat = StatKey.ofStringSet(type, stat);
         this.type = type;
         this.alwaysPersistent = alwaysPersistent;
     }
 
     public ProfileStringListRemove(String name, String stat, Class<? extends Profile> type, BiAction<String, Player> removeAction, BiAction<String, Player> addAction) {
         super(name);
-        this.stat = stat;
+        this.stat = StatKey.ofStringSet(type, stat);
         this.type = type;
         this.removeAction = removeAction;
         this.addAction = addAction;
@@ -42,7 +44,7 @@ public class ProfileStringListRemove extends PerkReward {
 
     public ProfileStringListRemove(String name, String stat, Class<? extends Profile> type, boolean alwaysPersistent, BiAction<String, Player> removeAction, BiAction<String, Player> addAction) {
         super(name);
-        this.stat = stat;
+        this.stat = StatKey.ofStringSet(type, stat);
         this.type = type;
         this.alwaysPersistent = alwaysPersistent;
         this.removeAction = removeAction;
@@ -61,7 +63,7 @@ public class ProfileStringListRemove extends PerkReward {
         if (isPersistent() || alwaysPersistent) ProfileRegistry.setPersistentProfile(player, profile, type);
         else ProfileRegistry.setSkillProfile(player, profile, type);
 
-        AccumulativeStatManager.updateStats(player);
+        AccumulativeStatManager.updateStats(player, StatDependency.PROFILE);
     }
 
     @Override
@@ -76,7 +78,7 @@ public class ProfileStringListRemove extends PerkReward {
         if (isPersistent() || alwaysPersistent) ProfileRegistry.setPersistentProfile(player, profile, type);
         else ProfileRegistry.setSkillProfile(player, profile, type);
 
-        AccumulativeStatManager.updateStats(player);
+        AccumulativeStatManager.updateStats(player, StatDependency.PROFILE);
     }
 
     @Override
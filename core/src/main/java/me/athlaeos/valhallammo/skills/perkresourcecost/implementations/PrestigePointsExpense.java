@@ -16,7 +16,7 @@ public class PrestigePointsExpense implements ResourceExpense {
 
     @Override
     public boolean canPurchase(Player p) {
-        PowerProfile profile = ProfileRegistry.getMergedProfile(p, PowerProfile.class);
+        PowerProfile profile = ProfileRegistry.getMergedProfileView(p, PowerProfile.class);
         return profile.getSpendablePrestigePoints() - profile.getSpentPrestigePoints() >= cost;
     }
 
@@ -16,7 +16,7 @@ public class SkillPointsExpense implements ResourceExpense {
 
     @Override
     public boolean canPurchase(Player p) {
-        PowerProfile profile = ProfileRegistry.getMergedProfile(p, PowerProfile.class);
+        PowerProfile profile = ProfileRegistry.getMergedProfileView(p, PowerProfile.class);
         return profile.getSpendableSkillPoints() - profile.getSpentSkillPoints() >= cost;
     }
 
@@ -8,6 +8,7 @@ import me.athlaeos.valhallammo.event.ValhallaUpdatedStatsEvent;
 import me.athlaeos.valhallammo.localization.TranslationManager;
 import me.athlaeos.valhallammo.placeholder.PlaceholderRegistry;
 import me.athlaeos.valhallammo.playerstats.AccumulativeStatManager;
+import me.athlaeos.valhallammo.playerstats.StatDependency;
 import me.athlaeos.valhallammo.playerstats.profiles.ProfileCache;
 import me.athlaeos.valhallammo.skills.perk_rewards.MultiplicativeReward;
 import me.athlaeos.valhallammo.skills.perk_rewards.PerkReward;
@@ -496,7 +497,7 @@ public abstract class Skill {
             // level conditions don't need to be checked if the player's current exp isn't enough to level up, or low enough to level down
             if (profile.getEXP() >= expForLevel(profile.getLevel() + 1) || profile.getEXP() < 0) {
                 updateLevelUpConditions(p, silent);
-                AccumulativeStatManager.updateStats(p);
+                AccumulativeStatManager.updateStats(p, StatDependency.PROFILE);
             }
         }
     }
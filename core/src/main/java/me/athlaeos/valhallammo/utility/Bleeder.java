@@ -27,6 +27,12 @@ import java.util.UUID;
 import static me.athlaeos.valhallammo.utility.Utils.oldOrNew;
 
 public class Bleeder {
+    // ids of the bleed stats, resolved once since they are read on every hit
+    private static final int BLEED_DAMAGE = AccumulativeStatManager.getStatId("BLEED_DAMAGE");
+    private static final int BLEED_DURATION = AccumulativeStatManager.getStatId("BLEED_DURATION");
+    private static final int BLEED_RESISTANCE = AccumulativeStatManager.getStatId("BLEED_RESISTANCE");
+    private static final int BLEED_CHANCE = AccumulativeStatManager.getStatId("BLEED_CHANCE");
+
     private static final Map<UUID, BleedingInstance> bleedingEntities = new HashMap<>();
     private static int delay = ValhallaMMO.getPluginConfig().getInt("bleed_delay", 40);
     private static final int stackedDelayReduction = ValhallaMMO.getPluginConfig().getInt("bleed_stacked_delay", -5);
@@ -42,9 +48,9 @@ public class Bleeder {
      * @param causedBy the entity causing the bleed
      */
     public static void inflictBleed(LivingEntity bleeder, Entity causedBy, CombatType combatType){
-        double bleedDamage = AccumulativeStatManager.getCachedAttackerRelationalStats("BLEED_DAMAGE", bleeder, causedBy, 10000, true);
+        double bleedDamage = AccumulativeStatManager.getCachedAttackerRelationalStats(BLEED_DAMAGE, bleeder, causedBy, 10000, true);
         if (bleedDamage <= 0) return;
-        int bleedDuration = (int) AccumulativeStatManager.getCachedAttackerRelationalStats("BLEED_DURATION", bleeder, causedBy, 10000, true);
+        int bleedDuration = (int) AccumulativeStatManager.getCachedAttackerRelationalStats(BLEED_DURATION, bleeder, causedBy, 10000, true);
         BleedingInstance instance = bleedingEntities.get(bleeder.getUniqueId());
         if (instance != null) inflictBleed(bleeder, causedBy, bleedDuration, bleedDamage, Math.min(maxStacks, instance.stacks + 1), combatType);
         else inflictBleed(bleeder, causedBy, bleedDuration, bleedDamage, 1, combatType);
@@ -80,7 +86,7 @@ public class Bleeder {
         if (bleeder instanceof Player p && WorldGuardHook.inDisabledRegion(p.getLocation(), p, WorldGuardHook.VMMO_COMBAT_BLEED)) return;
         else if (WorldGuardHook.inDisabledRegion(bleeder.getLocation(), WorldGuardHook.VMMO_COMBAT_BLEED)) return;
         BleedingInstance instance = bleedingEntities.get(bleeder.getUniqueId());
-        double resistance = AccumulativeStatManager.getRelationalStats("BLEED_RESISTANCE", bleeder, causedBy, true);
+        double resistance = AccumulativeStatManager.getRelationalStats(BLEED_RESISTANCE, bleeder, causedBy, true);
         EntityBleedEvent event = new EntityBleedEvent(bleeder, causedBy, combatType, damage, resistance, duration, stacks);
         Bukkit.getPluginManager().callEvent(event);
         if (!event.isCancelled()){
@@ -107,12 +113,12 @@ public class Bleeder {
      * @param causedBy the entity causing the bleed
      */
     public static void attemptBleed(LivingEntity bleeder, Entity causedBy, CombatType combatType){
-        double chance = AccumulativeStatManager.getCachedAttackerRelationalStats("BLEED_CHANCE", causedBy, bleeder, 10000, true);
+        double chance = AccumulativeStatManager.getCachedAttackerRelationalStats(BLEED_CHANCE, causedBy, bleeder, 10000, true);
         AttributeInstance bleederLuck = bleeder.getAttribute(Attribute.GENERIC_LUCK);
         AttributeInstance causedByLuck = causedBy instanceof LivingEntity l ? l.getAttribute(Attribute.GENERIC_LUCK) : null;
         if (Utils.proc(chance, (causedByLuck == null ? 0 : causedByLuck.getValue()) - (bleederLuck == null ? 0 : bleederLuck.getValue()), false)){
-            double damage = AccumulativeStatManager.getCachedAttackerRelationalStats("BLEED_DAMAGE", causedBy, bleeder, 10000, true);
-            int duration = (int) AccumulativeStatManager.getCachedAttackerRelationalStats("BLEED_DURATION", causedBy, bleeder, 10000, true);
+            double damage = AccumulativeStatManager.getCachedAttackerRelationalStats(BLEED_DAMAGE, causedBy, bleeder, 10000, true);
+            int duration = (int) AccumulativeStatManager.getCachedAttackerRelationalStats(BLEED_DURATION, causedBy, bleeder, 10000, true);
             inflictBleed(bleeder, causedBy, duration, damage, combatType);
         }
     }
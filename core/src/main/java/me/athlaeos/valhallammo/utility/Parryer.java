@@ -22,6 +22,16 @@ import java.util.HashSet;
 import java.util.Map;
 
 public class Parryer {
+    // ids of the parry stats, resolved once instead of looking them up by name on every parry
+    private static final int PARRY_COOLDOWN = AccumulativeStatManager.getStatId("PARRY_COOLDOWN");
+    private static final int PARRY_EFFECTIVENESS_DURATION = AccumulativeStatManager.getStatId("PARRY_EFFECTIVENESS_DURATION");
+    private static final int PARRY_VULNERABLE_DURATION = AccumulativeStatManager.getStatId("PARRY_VULNERABLE_DURATION");
+    private static final int PARRY_DAMAGE_REDUCTION = AccumulativeStatManager.getStatId("PARRY_DAMAGE_REDUCTION");
+    private static final int PARRY_SUCCESS_COOLDOWN_REDUCTION = AccumulativeStatManager.getStatId("PARRY_SUCCESS_COOLDOWN_REDUCTION");
+    private static final int PARRY_ENEMY_DEBUFF_DURATION = AccumulativeStatManager.getStatId("PARRY_ENEMY_DEBUFF_DURATION");
+    private static final int RANGED_INACCURACY = AccumulativeStatManager.getStatId("RANGED_INACCURACY");
+    private static final int PARRY_SELF_DEBUFF_DURATION = AccumulativeStatManager.getStatId("PARRY_SELF_DEBUFF_DURATION");
+
     private static final Collection<PotionEffectWrapper> parryEnemyDebuffs = new HashSet<>();
     private static final Collection<PotionEffectWrapper> parrySelfDebuffs = new HashSet<>();
     private static final boolean parrySparks = ValhallaMMO.getPluginConfig().getBoolean("parry_sparks");
@@ -76,11 +86,11 @@ public class Parryer {
 
     public static void attemptParry(LivingEntity e){
         if (!Timer.isCooldownPassed(e.getUniqueId(), "parry_cooldown")) return;
-        int cooldown = (int) AccumulativeStatManager.getCachedStats("PARRY_COOLDOWN", e, 10000, true) - 1;
+        int cooldown = (int) AccumulativeStatManager.getCachedStats(PARRY_COOLDOWN, e, 10000, true) - 1;
         if (cooldown < 0) return;
-        int activeDuration = (int) AccumulativeStatManager.getCachedStats("PARRY_EFFECTIVENESS_DURATION", e, 10000, true);
+        int activeDuration = (int) AccumulativeStatManager.getCachedStats(PARRY_EFFECTIVENESS_DURATION, e, 10000, true);
         if (activeDuration <= 0) return;
-        int vulnerableDuration = (int) AccumulativeStatManager.getCachedStats("PARRY_VULNERABLE_DURATION", e, 10000, true);
+        int vulnerableDuration = (int) AccumulativeStatManager.getCachedStats(PARRY_VULNERABLE_DURATION, e, 10000, true);
         forceParry(e, activeDuration, vulnerableDuration, cooldown);
     }
 
@@ -98,14 +108,14 @@ public class Parryer {
                 // parry successful
                 if (parrySparks && parrySuccessAnimation != null) parrySuccessAnimation.animate(v, v.getLocation(), v.getEyeLocation().getDirection(), 0);
                 v.getWorld().playSound(v.getLocation(), parrySuccessSound, 1F, 1F);
-                double damageReduction = (int) AccumulativeStatManager.getCachedRelationalStats("PARRY_DAMAGE_REDUCTION", v, d, 10000, true);
-                double cooldownReduction = AccumulativeStatManager.getCachedRelationalStats("PARRY_SUCCESS_COOLDOWN_REDUCTION", v, d, 10000, true);
+                double damageReduction = (int) AccumulativeStatManager.getCachedRelationalStats(PARRY_DAMAGE_REDUCTION, v, d, 10000, true);
+                double cooldownReduction = AccumulativeStatManager.getCachedRelationalStats(PARRY_SUCCESS_COOLDOWN_REDUCTION, v, d, 10000, true);
                 long cooldown = Timer.getCooldown(v.getUniqueId(), "parry_cooldown");
                 if (cooldown > 0) Timer.setCooldown(v.getUniqueId(), (int) (cooldown * (1 - cooldownReduction)), "parry_cooldown");
                 Timer.setCooldown(v.getUniqueId(), 0, "parry_vulnerable");
                 Timer.setCooldown(v.getUniqueId(), 0, "parry_effective");
                 if (d instanceof LivingEntity a){
-                    int debuffDuration = (int) AccumulativeStatManager.getCachedRelationalStats("PARRY_ENEMY_DEBUFF_DURATION", v, a, 10000, true);
+                    int debuffDuration = (int) AccumulativeStatManager.getCachedRelationalStats(PARRY_ENEMY_DEBUFF_DURATION, v, a, 10000, true);
                     for (PotionEffectWrapper wrapper : parryEnemyDebuffs){
                         PotionEffectWrapper copy = PotionEffectRegistry.getEffect(wrapper.getEffect()).setAmplifier(wrapper.getAmplifier()).setDuration(debuffDuration);
                         if (!wrapper.isVanilla()) PotionEffectRegistry.addEffect(a, v, new CustomPotionEffect(copy, debuffDuration, copy.getAmplifier()), false, 1, EntityPotionEffectEvent.Cause.ATTACK);
@@ -116,14 +126,14 @@ public class Parryer {
                     Projectile p = (Projectile) d;
                     p.setVelocity(p.getVelocity().multiply(-1));
                     p.setShooter(v);
-                    double inaccuracy = AccumulativeStatManager.getCachedStats("RANGED_INACCURACY", v, 10000, true);
+                    double inaccuracy = AccumulativeStatManager.getCachedStats(RANGED_INACCURACY, v, 10000, true);
                     EntityUtils.applyInaccuracy(p, v.getEyeLocation().getDirection(), inaccuracy);
                     return 0;
                 }
                 return 1 - damageReduction;
             } else if (!Timer.isCooldownPassed(v.getUniqueId(), "parry_vulnerable")){
                 // parry failed
-                int debuffDuration = (int) AccumulativeStatManager.getCachedRelationalStats("PARRY_SELF_DEBUFF_DURATION", v, d, 10000, true);
+                int debuffDuration = (int) AccumulativeStatManager.getCachedRelationalStats(PARRY_SELF_DEBUFF_DURATION, v, d, 10000, true);
                 for (PotionEffectWrapper wrapper : parrySelfDebuffs){
                     PotionEffectWrapper copy = PotionEffectRegistry.getEffect(wrapper.getEffect()).setAmplifier(wrapper.getAmplifier()).setDuration(debuffDuration);
                     if (!wrapper.isVanilla()) PotionEffectRegistry.addEffect(v, null, new CustomPotionEffect(copy, debuffDuration, copy.getAmplifier()), false, 1, EntityPotionEffectEvent.Cause.ATTACK);